@@ -4,8 +4,7 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Stack;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
 
 import junit.framework.Assert;
 import android.app.Activity;
@@ -38,6 +37,10 @@ class ActivityUtils {
 	private final String LOG_TAG = "Robotium";
 	// 短等待时间100ms
 	private final int MINISLEEP = 100;
+	// 清理时等待500ms
+	private final int PAUSE = 500;
+	// 清理时等待300ms
+	private final int MINIPAUSE = 300;
 	// 用于activitymonitor循环抓取当前activity的等待50ms
 	private static final int ACTIVITYSYNCTIME = 50;
 	// activity堆栈，用于存放所有开启状态的activity,采用WeakReference,避免对GC产生影响
@@ -46,8 +49,10 @@ class ActivityUtils {
 	private WeakReference<Activity> weakActivityReference;
 	// 堆栈存储activity的名字
 	private Stack<String> activitiesStoredInActivityStack;
-	// 定时器，用于定时获取最新的activity,定时时间就是上面定义的50ms
-	private Timer activitySyncTimer;
+	// 共享调度器，用于定时获取最新的activity,定时时间就是上面定义的50ms
+	private final SharedScheduler scheduler;
+	// activity同步定时任务
+	private ScheduledFuture<?> activitySyncTask;
 	/**
 	 * 构造函数
 	 * Constructs this object.
@@ -55,14 +60,15 @@ class ActivityUtils {
 	 * @param inst the {@code Instrumentation} instance.  获取instrument一般都是通过getIntrument()获取的传递给构造函数
 	 * @param activity the start {@code Activity}         应用启动的activity,一般是传递mainActivity
 	 * @param sleeper the {@code Sleeper} instance        Sleep工具类
+	 * @param scheduler the {@code SharedScheduler} instance
 	 */
 
-	public ActivityUtils(Instrumentation inst, Activity activity, Sleeper sleeper) {
+	public ActivityUtils(Instrumentation inst, Activity activity, Sleeper sleeper, SharedScheduler scheduler) {
 		this.inst = inst;
 		this.activity = activity;
 		this.sleeper = sleeper;
+		this.scheduler = scheduler;
 		createStackAndPushStartActivity();
-		activitySyncTimer = new Timer();
 		activitiesStoredInActivityStack = new Stack<String>();
 		// 开启 activity监控
 		setupActivityMonitor();
@@ -139,8 +145,7 @@ class ActivityUtils {
 
 	private void setupActivityStackListener() {
 		// 创建一个定时任务
-		TimerTask activitySyncTimerTask = new TimerTask() {
-			@Override
+		Runnable activitySyncTimerTask = new Runnable() {
 			public void run() {
 				// 检查activitymonitor是否已创建,避免null异常
 				if (activityMonitor != null){
@@ -165,7 +170,7 @@ class ActivityUtils {
 			}
 		};
 		// 开启定时任务，每50ms执行一次
-		activitySyncTimer.schedule(activitySyncTimerTask, 0, ACTIVITYSYNCTIME);
+		activitySyncTask = scheduler.scheduleWithFixedDelay(activitySyncTimerTask, 0, ACTIVITYSYNCTIME);
 	}
 
 	/**
@@ -353,6 +358,7 @@ class ActivityUtils {
 			// 判断当前activity是否为需要返回的，不是是不断发送返回指令，直到找到
 			while(!getCurrentActivity().getClass().getSimpleName().equals(name))
 			{
+				sleeper.checkCancelled();
 				try{
 					inst.sendKeyDownUpSync(KeyEvent.KEYCODE_BACK);
 					// instrument 触发该指令可能导致的exception
@@ -383,14 +389,24 @@ class ActivityUtils {
 	}
 
 	/**
-	 * solo生命周期结束，释放相关资源
-	 * Finalizes the solo object.
-	 */  
+	 * 停止activity监控定时任务，已停止时无影响
+	 * Stops the task that keeps the activity stack in sync. Has no effect if it is already stopped.
+	 */
 
-	@Override
-	public void finalize() throws Throwable {
+	public void stopActivitySync() {
+		if(activitySyncTask != null){
+			activitySyncTask.cancel(false);
+		}
+	}
+
+	/**
+	 * 停止activity监控定时任务并移除ActivityMonitor
+	 * Stops the activity stack sync and removes the {@code ActivityMonitor} added during startup.
+	 */
+
+	public void close() {
 		// 停止activity监控定时任务
-		activitySyncTimer.cancel();
+		stopActivitySync();
 		try {
 			// 清理activityMonitor对象
 			// Remove the monitor added during startup
@@ -399,6 +415,16 @@ class ActivityUtils {
 				activityMonitor = null;
 			}
 		} catch (Exception ignored) {}
+	}
+
+	/**
+	 * solo生命周期结束，释放相关资源
+	 * Finalizes the solo object.
+	 */  
+
+	@Override
+	public void finalize() throws Throwable {
+		close();
 		super.finalize();
 	}
 
@@ -410,26 +436,27 @@ class ActivityUtils {
 	public void finishOpenedActivities(){
 		// 停止activity监听定时任务
 		// Stops the activityStack listener
-		activitySyncTimer.cancel();
+		stopActivitySync();
 		// 获取所有存活的activity
 		ArrayList<Activity> activitiesOpened = getAllOpenedActivities();
-		// 结束所有存活的activity
+		// 结束所有存活的activity,清理操作在取消后也要执行,因此等待不响应取消
 		// Finish all opened activities
 		for (int i = activitiesOpened.size()-1; i >= 0; i--) {
-			sleeper.sleep(MINISLEEP);
+			sleeper.sleepUncancellable(MINISLEEP);
 			finishActivity(activitiesOpened.get(i));
 		}
 		// 释放对象
 		activitiesOpened = null;
-		sleeper.sleep(MINISLEEP);
+		sleeper.sleepUncancellable(MINISLEEP);
 		// Finish the initial activity, pressing Back for good measure
-		finishActivity(getCurrentActivity(true, false));
+		sleeper.sleepUncancellable(PAUSE);
+		finishActivity(getCurrentActivity(false, false));
 		this.activity = null;
-		sleeper.sleepMini();
+		sleeper.sleepUncancellable(MINIPAUSE);
 		// 点击2次back按钮退出程序
 		try {
 			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_BACK);
-			sleeper.sleep(MINISLEEP);
+			sleeper.sleepUncancellable(MINISLEEP);
 			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_BACK);
 		} catch (Throwable ignored) {
 			// Guard against lack of INJECT_EVENT permission
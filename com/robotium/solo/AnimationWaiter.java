@@ -0,0 +1,252 @@
+package com.robotium.solo;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import android.animation.ValueAnimator;
+import android.app.Instrumentation;
+import android.util.Log;
+import android.view.View;
+import android.view.animation.Animation;
+import com.robotium.solo.Solo.Config;
+
+
+/**
+ * 动画等待工具类，判断当前窗口是否有正在运行的view动画或属性动画，并可修改属性动画的时长比例
+ * Detects running animations in the current windows and waits for them to settle. View animations are
+ * found through {@link View#getAnimation()}, property animations through the count of running
+ * {@link ValueAnimator}s, which is read via reflection. The animators are tracked per thread, so the
+ * check runs on the UI thread.
+ * <br><br>
+ * Also scales the duration of property animations of the test process, see {@link Config#disableAnimations}.
+ * The scale is global to the process, so it is reference counted across all instances: the original scale is
+ * captured by the first instance that changes it and restored when the last one releases it.
+ * Property animations require API level 11; on older versions only view animations are detected.
+ *
+ */
+
+class AnimationWaiter {
+	// 相关属性配置
+	private final Config config;
+	// Instrumentation
+	private final Instrumentation inst;
+	// View查找工具类
+	private final ViewFetcher viewFetcher;
+	// 延时等待工具类
+	private final Sleeper sleeper;
+	// 日志打印标签
+	private static final String LOG_TAG = "Robotium";
+	// 两次检查的间隔50ms
+	private static final int MINISLEEP = 50;
+	// 是否已查找反射方法
+	private static boolean resolved = false;
+	// ValueAnimator.getCurrentAnimationsCount()
+	private static Method animationsCountMethod;
+	// ValueAnimator.sDurationScale
+	private static Field durationScaleField;
+	// 进程内第一次修改前的时长比例
+	private static float originalDurationScale;
+	// 修改了时长比例且未恢复的实例数
+	private static int durationScaleReferences = 0;
+	// 用于同步时长比例的修改
+	private static final Object DURATION_SCALE_LOCK = new Object();
+	// 本实例是否修改了时长比例且未恢复
+	private boolean holdsDurationScale = false;
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param config the {@code Config} instance
+	 * @param inst the {@code Instrumentation} instance
+	 * @param viewFetcher the {@code ViewFetcher} instance
+	 * @param sleeper the {@code Sleeper} instance
+	 */
+
+	public AnimationWaiter(Config config, Instrumentation inst, ViewFetcher viewFetcher, Sleeper sleeper) {
+		this.config = config;
+		this.inst = inst;
+		this.viewFetcher = viewFetcher;
+		this.sleeper = sleeper;
+	}
+
+	/**
+	 * 当前窗口是否有正在运行的动画
+	 * Returns whether a view animation or a property animation is running in the current windows.
+	 * Must not be called from the UI thread.
+	 *
+	 * @return {@code true} if an animation is running
+	 */
+
+	public boolean isAnimating() {
+		final boolean[] animating = new boolean[1];
+		inst.runOnMainSync(new Runnable() {
+			public void run() {
+				animating[0] = getRunningAnimatorCount() > 0 || hasRunningViewAnimation();
+			}
+		});
+		return animating[0];
+	}
+
+	/**
+	 * 等待动画结束
+	 * Waits until no animation is running.
+	 *
+	 * @param deadline the deadline of the wait
+	 * @return {@code true} if the animations have settled and {@code false} if some are still running at the deadline
+	 */
+
+	public boolean waitForAnimations(Deadline deadline) {
+		final String previousPhase = deadline.enter("animation");
+		try {
+			while(true){
+				deadline.poll();
+				if(!isAnimating()){
+					return true;
+				}
+				if(deadline.isExpired()){
+					Log.d(LOG_TAG, deadline.getOperation() + ": animations still running after " + deadline.elapsed() + " ms");
+					return false;
+				}
+				sleeper.sleep((int) Math.min(MINISLEEP, deadline.remaining()));
+			}
+		} finally {
+			deadline.enter(previousPhase);
+		}
+	}
+
+	/**
+	 * 开启Config.waitForAnimations时在操作前等待动画结束，使用默认的短超时
+	 * Waits until no animation is running if {@link Config#waitForAnimations} is set. Used before acting on
+	 * a view, so that its location is final.
+	 */
+
+	public void settleBeforeAction() {
+		if(config.waitForAnimations){
+			waitForAnimations(new Deadline(sleeper.getClock(), "waitForAnimations", Timeout.getSmallTimeout()));
+		}
+	}
+
+	/**
+	 * 修改本进程属性动画的时长比例，0表示动画直接跳到结束
+	 * Sets the duration scale of the property animations of the test process. {@code 0} makes animators
+	 * jump to their end values. The scale that was set before any instance changed it is restored when the
+	 * last instance calls {@link #restoreDurationScale()}. View animations are not affected.
+	 *
+	 * @param scale the duration scale
+	 * @return {@code true} if the scale could be set
+	 */
+
+	public boolean setDurationScale(float scale) {
+		resolve();
+		if(durationScaleField == null){
+			return false;
+		}
+		try {
+			synchronized (DURATION_SCALE_LOCK) {
+				if(!holdsDurationScale){
+					if(durationScaleReferences == 0){
+						originalDurationScale = durationScaleField.getFloat(null);
+					}
+					durationScaleReferences++;
+					holdsDurationScale = true;
+				}
+				durationScaleField.setFloat(null, scale);
+			}
+			return true;
+		} catch (IllegalAccessException e) {
+			Log.w(LOG_TAG, "Animator duration scale can not be set: " + e);
+			return false;
+		}
+	}
+
+	/**
+	 * 释放本实例对时长比例的修改，最后一个实例释放时恢复进程内第一次修改前的时长比例
+	 * Releases the change of this instance to the duration scale. When no other instance holds a change,
+	 * the scale that was set before the first change is restored. Has no effect if this instance did not
+	 * change the scale or has already released it.
+	 */
+
+	public void restoreDurationScale() {
+		synchronized (DURATION_SCALE_LOCK) {
+			if(!holdsDurationScale){
+				return;
+			}
+			holdsDurationScale = false;
+			if(--durationScaleReferences > 0){
+				return;
+			}
+			try {
+				durationScaleField.setFloat(null, originalDurationScale);
+			} catch (IllegalAccessException e) {
+				Log.w(LOG_TAG, "Animator duration scale can not be restored: " + e);
+			}
+		}
+	}
+
+	/**
+	 * 获取UI线程正在运行的属性动画数量，必须在UI线程调用
+	 * Returns the number of running property animations. Must be called on the UI thread.
+	 *
+	 * @return the number of running animators or {@code 0} if it can not be read
+	 */
+
+	private int getRunningAnimatorCount() {
+		resolve();
+		if(animationsCountMethod == null){
+			return 0;
+		}
+		try {
+			return (Integer) animationsCountMethod.invoke(null);
+		} catch (Exception e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * 是否有正在运行的view动画，在UI线程调用
+	 * Returns whether a view of the current windows runs a view animation. Called on the UI thread.
+	 *
+	 * @return {@code true} if a view animation is running
+	 */
+
+	private boolean hasRunningViewAnimation() {
+		final ArrayList<View> views = viewFetcher.getAllViews(false);
+		for(View view : views){
+			final Animation animation = view.getAnimation();
+			if(animation != null && animation.hasStarted() && !animation.hasEnded()){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 查找并缓存反射方法和字段，只执行一次，API 11以下没有属性动画
+	 * Looks up the hidden animator methods and fields once per process. Below API level 11 there are no
+	 * property animations and nothing is looked up.
+	 */
+
+	private static synchronized void resolve() {
+		if(resolved){
+			return;
+		}
+		resolved = true;
+		if(android.os.Build.VERSION.SDK_INT < 11){
+			return;
+		}
+		try {
+			animationsCountMethod = ValueAnimator.class.getDeclaredMethod("getCurrentAnimationsCount");
+			animationsCountMethod.setAccessible(true);
+		} catch (NoSuchMethodException e) {
+			Log.w(LOG_TAG, "Running animators can not be counted: " + e);
+		}
+		try {
+			durationScaleField = ValueAnimator.class.getDeclaredField("sDurationScale");
+			durationScaleField.setAccessible(true);
+		} catch (NoSuchFieldException e) {
+			Log.w(LOG_TAG, "Animator duration scale can not be changed: " + e);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.robotium.solo;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import android.os.AsyncTask;
+import android.util.Log;
+
+
+/**
+ * AsyncTask空闲资源，AsyncTask线程池和串行执行器都没有任务时空闲，字段通过反射读取并缓存
+ * Tracks the executors of {@link AsyncTask}: the thread pool and the serial executor that
+ * {@link AsyncTask#execute(Object...)} uses by default. They are not public API before API level 11, so
+ * they are read via reflection; the fields are looked up once and cached for the process.
+ * <br><br>
+ * If the fields can not be found on a platform version, the resource logs it once and reports idle.
+ *
+ */
+
+class AsyncTaskIdlingResource implements IdlingResource {
+	// 日志打印标签
+	private static final String LOG_TAG = "Robotium";
+	// 是否已查找反射字段
+	private static boolean resolved = false;
+	// AsyncTask线程池
+	private static ThreadPoolExecutor threadPoolExecutor;
+	// AsyncTask串行执行器
+	private static Executor serialExecutor;
+	// 串行执行器的排队任务字段
+	private static Field serialTasksField;
+	// 串行执行器的当前任务字段
+	private static Field serialActiveField;
+
+
+	public String getName() {
+		return "AsyncTask";
+	}
+
+	public boolean isIdleNow() {
+		resolve();
+		// 串行执行器先检查，任务从串行执行器交给线程池时不会漏掉
+		if(serialExecutor != null){
+			synchronized (serialExecutor) {
+				try {
+					final Collection<?> tasks = (Collection<?>) serialTasksField.get(serialExecutor);
+					if(serialActiveField.get(serialExecutor) != null || (tasks != null && !tasks.isEmpty())){
+						return false;
+					}
+				} catch (IllegalAccessException e) {
+					return true;
+				}
+			}
+		}
+		return threadPoolExecutor == null || ExecutorIdlingResource.isIdle(threadPoolExecutor);
+	}
+
+	/**
+	 * 查找并缓存反射字段，只执行一次
+	 * Looks up the executors and fields once per process.
+	 */
+
+	private static synchronized void resolve() {
+		if(resolved){
+			return;
+		}
+		resolved = true;
+		final Object pool = getStaticField(AsyncTask.class, "THREAD_POOL_EXECUTOR", "sExecutor");
+		if(pool instanceof ThreadPoolExecutor){
+			threadPoolExecutor = (ThreadPoolExecutor) pool;
+		}
+		final Object serial = getStaticField(AsyncTask.class, "SERIAL_EXECUTOR");
+		if(serial instanceof Executor){
+			try {
+				serialTasksField = serial.getClass().getDeclaredField("mTasks");
+				serialTasksField.setAccessible(true);
+				serialActiveField = serial.getClass().getDeclaredField("mActive");
+				serialActiveField.setAccessible(true);
+				serialExecutor = (Executor) serial;
+			} catch (NoSuchFieldException e) {
+				Log.w(LOG_TAG, "AsyncTask serial executor can not be tracked: " + e);
+			}
+		}
+		if(threadPoolExecutor == null){
+			Log.w(LOG_TAG, "AsyncTask thread pool can not be tracked");
+		}
+	}
+
+	/**
+	 * 读取第一个存在的静态字段
+	 * Returns the value of the first of the given static fields that exists.
+	 *
+	 * @param clazz the class declaring the fields
+	 * @param names the names of the fields, tried in order
+	 * @return the value or {@code null} if none of the fields exists
+	 */
+
+	private static Object getStaticField(Class<?> clazz, String... names) {
+		for(String name : names){
+			try {
+				final Field field = clazz.getDeclaredField(name);
+				field.setAccessible(true);
+				return field.get(null);
+			} catch (NoSuchFieldException ignored) {
+			} catch (IllegalAccessException ignored) {}
+		}
+		return null;
+	}
+}
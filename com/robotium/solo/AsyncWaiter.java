@@ -0,0 +1,390 @@
+package com.robotium.solo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import android.app.Activity;
+import android.view.View;
+import android.widget.TextView;
+
+
+/**
+ * 异步等待工具类，所有异步等待共用一个调度线程，每个周期只获取一次界面快照
+ * Contains non-blocking wait methods. Examples are: waitForText(), waitForView(), waitForActivity().
+ * All pending waits are driven by one task on the shared scheduler and evaluated against
+ * a single snapshot of the screen per tick.
+ * <br><br>
+ * Timeouts are measured with the {@link Clock}; the ticks themselves are scheduled in real time by the
+ * shared scheduler.
+ *
+ */
+
+class AsyncWaiter {
+	// activity操作工具类
+	private final ActivityUtils activityUtils;
+	// View查找工具类
+	private final ViewFetcher viewFetcher;
+	// 所有未完成的等待
+	private final List<WaitFuture> pendingWaits;
+	// 调度周期100ms
+	private final int TICK = 100;
+	// 共享调度器
+	private final SharedScheduler scheduler;
+	// 时钟，用于计算超时
+	private final Clock clock;
+	// 周期检查任务
+	private ScheduledFuture<?> tickTask;
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param activityUtils the {@code ActivityUtils} instance
+	 * @param viewFetcher the {@code ViewFetcher} instance
+	 * @param scheduler the {@code SharedScheduler} instance
+	 * @param clock the clock the timeouts are measured with
+	 */
+
+	public AsyncWaiter(ActivityUtils activityUtils, ViewFetcher viewFetcher, SharedScheduler scheduler, Clock clock) {
+		this.activityUtils = activityUtils;
+		this.viewFetcher = viewFetcher;
+		this.scheduler = scheduler;
+		this.clock = clock;
+		pendingWaits = new ArrayList<WaitFuture>();
+	}
+
+	/**
+	 * 异步等待指定text内容出现expectedMinimumNumberOfMatches次
+	 * Waits for a text to be shown without blocking the calling thread.
+	 *
+	 * @param regex the text that needs to be shown, specified as a regular expression
+	 * @param expectedMinimumNumberOfMatches the minimum number of matches of text that must be shown. {@code 0} means any number of matches
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return a {@code Future} that completes with {@code true} if the text is found and {@code false} if it is not found before the timeout
+	 */
+
+	public Future<Boolean> waitForText(final String regex, int expectedMinimumNumberOfMatches, long timeout) {
+		// 期望次数小于1则修正为1
+		final int matches = expectedMinimumNumberOfMatches < 1 ? 1 : expectedMinimumNumberOfMatches;
+
+		return submit(new WaitFuture(timeout) {
+			@Override
+			boolean isSatisfied(Snapshot snapshot) {
+				Set<TextView> uniqueTextViews = new HashSet<TextView>();
+				for(TextView textView : snapshot.getViews(TextView.class)){
+					if(RobotiumUtils.getNumberOfMatches(regex, textView, uniqueTextViews) >= matches){
+						return true;
+					}
+				}
+				return false;
+			}
+		});
+	}
+
+	/**
+	 * 异步等待指定class类型的第index个view出现
+	 * Waits for a view to be shown without blocking the calling thread.
+	 *
+	 * @param viewClass the {@code View} class to wait for
+	 * @param index the index of the view that is expected to be shown
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return a {@code Future} that completes with {@code true} if the view is shown and {@code false} if it is not shown before the timeout
+	 */
+
+	public <T extends View> Future<Boolean> waitForView(final Class<T> viewClass, final int index, long timeout) {
+		return submit(new WaitFuture(timeout) {
+			@Override
+			boolean isSatisfied(Snapshot snapshot) {
+				return snapshot.getViews(viewClass).size() > index;
+			}
+		});
+	}
+
+	/**
+	 * 异步等待指定名字的activity出现
+	 * Waits for the given {@link Activity} without blocking the calling thread.
+	 *
+	 * @param name the name of the {@code Activity} to wait for e.g. {@code "MyActivity"}
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return a {@code Future} that completes with {@code true} if the {@code Activity} appears before the timeout and {@code false} if it does not
+	 */
+
+	public Future<Boolean> waitForActivity(final String name, long timeout) {
+		return submit(new WaitFuture(timeout) {
+			@Override
+			boolean isSatisfied(Snapshot snapshot) {
+				Activity currentActivity = snapshot.getCurrentActivity();
+				return currentActivity != null && currentActivity.getClass().getSimpleName().equals(name);
+			}
+		});
+	}
+
+	/**
+	 * 异步等待指定class类型的activity出现
+	 * Waits for the given {@link Activity} without blocking the calling thread.
+	 *
+	 * @param activityClass the class of the {@code Activity} to wait for
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return a {@code Future} that completes with {@code true} if the {@code Activity} appears before the timeout and {@code false} if it does not
+	 */
+
+	public Future<Boolean> waitForActivity(final Class<? extends Activity> activityClass, long timeout) {
+		return submit(new WaitFuture(timeout) {
+			@Override
+			boolean isSatisfied(Snapshot snapshot) {
+				Activity currentActivity = snapshot.getCurrentActivity();
+				return currentActivity != null && currentActivity.getClass().equals(activityClass);
+			}
+		});
+	}
+
+	/**
+	 * 异步等待自定义的判定条件满足
+	 * Waits for a condition to be satisfied without blocking the calling thread.
+	 *
+	 * @param condition the condition to wait for
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return a {@code Future} that completes with {@code true} if the condition is satisfied and {@code false} if it is not satisfied before the timeout
+	 */
+
+	public Future<Boolean> waitForCondition(final Condition condition, long timeout) {
+		return submit(new WaitFuture(timeout) {
+			@Override
+			boolean isSatisfied(Snapshot snapshot) {
+				return condition.isSatisfied();
+			}
+		});
+	}
+
+	/**
+	 * 取消所有未完成的等待并停止周期检查任务
+	 * Cancels all pending waits and stops ticking.
+	 */
+
+	public void shutdown() {
+		ArrayList<WaitFuture> waitsToCancel;
+		synchronized (pendingWaits) {
+			waitsToCancel = new ArrayList<WaitFuture>(pendingWaits);
+			pendingWaits.clear();
+			if(tickTask != null){
+				tickTask.cancel(false);
+				tickTask = null;
+			}
+		}
+		for(WaitFuture wait : waitsToCancel){
+			wait.cancel(false);
+		}
+	}
+
+	/**
+	 * 加入等待队列，必要时启动周期检查任务
+	 * Adds a wait to the pending waits and starts ticking if needed.
+	 *
+	 * @param wait the wait to add
+	 * @return the added wait
+	 */
+
+	private Future<Boolean> submit(WaitFuture wait) {
+		synchronized (pendingWaits) {
+			pendingWaits.add(wait);
+			if(tickTask == null){
+				tickTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+					public void run() {
+						tick();
+					}
+				}, 0, TICK);
+			}
+		}
+		return wait;
+	}
+
+	/**
+	 * 使用同一个界面快照检查所有未完成的等待，无等待时停止周期任务
+	 * Evaluates all pending waits against one shared snapshot. Stops ticking when nothing is pending.
+	 */
+
+	private void tick() {
+		ArrayList<WaitFuture> waitsToCheck;
+		synchronized (pendingWaits) {
+			waitsToCheck = new ArrayList<WaitFuture>(pendingWaits);
+		}
+		final Snapshot snapshot = new Snapshot();
+		final long now = clock.uptimeMillis();
+
+		for(WaitFuture wait : waitsToCheck){
+			if(wait.isDone()){
+				continue;
+			}
+			try{
+				if(wait.isSatisfied(snapshot)){
+					wait.complete(Boolean.TRUE, null);
+				}
+				else if(now >= wait.endTime){
+					wait.complete(Boolean.FALSE, null);
+				}
+			}catch(Throwable e){
+				wait.complete(null, e);
+			}
+		}
+
+		synchronized (pendingWaits) {
+			for(WaitFuture wait : waitsToCheck){
+				if(wait.isDone()){
+					pendingWaits.remove(wait);
+				}
+			}
+			if(pendingWaits.isEmpty() && tickTask != null){
+				tickTask.cancel(false);
+				tickTask = null;
+			}
+		}
+	}
+
+	/**
+	 * 单个周期内共享的界面快照，按需获取且只获取一次
+	 * A lazily taken snapshot of the screen that is shared by all waits evaluated in one tick.
+	 */
+
+	private class Snapshot {
+		// 当前所有可见的view
+		private ArrayList<View> views;
+		// 当前activity
+		private Activity currentActivity;
+		// 是否已获取activity
+		private boolean activityFetched = false;
+
+		/**
+		 * 获取快照中指定class类型的可见view
+		 * Returns the visible views of the given class.
+		 *
+		 * @param classToFilterBy the class to filter by
+		 * @return the visible views of the given class
+		 */
+
+		public <T extends View> ArrayList<T> getViews(Class<T> classToFilterBy) {
+			if(views == null){
+				views = RobotiumUtils.removeInvisibleViews(viewFetcher.getAllViews(true));
+			}
+			return RobotiumUtils.filterViews(classToFilterBy, views);
+		}
+
+		/**
+		 * 获取快照中的当前activity
+		 * Returns the current activity.
+		 *
+		 * @return the current activity
+		 */
+
+		public Activity getCurrentActivity() {
+			if(!activityFetched){
+				currentActivity = activityUtils.getCurrentActivity(false, false);
+				activityFetched = true;
+			}
+			return currentActivity;
+		}
+	}
+
+	/**
+	 * 异步等待的句柄，超时完成为false，可取消
+	 * A handle to a pending wait. Completes with {@code false} when the timeout expires and can be cancelled.
+	 */
+
+	private abstract class WaitFuture implements Future<Boolean> {
+		// 超时时间点
+		final long endTime;
+		// 完成信号
+		private final CountDownLatch done = new CountDownLatch(1);
+		// 等待结果
+		private volatile Boolean result;
+		// 检查条件时抛出的异常
+		private volatile Throwable failure;
+		// 是否已取消
+		private volatile boolean cancelled = false;
+
+		WaitFuture(long timeout) {
+			this.endTime = clock.uptimeMillis() + timeout;
+		}
+
+		/**
+		 * 检查等待条件是否满足
+		 * Checks whether this wait is satisfied.
+		 *
+		 * @param snapshot the snapshot shared by this tick
+		 * @return {@code true} if satisfied
+		 */
+
+		abstract boolean isSatisfied(Snapshot snapshot);
+
+		/**
+		 * 设置结果，只有第一次调用生效
+		 * Completes this wait. Only the first call has an effect.
+		 *
+		 * @param value the result
+		 * @param throwable the failure or {@code null}
+		 * @return {@code true} if this call completed the wait
+		 */
+
+		synchronized boolean complete(Boolean value, Throwable throwable) {
+			if(done.getCount() == 0){
+				return false;
+			}
+			result = value;
+			failure = throwable;
+			done.countDown();
+			return true;
+		}
+
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			synchronized (this) {
+				if(done.getCount() == 0){
+					return false;
+				}
+				cancelled = true;
+				done.countDown();
+			}
+			synchronized (pendingWaits) {
+				pendingWaits.remove(this);
+			}
+			return true;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		public boolean isDone() {
+			return done.getCount() == 0;
+		}
+
+		public Boolean get() throws InterruptedException, ExecutionException {
+			done.await();
+			return getResult();
+		}
+
+		public Boolean get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			if(!done.await(timeout, unit)){
+				throw new TimeoutException();
+			}
+			return getResult();
+		}
+
+		private Boolean getResult() throws ExecutionException {
+			if(cancelled){
+				throw new CancellationException();
+			}
+			if(failure != null){
+				throw new ExecutionException(failure);
+			}
+			return result;
+		}
+	}
+}
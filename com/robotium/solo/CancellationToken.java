@@ -0,0 +1,88 @@
+package com.robotium.solo;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+
+/**
+ * 取消标记类，取消后所有阻塞中的等待被中断，之后的等待立即抛出CancellationException
+ * Signals that the operations of a {@code Solo} instance should stop. Threads that are blocked while
+ * the token is cancelled are interrupted, and every later check throws a {@link CancellationException}.
+ *
+ */
+
+class CancellationToken {
+	// 是否已取消
+	private volatile boolean cancelled = false;
+	// 当前阻塞中的线程
+	private final Set<Thread> blockedThreads = new HashSet<Thread>();
+
+
+	/**
+	 * 取消，并中断所有阻塞中的线程
+	 * Cancels this token and interrupts all threads that are currently blocked on it.
+	 */
+
+	public void cancel() {
+		synchronized (blockedThreads) {
+			cancelled = true;
+			for(Thread thread : blockedThreads){
+				thread.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * 是否已取消
+	 * Returns whether this token has been cancelled.
+	 *
+	 * @return {@code true} if cancelled
+	 */
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * 已取消或当前线程已被中断时抛出CancellationException，中断标记保持不变
+	 * Throws if this token has been cancelled or the current thread has been interrupted.
+	 * The interrupt flag of the thread is left as it is.
+	 *
+	 * @throws CancellationException if cancelled or interrupted
+	 */
+
+	public void throwIfCancelled() {
+		if(cancelled){
+			throw new CancellationException("Robotium has been shut down");
+		}
+		if(Thread.currentThread().isInterrupted()){
+			throw new CancellationException("Interrupted");
+		}
+	}
+
+	/**
+	 * 登记当前线程进入阻塞，取消时会被中断
+	 * Registers the current thread as blocked, so that it is interrupted when this token is cancelled.
+	 *
+	 * @throws CancellationException if already cancelled or interrupted
+	 */
+
+	public void block() {
+		synchronized (blockedThreads) {
+			throwIfCancelled();
+			blockedThreads.add(Thread.currentThread());
+		}
+	}
+
+	/**
+	 * 登记当前线程结束阻塞
+	 * Unregisters the current thread after it stopped blocking.
+	 */
+
+	public void unblock() {
+		synchronized (blockedThreads) {
+			blockedThreads.remove(Thread.currentThread());
+		}
+	}
+}
@@ -47,6 +47,10 @@ class Clicker {
 	private final WebUtils webUtils;
 	// 弹框类操作工具类
 	private final DialogUtils dialogUtils;
+	// 动画等待工具类
+	private final AnimationWaiter animationWaiter;
+	// 触摸和按键事件注入工具类
+	private final EventInjector eventInjector;
 	// 100ms
 	private final int MINISLEEP = 100;
 	// 200ms
@@ -67,9 +71,11 @@ class Clicker {
 	 * @param waiter the {@code Waiter} instance
 	 * @param webUtils the {@code WebUtils} instance
 	 * @param dialogUtils the {@code DialogUtils} instance
+	 * @param animationWaiter the {@code AnimationWaiter} instance
+	 * @param eventInjector the {@code EventInjector} instance
 	 */
 
-	public Clicker(ActivityUtils activityUtils, ViewFetcher viewFetcher, Sender sender, Instrumentation inst, Sleeper sleeper, Waiter waiter, WebUtils webUtils, DialogUtils dialogUtils) {
+	public Clicker(ActivityUtils activityUtils, ViewFetcher viewFetcher, Sender sender, Instrumentation inst, Sleeper sleeper, Waiter waiter, WebUtils webUtils, DialogUtils dialogUtils, AnimationWaiter animationWaiter, EventInjector eventInjector) {
 
 		this.activityUtils = activityUtils;
 		this.viewFetcher = viewFetcher;
@@ -79,6 +85,8 @@ class Clicker {
 		this.waiter = waiter;
 		this.webUtils = webUtils;
 		this.dialogUtils = dialogUtils;
+		this.animationWaiter = animationWaiter;
+		this.eventInjector = eventInjector;
 	}
 
 	/**
@@ -92,6 +100,8 @@ class Clicker {
 	 */
 
 	public void clickOnScreen(float x, float y) {
+		// 等待应用空闲
+		waiter.syncWithIdlingResources();
 		// 设置标记位，标识点击事件发送还未成功
 		boolean successfull = false;
 		// 设置重试计数器
@@ -109,8 +119,8 @@ class Clicker {
 					MotionEvent.ACTION_UP, x, y, 0);
 			try{
 				// 发送点击事件
-				inst.sendPointerSync(event);
-				inst.sendPointerSync(event2);
+				eventInjector.inject(event, false);
+				eventInjector.inject(event2, true);
 				// 事件发送未抛异常，则标记为成功
 				successfull = true;
 				// 等待100ms
@@ -141,6 +151,8 @@ class Clicker {
 	 */
 
 	public void clickLongOnScreen(float x, float y, int time) {
+		// 等待应用空闲
+		waiter.syncWithIdlingResources();
 		// 设置标记位，标识点击事件发送还未成功
 		boolean successfull = false;
 		// 设置重试计数器
@@ -154,7 +166,7 @@ class Clicker {
 		// 如果事件发送失败，重试少于10次，则继续重试
 		while(!successfull && retry < 10) {
 			try{
-				inst.sendPointerSync(event);
+				eventInjector.inject(event, true);
 				// 事件发送成功，标记位设置为true
 				successfull = true;
 			}catch(SecurityException e){
@@ -171,7 +183,7 @@ class Clicker {
 		// 构造一个移动事件,相对原先按下坐标滑动1个像素
 		eventTime = SystemClock.uptimeMillis();
 		event = MotionEvent.obtain(downTime, eventTime, MotionEvent.ACTION_MOVE, x + 1.0f, y + 1.0f, 0);
-		inst.sendPointerSync(event);
+		eventInjector.inject(event, true);
 		// 如果设置了长按事件，且时间大于0，则等待相应的时间
 		if(time > 0)
 			sleeper.sleep(time);
@@ -181,7 +193,7 @@ class Clicker {
 		// 构造松开事件
 		eventTime = SystemClock.uptimeMillis();
 		event = MotionEvent.obtain(downTime, eventTime, MotionEvent.ACTION_UP, x, y, 0);
-		inst.sendPointerSync(event);
+		eventInjector.inject(event, true);
 		// 等待500ms
 		sleeper.sleep();
 	}
@@ -215,6 +227,10 @@ class Clicker {
 		// 如果传入null参数，给出异常提示
 		if(view == null)
 			Assert.fail("View is null and can therefore not be clicked!");
+		// 等待应用空闲后再计算坐标，避免view在忙碌期间移动
+		waiter.syncWithIdlingResources();
+		// 等待动画结束，避免点击移动中的view
+		animationWaiter.settleBeforeAction();
 		// 获取view的xy坐标
 		float[] xyToClick = getClickCoordinates(view);
 		// 获取x坐标
@@ -343,7 +359,7 @@ class Clicker {
 		dialogUtils.waitForDialogToOpen(Timeout.getSmallTimeout(), true);
 		try{
 			// 发送向下 按键 事件
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_DOWN);
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_DOWN);
 		}catch(SecurityException e){
 			Assert.fail("Can not press the context menu!");
 		}
@@ -352,10 +368,10 @@ class Clicker {
 		{	// 等待300ms
 			sleeper.sleepMini();
 			// 发送向下 按键事件
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_DOWN);
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_DOWN);
 		}
 		// 发送确认 事件
-		inst.sendKeyDownUpSync(KeyEvent.KEYCODE_ENTER);
+		eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_ENTER);
 	}
 
 	/**
@@ -560,14 +576,18 @@ class Clicker {
 	 */
 
 	public void clickOnText(String regex, boolean longClick, int match, boolean scroll, int time) {
+		// 等待、查找和滑动共用同一个超时
+		final Deadline deadline = waiter.newDeadline("clickOnText '" + regex + "'", Timeout.getSmallTimeout());
 		// 获取指定条件的TextView
-		TextView textToClick = waiter.waitForText(regex, match, Timeout.getSmallTimeout(), scroll, true, false);
+		TextView textToClick = waiter.waitForText(TextView.class, regex, match, deadline, scroll, true);
 		// 如果找到对应  TextView，发送相关点击事件
 		if (textToClick != null) {
 			clickOnScreen(textToClick, longClick, time);
 		}
 		// 如果没找到
 		else {
+			// 打印耗时报告
+			Log.d(LOG_TAG, deadline.report());
 			// 设置了match 大于1，那么提示异常信息,并退出
 			if(match > 1){
 				Assert.fail(match + " matches of text string: '" + regex +  "' are not found!");
@@ -597,7 +617,7 @@ class Clicker {
 
 	public <T extends TextView> void clickOn(Class<T> viewClass, String nameRegex) {
 		// 查找指定类型的view
-		T viewToClick = (T) waiter.waitForText(viewClass, nameRegex, 0, Timeout.getSmallTimeout(), true, true, false);
+		T viewToClick = (T) waiter.waitForText(viewClass, nameRegex, 0, waiter.newDeadline("clickOn '" + nameRegex + "'", Timeout.getSmallTimeout()), true, true);
 		// 找到了，发送点击事件
 		if (viewToClick != null) {
 			clickOnScreen(viewToClick);
@@ -654,8 +674,8 @@ class Clicker {
 	 */
 
 	public ArrayList<TextView> clickInList(int line, int index, boolean longClick, int time) {
-		// 设置超时时间点
-		final long endTime = SystemClock.uptimeMillis() + Timeout.getSmallTimeout();
+		// 查找列表、等待行出现共用同一个超时
+		final Deadline deadline = waiter.newDeadline("clickInList " + line, Timeout.getSmallTimeout());
 		// 设置index,因排序从0开始，因此减1
 		int lineIndex = line - 1;
 	    // 异常情况修正回0
@@ -663,24 +683,23 @@ class Clicker {
 			lineIndex = 0;
 		// 获取指定的第index个列表
 		ArrayList<View> views = new ArrayList<View>();
-		final AbsListView absListView = waiter.waitForAndGetView(index, AbsListView.class);
+		final AbsListView absListView = waiter.waitForAndGetView(index, AbsListView.class, deadline);
 		// 未找到，提示异常
 		if(absListView == null)
 			Assert.fail("ListView is null!");
 		// 如果设置的index大于列表中的内容，还未超时，那么不断重试，存在列表中内容不断增加的情况
 		while(lineIndex > absListView.getChildCount()){
-			// 检查是否超时
-			final boolean timedOut = SystemClock.uptimeMillis() > endTime;
 			// 超时提示异常
-			if (timedOut){
+			if (deadline.isExpired()){
 				int numberOfLines = absListView.getChildCount();
+				Log.d(LOG_TAG, deadline.report());
 				Assert.fail("Can not click on line number " + line + " as there are only " + numberOfLines + " lines available");
 			}
 			// 等待500ms
-			sleeper.sleep();
+			sleeper.sleep(deadline);
 		}
 		// 找到列表中指定的列
-		View view = getViewOnListLine(absListView, lineIndex);
+		View view = getViewOnListLine(absListView, lineIndex, deadline);
 		// 找到
 		if(view != null){
 			// 获取所有指定条件的View
@@ -702,24 +721,22 @@ class Clicker {
 	 * 
 	 * @param absListView the ListView to use
 	 * @param lineIndex the line index of the View
+	 * @param deadline the deadline shared with the caller
 	 * @return the View located at a specified list line
 	 */
 
-	private View getViewOnListLine(AbsListView absListView, int lineIndex){
-		// 设置超时时间点
-		final long endTime = SystemClock.uptimeMillis() + Timeout.getSmallTimeout();
+	private View getViewOnListLine(AbsListView absListView, int lineIndex, Deadline deadline){
 		// 获取指定行的 View
 		View view = absListView.getChildAt(lineIndex);
 		// 获取不到,还未超时，继续重试
 		while(view == null){
-			// 检查是否超时
-			final boolean timedOut = SystemClock.uptimeMillis() > endTime;
 			// 超时提示异常
-			if (timedOut){
+			if (deadline.isExpired()){
+				Log.d(LOG_TAG, deadline.report());
 				Assert.fail("View is null and can therefore not be clicked!");
 			}
 			// 等500ms
-			sleeper.sleep();
+			sleeper.sleep(deadline);
 			// 重试获取view
 			view = absListView.getChildAt(lineIndex);
 		}
@@ -0,0 +1,63 @@
+package com.robotium.solo;
+
+import android.os.SystemClock;
+
+
+/**
+ * 时钟接口，所有等待循环通过它获取时间和等待，便于在JVM上用虚拟时间测试
+ * The source of time for all wait loops. Waits read the time and sleep through a {@code Clock} so that
+ * the timeout logic can be driven by a {@link VirtualClock} instead of real time.
+ *
+ */
+
+interface Clock {
+
+	/**
+	 * 系统时钟，使用SystemClock.uptimeMillis()和Thread.sleep()
+	 * The real clock, backed by {@link SystemClock#uptimeMillis()} and {@link Thread#sleep(long)}.
+	 */
+	Clock SYSTEM = new Clock() {
+		public long uptimeMillis() {
+			return SystemClock.uptimeMillis();
+		}
+
+		public void sleep(long time) throws InterruptedException {
+			Thread.sleep(time);
+		}
+
+		public void await(Object monitor, long time) throws InterruptedException {
+			monitor.wait(time);
+		}
+	};
+
+	/**
+	 * 获取开机以来的毫秒数
+	 * Returns the milliseconds since boot, not counting time spent in deep sleep.
+	 *
+	 * @return the current time in milliseconds
+	 */
+
+	long uptimeMillis();
+
+	/**
+	 * 等待指定的毫秒数
+	 * Sleeps for the given time.
+	 *
+	 * @param time the length of the sleep in milliseconds
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+
+	void sleep(long time) throws InterruptedException;
+
+	/**
+	 * 在给定对象上等待通知，最多等待指定的毫秒数，调用方必须持有该对象的锁
+	 * Waits on the given monitor until it is notified or the given time has passed. The caller must hold
+	 * the monitor. The real clock blocks in {@link Object#wait(long)}; a virtual clock advances its time instead.
+	 *
+	 * @param monitor the monitor to wait on
+	 * @param time the maximum time to wait in milliseconds, greater than 0
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+
+	void await(Object monitor, long time) throws InterruptedException;
+}
@@ -0,0 +1,93 @@
+package com.robotium.solo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import android.os.SystemClock;
+
+
+/**
+ * 计数型空闲资源，开始工作时increment()，结束时decrement()，计数为0时空闲
+ * An {@link IdlingResource} backed by a counter. Call {@link #increment()} when work starts and
+ * {@link #decrement()} when it is done; the resource is idle while the counter is 0.
+ * <br><br>
+ * Example usage, in the application or in the test:<br>
+ * {@code CountingIdlingResource network = new CountingIdlingResource("network");}<br>
+ * {@code IdlingRegistry.register(network);}
+ *
+ */
+
+public class CountingIdlingResource implements IdlingResource {
+	// 资源名称
+	private final String name;
+	// 未完成的工作数
+	private final AtomicInteger counter = new AtomicInteger();
+	// 最近一次从空闲变为忙碌的时间
+	private volatile long busySince = 0;
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param name the name of the resource, used in diagnostics
+	 */
+
+	public CountingIdlingResource(String name) {
+		if(name == null){
+			throw new IllegalArgumentException("The name can not be null");
+		}
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isIdleNow() {
+		return counter.get() == 0;
+	}
+
+	/**
+	 * 开始一项工作，资源变为忙碌
+	 * Marks the start of a unit of work. The resource is busy until every started unit has been decremented.
+	 */
+
+	public void increment() {
+		if(counter.getAndIncrement() == 0){
+			busySince = SystemClock.uptimeMillis();
+		}
+	}
+
+	/**
+	 * 结束一项工作，计数为0时资源变为空闲
+	 * Marks the end of a unit of work.
+	 *
+	 * @throws IllegalStateException if called more often than {@link #increment()}
+	 */
+
+	public void decrement() {
+		if(counter.decrementAndGet() < 0){
+			counter.incrementAndGet();
+			throw new IllegalStateException("Counter of " + name + " has been decremented more often than incremented");
+		}
+	}
+
+	/**
+	 * 获取未完成的工作数
+	 * Returns the number of units of work that have not been decremented yet.
+	 *
+	 * @return the counter
+	 */
+
+	public int getCount() {
+		return counter.get();
+	}
+
+	@Override
+	public String toString() {
+		final int count = counter.get();
+		if(count == 0){
+			return name + " (idle)";
+		}
+		return name + " (" + count + " busy for " + (SystemClock.uptimeMillis() - busySince) + " ms)";
+	}
+}
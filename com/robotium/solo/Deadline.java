@@ -0,0 +1,255 @@
+package com.robotium.solo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * 截止时间类，嵌套的等待、查找、滑动操作共用同一个总超时，并记录各阶段的耗时
+ * Represents the overall time budget of one operation. Nested wait, search and scroll loops
+ * consume the same budget and record where the time went.
+ *
+ */
+
+class Deadline {
+	// 时钟
+	private final Clock clock;
+	// 操作名，用于日志输出
+	private final String operation;
+	// 超时学习的键，未学习时为null
+	private final String key;
+	// 开始时间点
+	private final long startTime;
+	// 截止时间点
+	private final long endTime;
+	// 各阶段耗时，按首次出现的顺序
+	private final Map<String, Long> phases;
+	// 当前所处阶段
+	private String currentPhase;
+	// 当前阶段开始时间点
+	private long phaseStartTime;
+	// 未设置阶段时的默认阶段名
+	private static final String DEFAULT_PHASE = "other";
+	// 已轮询次数
+	private int polls = 0;
+	// 各类事件的次数，例如遍历界面和滑动的次数
+	private final Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param clock the clock the budget is measured with
+	 * @param operation the name of the operation, used when reporting
+	 * @param timeout the overall budget in milliseconds
+	 */
+
+	public Deadline(Clock clock, String operation, long timeout) {
+		this(clock, operation, timeout, null);
+	}
+
+	/**
+	 * 构造函数，带超时学习的键
+	 * Constructs this object.
+	 *
+	 * @param clock the clock the budget is measured with
+	 * @param operation the name of the operation, used when reporting
+	 * @param timeout the overall budget in milliseconds
+	 * @param key the key the outcome is learned under or {@code null}
+	 */
+
+	public Deadline(Clock clock, String operation, long timeout, String key) {
+		this.clock = clock;
+		this.operation = operation;
+		this.key = key;
+		this.startTime = clock.uptimeMillis();
+		this.endTime = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : startTime + timeout;
+		this.phases = new LinkedHashMap<String, Long>();
+		this.currentPhase = DEFAULT_PHASE;
+		this.phaseStartTime = startTime;
+	}
+
+	/**
+	 * 构造一个无超时限制的截止时间，只用于记录耗时
+	 * Returns a deadline without a budget. Used by callers that do not have a timeout and only want the accounting.
+	 *
+	 * @param clock the clock the time is measured with
+	 * @param operation the name of the operation, used when reporting
+	 * @return an unbounded deadline
+	 */
+
+	public static Deadline unbounded(Clock clock, String operation) {
+		return new Deadline(clock, operation, Long.MAX_VALUE);
+	}
+
+	/**
+	 * 获取剩余时间，已超时返回0
+	 * Returns the remaining budget.
+	 *
+	 * @return the remaining time in milliseconds, never negative
+	 */
+
+	public long remaining() {
+		final long remaining = endTime - clock.uptimeMillis();
+		return remaining > 0 ? remaining : 0;
+	}
+
+	/**
+	 * 检查是否已超时
+	 * Checks if the budget is used up.
+	 *
+	 * @return {@code true} if the deadline has passed
+	 */
+
+	public boolean isExpired() {
+		return clock.uptimeMillis() > endTime;
+	}
+
+	/**
+	 * 获取已用时间
+	 * Returns the time spent since this deadline was created.
+	 *
+	 * @return the elapsed time in milliseconds
+	 */
+
+	public long elapsed() {
+		return clock.uptimeMillis() - startTime;
+	}
+
+	/**
+	 * 记录一次轮询，返回之前已轮询的次数
+	 * Records a poll and returns the number of polls made before it.
+	 *
+	 * @return the number of earlier polls, {@code 0} for the first poll
+	 */
+
+	public synchronized int poll() {
+		return polls++;
+	}
+
+	/**
+	 * 获取已轮询次数
+	 * Returns the number of polls made so far.
+	 *
+	 * @return the number of polls
+	 */
+
+	public synchronized int getPolls() {
+		return polls;
+	}
+
+	/**
+	 * 记录一次指定事件，例如一次界面遍历或一次滑动
+	 * Records one occurrence of the given event, e.g. {@code "search"} for a traversal of the view
+	 * hierarchy or {@code "scroll"} for a scroll step.
+	 *
+	 * @param event the event to count
+	 */
+
+	public synchronized void count(String event) {
+		final Integer soFar = counts.get(event);
+		counts.put(event, soFar == null ? 1 : soFar + 1);
+	}
+
+	/**
+	 * 获取指定事件的次数
+	 * Returns the number of occurrences of the given event.
+	 *
+	 * @param event the event
+	 * @return the number of occurrences, {@code 0} if it never occurred
+	 */
+
+	public synchronized int getCount(String event) {
+		final Integer count = counts.get(event);
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * 获取总超时时间
+	 * Returns the overall budget.
+	 *
+	 * @return the budget in milliseconds or {@code Long.MAX_VALUE} if unbounded
+	 */
+
+	public long getTimeout() {
+		return endTime == Long.MAX_VALUE ? Long.MAX_VALUE : endTime - startTime;
+	}
+
+	/**
+	 * 获取操作名
+	 * Returns the name of the operation.
+	 *
+	 * @return the name of the operation
+	 */
+
+	public String getOperation() {
+		return operation;
+	}
+
+	/**
+	 * 获取超时学习的键
+	 * Returns the key the outcome of this deadline is learned under.
+	 *
+	 * @return the key or {@code null}
+	 */
+
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * 进入指定阶段，之后的耗时计入该阶段，返回之前的阶段以便恢复
+	 * Switches to the given phase. Time from now on is charged to it until the next switch.
+	 *
+	 * @param phase the phase to switch to, e.g. {@code "search"} or {@code "scroll"}
+	 * @return the previous phase, to be restored with another call to this method
+	 */
+
+	public synchronized String enter(String phase) {
+		final long now = clock.uptimeMillis();
+		final Long soFar = phases.get(currentPhase);
+		phases.put(currentPhase, (soFar == null ? 0 : soFar) + (now - phaseStartTime));
+		final String previousPhase = currentPhase;
+		currentPhase = phase;
+		phaseStartTime = now;
+		return previousPhase;
+	}
+
+	/**
+	 * 输出耗时报告，例如 clickOnText used 10012 of 10000 ms (sleep 6500 ms, search 2100 ms, scroll 1412 ms)
+	 * Returns a report of where the time went.
+	 *
+	 * @return the report
+	 */
+
+	public synchronized String report() {
+		// 先结算当前阶段
+		enter(currentPhase);
+		StringBuilder report = new StringBuilder();
+		report.append(operation).append(" used ").append(elapsed());
+		if(endTime != Long.MAX_VALUE){
+			report.append(" of ").append(endTime - startTime);
+		}
+		report.append(" ms");
+		// 只输出耗时不为0的阶段，全部为0时不输出括号
+		boolean first = true;
+		for(Map.Entry<String, Long> phase : phases.entrySet()){
+			if(phase.getValue() == 0){
+				continue;
+			}
+			report.append(first ? " (" : ", ");
+			report.append(phase.getKey()).append(' ').append(phase.getValue()).append(" ms");
+			first = false;
+		}
+		if(!first){
+			report.append(')');
+		}
+		return report.toString();
+	}
+
+	@Override
+	public String toString() {
+		return report();
+	}
+}
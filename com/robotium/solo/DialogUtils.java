@@ -3,7 +3,6 @@ package com.robotium.solo;
 
 import android.app.Activity;
 import android.content.Context;
-import android.os.SystemClock;
 import android.view.ContextThemeWrapper;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
@@ -25,6 +24,8 @@ class DialogUtils {
 	private final ViewFetcher viewFetcher;
 	// 等待工具类
 	private final Sleeper sleeper;
+	// 窗口监听工具类
+	private final WindowWatcher windowWatcher;
 	// 1s
 	private final static int TIMEOUT_DIALOG_TO_CLOSE = 1000;
 	// 200ms
@@ -37,12 +38,14 @@ class DialogUtils {
 	 * @param activityUtils the {@code ActivityUtils} instance
 	 * @param viewFetcher the {@code ViewFetcher} instance
 	 * @param sleeper the {@code Sleeper} instance
+	 * @param windowWatcher the {@code WindowWatcher} instance
 	 */
 
-	public DialogUtils(ActivityUtils activityUtils, ViewFetcher viewFetcher, Sleeper sleeper) {
+	public DialogUtils(ActivityUtils activityUtils, ViewFetcher viewFetcher, Sleeper sleeper, WindowWatcher windowWatcher) {
 		this.activityUtils = activityUtils;
 		this.viewFetcher = viewFetcher;
 		this.sleeper = sleeper;
+		this.windowWatcher = windowWatcher;
 	}
 
 
@@ -55,12 +58,16 @@ class DialogUtils {
 	 */
 
 	public boolean waitForDialogToClose(long timeout) {
+		// 已安装窗口监听时由窗口变化驱动
+		if(windowWatcher.isInstalled()){
+			return waitForDialogToCloseOnWindowChange(timeout);
+		}
 		// 先等待弹框出现
 		waitForDialogToOpen(TIMEOUT_DIALOG_TO_CLOSE, false);
 		// 设置超时时间
-		final long endTime = SystemClock.uptimeMillis() + timeout;
+		final long endTime = sleeper.uptimeMillis() + timeout;
 		// 循环检查弹框是否关闭了
-		while (SystemClock.uptimeMillis() < endTime) {
+		while (sleeper.uptimeMillis() < endTime) {
 
 			if(!isDialogOpen()){
 				return true;
@@ -71,6 +78,43 @@ class DialogUtils {
 		return false;
 	}
 
+	/**
+	 * 由窗口变化驱动的等待弹框关闭，只有在还没有弹框出现也没有弹框刚关闭时才先等待弹框出现
+	 * Waits for a {@link android.app.Dialog} to close, woken up by window changes. Only waits for a dialog
+	 * to open first if no dialog is open and none has just been closed.
+	 *
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return {@code true} if the {@code Dialog} is closed before the timeout and {@code false} if it is not closed
+	 */
+
+	private boolean waitForDialogToCloseOnWindowChange(long timeout) {
+		if(!isDialogOpen()){
+			// 弹框刚刚关闭过，直接返回
+			if(sleeper.uptimeMillis() - windowWatcher.getLastDialogRemovedTime() < TIMEOUT_DIALOG_TO_CLOSE){
+				return true;
+			}
+			// 弹框还未出现，先等待弹框出现
+			if(!waitForDialogToOpen(TIMEOUT_DIALOG_TO_CLOSE, false)){
+				return true;
+			}
+		}
+		// 设置超时时间
+		final long endTime = sleeper.uptimeMillis() + timeout;
+		while (true) {
+			final long stamp = windowWatcher.getChangeStamp();
+
+			if(!isDialogOpen()){
+				return true;
+			}
+			final long remaining = endTime - sleeper.uptimeMillis();
+			if(remaining <= 0){
+				return false;
+			}
+			// 等待窗口变化,弹框可能只是隐藏,因此最多等待200ms
+			windowWatcher.awaitChange(stamp, Math.min(remaining, MINISLEEP));
+		}
+	}
+
 
 
 	/**
@@ -85,12 +129,28 @@ class DialogUtils {
 
 	public boolean waitForDialogToOpen(long timeout, boolean sleepFirst) {
 		// 设置超时时间
-		final long endTime = SystemClock.uptimeMillis() + timeout;
+		final long endTime = sleeper.uptimeMillis() + timeout;
+		// 已安装窗口监听时由窗口变化驱动，不需要先等待
+		if(windowWatcher.isInstalled()){
+			while (true) {
+				final long stamp = windowWatcher.getChangeStamp();
+
+				if(isDialogOpen()){
+					return true;
+				}
+				final long remaining = endTime - sleeper.uptimeMillis();
+				if(remaining <= 0){
+					return false;
+				}
+				// 等待窗口变化,弹框可能只是从隐藏变为显示,因此最多等待200ms
+				windowWatcher.awaitChange(stamp, Math.min(remaining, MINISLEEP));
+			}
+		}
 		// 是否需要等待500ms后再查找
 		if(sleepFirst)
 			sleeper.sleep();
 		// 循环检查是否弹框出现了
-		while (SystemClock.uptimeMillis() < endTime) {
+		while (sleeper.uptimeMillis() < endTime) {
 
 			if(isDialogOpen()){
 				return true;
@@ -102,15 +162,25 @@ class DialogUtils {
 	}
 
 	/**
-	 * 检查是否有弹框出现
-	 * Checks if a dialog is open. 
+	 * 检查是否有弹框出现，已安装窗口监听时只检查已分类为弹框或弹出窗口的窗口
+	 * Checks if a dialog is open. When the window watcher is installed only the windows
+	 * classified as dialogs or popups are checked.
 	 * 
 	 * @return true if dialog is open
 	 */
 
-	private boolean isDialogOpen(){
+	public boolean isDialogOpen(){
 		// 获取当前显示的activity
 		final Activity activity = activityUtils.getCurrentActivity(false);
+		// 只检查弹框和弹出窗口，不需要遍历所有窗口
+		if(windowWatcher.isInstalled()){
+			for(View v : windowWatcher.getWindows(WindowWatcher.WindowType.DIALOG, WindowWatcher.WindowType.POPUP)){
+				if(isDialog(activity, v)){
+					return true;
+				}
+			}
+			return false;
+		}
 		// 获取当前的所有DecorView类型View
 		final View[] views = viewFetcher.getWindowDecorViews();
 		// 获取最新的DecorView,DecorView是根
@@ -0,0 +1,328 @@
+package com.robotium.solo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import android.app.Instrumentation;
+import android.app.UiAutomation;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.InputDevice;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.MotionEvent.PointerCoords;
+import android.view.MotionEvent.PointerProperties;
+import com.robotium.solo.Solo.Config;
+
+
+/**
+ * 触摸事件注入工具类，支持异步批量注入和按事件时间实时发送
+ * Injects the motion events of gestures and drags. By default every event is sent with
+ * {@link Instrumentation#sendPointerSync(MotionEvent)}, which waits for a round trip to the UI thread.
+ * <br><br>
+ * If {@link Config#injectInputAsynchronously} is set and API level 18 is available, all events of a
+ * sequence except the last are posted with {@code UiAutomation.injectInputEvent(event, false)}, and only
+ * the last one is sent synchronously. Input is dispatched in order, so waiting for the last event waits
+ * for the whole sequence with a single barrier.
+ * <br><br>
+ * If {@link Config#paceInputInRealTime} is set, every event is held back by the {@link PacingScheduler}
+ * until its event time, so the gesture takes as long on the device as its timestamps say.
+ * <br><br>
+ * Touch and key events of clicks, drags, gestures and key presses all pass through this class. While
+ * recording, every injected event is appended to an input trace, and traces are replayed through the
+ * {@link InputReplayer.Sink} this class implements. Replayed events are not recorded.
+ *
+ */
+
+class EventInjector implements InputReplayer.Sink {
+	// 常量用于日志打印
+	private static final String LOG_TAG = "Robotium";
+	// 相关属性配置
+	private final Config config;
+	// Instrument 用于发送事件
+	private final Instrumentation inst;
+	// 按事件时间发送的调度工具类
+	private final PacingScheduler pacingScheduler;
+	// 异步注入使用的UiAutomation，不可用时为null
+	private UiAutomation uiAutomation;
+	// 是否已尝试获取UiAutomation
+	private boolean uiAutomationResolved = false;
+	// 录制中的输入轨迹，未录制时为null
+	private volatile InputTraceWriter recorder;
+	// 是否正在回放，回放的事件不录制
+	private volatile boolean replaying = false;
+	// 录制时复用的事件记录
+	private final InputTraceRecord recordBuffer = new InputTraceRecord();
+	// 回放时复用的坐标点和手指属性
+	private PointerCoords[] pointerCoords = new PointerCoords[0];
+	private PointerProperties[] pointerProperties = new PointerProperties[0];
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param config the {@code Config} instance
+	 * @param inst the {@code Instrumentation} instance
+	 * @param pacingScheduler the {@code PacingScheduler} instance
+	 */
+
+	public EventInjector(Config config, Instrumentation inst, PacingScheduler pacingScheduler) {
+		this.config = config;
+		this.inst = inst;
+		this.pacingScheduler = pacingScheduler;
+	}
+
+	/**
+	 * 事件时间是否需要按计划生成，异步或实时发送时为true，调用方应以按下时间加固定间隔作为事件时间
+	 * Returns whether callers should give their events planned timestamps, the down time plus a fixed
+	 * interval per step, instead of the time at which they are sent. It is {@code true} when events are
+	 * injected asynchronously or paced, as the sending time then says nothing about the intended velocity.
+	 *
+	 * @return {@code true} if events should carry planned timestamps
+	 */
+
+	public boolean usesPlannedTimestamps() {
+		return config.injectInputAsynchronously || config.paceInputInRealTime;
+	}
+
+	/**
+	 * 注入一个事件，不回收事件。最后一个事件同步发送，作为整个序列的同步点
+	 * Injects one event of a sequence. The event is not recycled. The last event of a sequence is
+	 * always sent synchronously, so that the sequence has been handled when this method returns for it.
+	 *
+	 * @param event the event to inject
+	 * @param last {@code true} if this is the last event of the sequence
+	 */
+
+	public void inject(MotionEvent event, boolean last) {
+		if(config.paceInputInRealTime){
+			pacingScheduler.awaitUptime(event.getEventTime());
+		}
+		dispatch(event, last, config.injectInputAsynchronously);
+	}
+
+	/**
+	 * 发送按键的按下和松开事件，等同于Instrumentation.sendKeyDownUpSync()
+	 * Sends a key down and a key up event for the given key code and waits until they have been handled.
+	 *
+	 * @param keyCode the key code, e.g. {@link KeyEvent#KEYCODE_ENTER}
+	 */
+
+	public void injectKeyDownUp(int keyCode) {
+		final long downTime = SystemClock.uptimeMillis();
+		injectKey(new KeyEvent(downTime, downTime, KeyEvent.ACTION_DOWN, keyCode, 0));
+		injectKey(new KeyEvent(downTime, SystemClock.uptimeMillis(), KeyEvent.ACTION_UP, keyCode, 0));
+	}
+
+	/**
+	 * 同步发送一个按键事件
+	 * Sends a key event and waits until it has been handled.
+	 *
+	 * @param event the event
+	 */
+
+	public void injectKey(KeyEvent event) {
+		inst.sendKeySync(event);
+		if(recorder != null && !replaying){
+			record(event);
+		}
+	}
+
+	/**
+	 * 回放一个轨迹事件，触摸事件总是批量注入，只在序列结束时同步
+	 * Injects a replayed event. Touch events always take the batched path, waiting only at the end of
+	 * each sequence.
+	 *
+	 * @param record the event
+	 * @param paced {@code true} if the event should be held back until its event time
+	 */
+
+	public void inject(InputTraceRecord record, boolean paced) {
+		if(paced){
+			pacingScheduler.awaitUptime(record.eventTime);
+		}
+		if(record.type == InputTraceRecord.KEY){
+			injectKey(new KeyEvent(record.downTime, record.eventTime, record.action, record.keyCode, record.repeatCount, record.metaState));
+			return;
+		}
+		final int pointerCount = record.pointerCount;
+		if(pointerCoords.length < pointerCount){
+			pointerCoords = new PointerCoords[pointerCount];
+			pointerProperties = new PointerProperties[pointerCount];
+			for(int i = 0; i < pointerCount; i++){
+				pointerCoords[i] = new PointerCoords();
+				pointerCoords[i].pressure = 1;
+				pointerCoords[i].size = 1;
+				pointerProperties[i] = new PointerProperties();
+				pointerProperties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+			}
+		}
+		for(int i = 0; i < pointerCount; i++){
+			pointerProperties[i].id = record.pointerIds[i];
+			pointerCoords[i].x = record.xs[i];
+			pointerCoords[i].y = record.ys[i];
+		}
+		final MotionEvent event = MotionEvent.obtain(record.downTime, record.eventTime, record.action, pointerCount,
+				pointerProperties, pointerCoords, 0, 0, 1, 1, 0, 0, InputDevice.SOURCE_TOUCHSCREEN, 0);
+		try {
+			dispatch(event, record.endsSequence(), true);
+		} finally {
+			event.recycle();
+		}
+	}
+
+	/**
+	 * 回放轨迹，回放期间暂停录制
+	 * Replays a trace through this injector. A recording in progress is paused for the replay, so the
+	 * replayed events do not end up in it.
+	 *
+	 * @param in the trace, closed when the replay ends or fails
+	 * @param timeScale the factor applied to the time between events, or 0 for full speed
+	 * @param clock the clock that gives the present time
+	 * @return the number of replayed events
+	 * @throws IOException if the trace can not be read
+	 */
+
+	public int replay(InputStream in, float timeScale, Clock clock) throws IOException {
+		replaying = true;
+		try {
+			return new InputReplayer(this, clock).replay(in, timeScale);
+		} finally {
+			replaying = false;
+		}
+	}
+
+	/**
+	 * 开始录制，之后注入的所有事件写入给定的流，已在录制时先结束之前的录制
+	 * Starts recording every injected event to the given stream. A recording in progress is stopped first.
+	 *
+	 * @param out the stream to write the trace to, closed if the header can not be written
+	 * @throws IOException if the trace can not be written
+	 */
+
+	public synchronized void startRecording(OutputStream out) throws IOException {
+		stopRecording();
+		recorder = new InputTraceWriter(out);
+	}
+
+	/**
+	 * 结束录制并写出剩余的事件，未在录制时无影响
+	 * Stops recording and flushes the trace. Has no effect if no recording is in progress.
+	 */
+
+	public synchronized void stopRecording() {
+		if(recorder == null){
+			return;
+		}
+		try {
+			recorder.close();
+		} catch (IOException e) {
+			Log.w(LOG_TAG, "Could not write the input trace", e);
+		}
+		recorder = null;
+	}
+
+	/**
+	 * 发送事件，async为true时除最后一个外异步发送，成功后录制
+	 * Sends an event, asynchronously if requested unless it is the last of its sequence, and records it.
+	 *
+	 * @param event the event
+	 * @param last {@code true} if this is the last event of the sequence
+	 * @param async {@code true} if the event may be injected asynchronously
+	 */
+
+	private void dispatch(MotionEvent event, boolean last, boolean async) {
+		boolean injected = false;
+		if(!last && async){
+			final UiAutomation automation = getUiAutomation();
+			injected = automation != null && automation.injectInputEvent(event, false);
+		}
+		if(!injected){
+			inst.sendPointerSync(event);
+		}
+		if(recorder != null && !replaying){
+			record(event);
+		}
+	}
+
+	/**
+	 * 录制一个触摸事件，写入失败时结束录制
+	 * Appends a touch event to the trace. The recording is stopped if the trace can not be written.
+	 *
+	 * @param event the event
+	 */
+
+	private synchronized void record(MotionEvent event) {
+		if(recorder == null){
+			return;
+		}
+		final int pointerCount = event.getPointerCount();
+		recordBuffer.type = InputTraceRecord.MOTION;
+		recordBuffer.action = event.getAction();
+		recordBuffer.downTime = event.getDownTime();
+		recordBuffer.eventTime = event.getEventTime();
+		recordBuffer.pointerCount = pointerCount;
+		recordBuffer.ensureCapacity(pointerCount);
+		for(int i = 0; i < pointerCount; i++){
+			recordBuffer.pointerIds[i] = event.getPointerId(i);
+			recordBuffer.xs[i] = event.getX(i);
+			recordBuffer.ys[i] = event.getY(i);
+		}
+		write();
+	}
+
+	/**
+	 * 录制一个按键事件，写入失败时结束录制
+	 * Appends a key event to the trace. The recording is stopped if the trace can not be written.
+	 *
+	 * @param event the event
+	 */
+
+	private synchronized void record(KeyEvent event) {
+		if(recorder == null){
+			return;
+		}
+		recordBuffer.type = InputTraceRecord.KEY;
+		recordBuffer.action = event.getAction();
+		recordBuffer.downTime = event.getDownTime();
+		recordBuffer.eventTime = event.getEventTime();
+		recordBuffer.keyCode = event.getKeyCode();
+		recordBuffer.repeatCount = event.getRepeatCount();
+		recordBuffer.metaState = event.getMetaState();
+		write();
+	}
+
+	/**
+	 * 写入复用的事件记录
+	 * Writes the reused record to the trace, stopping the recording on failure.
+	 */
+
+	private void write() {
+		try {
+			recorder.write(recordBuffer);
+		} catch (IOException e) {
+			Log.w(LOG_TAG, "Could not write the input trace, recording stopped", e);
+			stopRecording();
+		}
+	}
+
+	/**
+	 * 获取UiAutomation，API 18以下或获取失败时返回null，只尝试一次
+	 * Returns the {@code UiAutomation} used for asynchronous injection. It is resolved once.
+	 *
+	 * @return the {@code UiAutomation} or {@code null} if below API level 18 or not available
+	 */
+
+	private UiAutomation getUiAutomation() {
+		if(!uiAutomationResolved){
+			uiAutomationResolved = true;
+			if(android.os.Build.VERSION.SDK_INT >= 18){
+				try {
+					uiAutomation = inst.getUiAutomation();
+				} catch (RuntimeException ignored) {}
+			}
+		}
+		return uiAutomation;
+	}
+}
@@ -0,0 +1,64 @@
+package com.robotium.solo;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+
+/**
+ * 线程池空闲资源，线程池没有执行中和排队中的任务时空闲
+ * An {@link IdlingResource} for a {@link ThreadPoolExecutor} of the application, idle when no task is
+ * running or queued. Register one per executor that populates the screens under test:<br>
+ * {@code IdlingRegistry.register(new ExecutorIdlingResource("image loader", imageExecutor));}
+ * <br><br>
+ * {@code AsyncTask} executors need no registration, they are tracked by {@link Solo#waitForIdle(int)}.
+ *
+ */
+
+public class ExecutorIdlingResource implements IdlingResource {
+	// 资源名称
+	private final String name;
+	// 线程池
+	private final ThreadPoolExecutor executor;
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param name the name of the resource, used in diagnostics
+	 * @param executor the executor to track
+	 */
+
+	public ExecutorIdlingResource(String name, ThreadPoolExecutor executor) {
+		if(name == null || executor == null){
+			throw new IllegalArgumentException("The name and the executor can not be null");
+		}
+		this.name = name;
+		this.executor = executor;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isIdleNow() {
+		return isIdle(executor);
+	}
+
+	/**
+	 * 线程池是否空闲，队列先于执行数检查，避免任务从队列取出还未开始执行时误判
+	 * Returns whether an executor has no running or queued task. The queue is checked before the active
+	 * count, so a task that moves from the queue to a worker is seen in one of them.
+	 *
+	 * @param executor the executor to check
+	 * @return {@code true} if idle
+	 */
+
+	static boolean isIdle(ThreadPoolExecutor executor) {
+		return executor.getQueue().isEmpty() && executor.getActiveCount() == 0;
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + executor.getActiveCount() + " active, " + executor.getQueue().size() + " queued)";
+	}
+}
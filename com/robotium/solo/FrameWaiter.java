@@ -0,0 +1,251 @@
+package com.robotium.solo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+import com.robotium.solo.Solo.Config;
+
+
+/**
+ * 按帧等待工具类，在UI线程通过Choreographer每渲染一帧检查一次所有等待中的条件，没有新的帧时不检查
+ * Evaluates pending conditions once per rendered frame. A {@link Choreographer.FrameCallback} is posted on
+ * the UI thread while conditions are pending, and on every vsync the conditions are checked only if a
+ * window has been drawn since the last check, so no traversal is spent on an unchanged screen.
+ * <br><br>
+ * The conditions are evaluated on the UI thread and must therefore not block or inject input. Only
+ * Robotium's own view searches are waited for this way; user conditions are polled by {@link Waiter}.
+ * Requires API level 16; {@link #isEnabled()} returns {@code false} on older versions.
+ *
+ */
+
+class FrameWaiter {
+	// 相关属性配置
+	private final Config config;
+	// View查找工具类
+	private final ViewFetcher viewFetcher;
+	// 延时等待工具类，用于检查取消
+	private final Sleeper sleeper;
+	// 所有未完成的等待
+	private final List<PendingCondition> pendingConditions;
+	// UI线程Handler
+	private final Handler mainHandler;
+	// 是否已提交帧回调
+	private boolean callbackPosted = false;
+	// 上一次检查时的窗口绘制时间
+	private long lastDrawingTime = -1;
+	// 等待线程检查取消的间隔100ms
+	private static final int CANCEL_CHECK_INTERVAL = 100;
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param config the {@code Config} instance
+	 * @param viewFetcher the {@code ViewFetcher} instance
+	 * @param sleeper the {@code Sleeper} instance
+	 */
+
+	public FrameWaiter(Config config, ViewFetcher viewFetcher, Sleeper sleeper) {
+		this.config = config;
+		this.viewFetcher = viewFetcher;
+		this.sleeper = sleeper;
+		pendingConditions = new ArrayList<PendingCondition>();
+		mainHandler = new Handler(Looper.getMainLooper());
+	}
+
+	/**
+	 * 是否使用按帧等待，需要在Config中开启、API 16以上、使用系统时钟且不在UI线程
+	 * Returns whether waits of the current thread should be frame-aligned. Requires
+	 * {@link Config#frameAlignedPolling}, API level 16, the {@link Clock#SYSTEM} clock and a thread other
+	 * than the UI thread. Frames arrive in real time, so with any other clock the waits keep polling
+	 * through that clock.
+	 *
+	 * @return {@code true} if frame-aligned waiting is enabled and supported
+	 */
+
+	public boolean isEnabled() {
+		return config.frameAlignedPolling && Build.VERSION.SDK_INT >= 16 && sleeper.getClock() == Clock.SYSTEM
+				&& Looper.myLooper() != Looper.getMainLooper();
+	}
+
+	/**
+	 * 按帧等待条件满足，不能在UI线程调用
+	 * Waits until the condition is satisfied, evaluating it once per rendered frame. Must not be called
+	 * from the UI thread.
+	 *
+	 * @param condition the condition to wait for
+	 * @param deadline the deadline of the wait. Every evaluation counts as a poll and a traversal
+	 * @return {@code true} if the condition is satisfied and {@code false} if it is not satisfied before the deadline
+	 * @throws CancellationException if the thread is interrupted or the instance has been shut down
+	 */
+
+	public boolean waitForCondition(Condition condition, Deadline deadline) {
+		final PendingCondition pending = new PendingCondition(condition, deadline);
+		synchronized (pendingConditions) {
+			pendingConditions.add(pending);
+			// 新的等待需要至少检查一次
+			lastDrawingTime = -1;
+			if(!callbackPosted){
+				callbackPosted = true;
+				mainHandler.post(new Runnable() {
+					public void run() {
+						postFrameCallback();
+					}
+				});
+			}
+		}
+		final String previousPhase = deadline.enter("sleep");
+		try {
+			while(true){
+				sleeper.checkCancelled();
+				final long remaining = deadline.remaining();
+				if(remaining <= 0 || pending.done.await(Math.min(remaining, CANCEL_CHECK_INTERVAL), TimeUnit.MILLISECONDS)){
+					// 条件检查抛出的异常在等待线程重新抛出
+					if(pending.failure != null){
+						throw pending.failure;
+					}
+					return pending.satisfied;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while waiting for a frame");
+		} finally {
+			synchronized (pendingConditions) {
+				pendingConditions.remove(pending);
+			}
+			deadline.enter(previousPhase);
+		}
+	}
+
+	/**
+	 * 在UI线程提交帧回调
+	 * Posts the frame callback. Called on the UI thread.
+	 */
+
+	private void postFrameCallback() {
+		Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+			public void doFrame(long frameTimeNanos) {
+				onFrame();
+			}
+		});
+	}
+
+	/**
+	 * 每帧回调，有新绘制时检查所有等待中的条件，仍有等待时继续提交回调
+	 * Evaluates the pending conditions if a window has been drawn since the last evaluation, and posts
+	 * the callback again while conditions are pending. Called on the UI thread.
+	 */
+
+	private void onFrame() {
+		ArrayList<PendingCondition> conditionsToCheck;
+		final long drawingTime = getDrawingTime();
+		synchronized (pendingConditions) {
+			if(pendingConditions.isEmpty()){
+				callbackPosted = false;
+				return;
+			}
+			// 没有新的帧，不检查
+			if(drawingTime == lastDrawingTime){
+				postFrameCallback();
+				return;
+			}
+			lastDrawingTime = drawingTime;
+			conditionsToCheck = new ArrayList<PendingCondition>(pendingConditions);
+		}
+		for(PendingCondition pending : conditionsToCheck){
+			pending.evaluate();
+		}
+		synchronized (pendingConditions) {
+			for(PendingCondition pending : conditionsToCheck){
+				if(pending.done.getCount() == 0){
+					pendingConditions.remove(pending);
+				}
+			}
+			if(pendingConditions.isEmpty()){
+				callbackPosted = false;
+			}
+			else{
+				postFrameCallback();
+			}
+		}
+	}
+
+	/**
+	 * 获取所有窗口最近一次绘制的时间
+	 * Returns the latest drawing time of all windows. It changes whenever any window draws a frame.
+	 *
+	 * @return the latest drawing time or {@code 0} if no window has been drawn
+	 */
+
+	private long getDrawingTime() {
+		long drawingTime = 0;
+		final View[] decorViews = viewFetcher.getWindowDecorViews();
+		if(decorViews != null){
+			for(View decorView : decorViews){
+				if(decorView != null && decorView.getDrawingTime() > drawingTime){
+					drawingTime = decorView.getDrawingTime();
+				}
+			}
+		}
+		return drawingTime;
+	}
+
+	/**
+	 * 等待中的条件
+	 * A condition that is waited for.
+	 */
+
+	private static class PendingCondition {
+		// 条件
+		private final Condition condition;
+		// 截止时间
+		private final Deadline deadline;
+		// 完成信号
+		final CountDownLatch done = new CountDownLatch(1);
+		// 条件是否满足
+		volatile boolean satisfied = false;
+		// 检查条件时抛出的异常
+		volatile RuntimeException failure;
+
+		PendingCondition(Condition condition, Deadline deadline) {
+			this.condition = condition;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * 检查条件，满足或超时时完成
+		 * Evaluates the condition and completes when it is satisfied or the deadline has passed.
+		 */
+
+		void evaluate() {
+			if(done.getCount() == 0){
+				return;
+			}
+			if(deadline.isExpired()){
+				done.countDown();
+				return;
+			}
+			deadline.poll();
+			deadline.count("search");
+			try {
+				satisfied = condition.isSatisfied();
+			} catch (RuntimeException e) {
+				failure = e;
+				done.countDown();
+				return;
+			}
+			if(satisfied){
+				done.countDown();
+			}
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package com.robotium.solo;
+
+import android.graphics.PointF;
+import android.os.SystemClock;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+import android.view.MotionEvent.PointerCoords;
+import android.view.MotionEvent.PointerProperties;
+
+
+/**
+ * 多点触控手势工具类，统一实现点击、划屏、缩放和画圈
+ * Performs multi-pointer gestures: taps, swipes, pinches, rotations and gestures along arbitrary
+ * {@link GesturePath}s with any number of pointers. API level 14 or higher is required.
+ * <br><br>
+ * The trajectory of all pointers is computed into a buffer before the first event is sent, and the
+ * pointer coordinates and properties are reused. Every {@code MotionEvent} is recycled after it has
+ * been injected, so the events come from the framework's pool and a gesture makes no allocation per step.
+ * The events are injected by {@link EventInjector}, asynchronously or paced if configured, with the up
+ * event of the last pointer as the only synchronous barrier.
+ *
+ */
+
+class GestureEngine {
+	// 手势持续时间1s
+	public static final int GESTURE_DURATION_MS = 1000;
+	// 事件间隔10ms
+	public static final int EVENT_TIME_INTERVAL_MS = 10;
+	// 画圈，半径100像素
+	public static final int LARGE = 0;
+	// 画圈，半径10像素
+	public static final int SMALL = 1;
+	// 触摸事件注入工具类
+	private final EventInjector eventInjector;
+	// 预先计算的轨迹，每步依次为各手指的x、y
+	private float[] trajectory = new float[0];
+	// 复用的坐标点
+	private PointerCoords[] pointerCoords = new PointerCoords[0];
+	// 复用的手指属性
+	private PointerProperties[] pointerProperties = new PointerProperties[0];
+	// 计算轨迹时的临时坐标
+	private final float[] position = new float[2];
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param eventInjector the {@code EventInjector} instance
+	 */
+
+	public GestureEngine(EventInjector eventInjector) {
+		this.eventInjector = eventInjector;
+	}
+
+	/**
+	 * 按给定轨迹执行手势，每个轨迹对应一个手指，手指依次按下，移动后依次抬起
+	 * Performs a gesture. Every path is followed by one pointer. The pointers go down in order at the
+	 * start of their paths, move together and go up in reverse order at the end of their paths.
+	 *
+	 * @param paths the paths of the pointers
+	 * @param duration the duration of the movement in milliseconds, {@code 0} for no movement
+	 * @param eventInterval the time between two events in milliseconds
+	 */
+
+	public synchronized void performGesture(GesturePath[] paths, int duration, int eventInterval) {
+		if(paths.length == 0){
+			return;
+		}
+		if(eventInterval < 1){
+			eventInterval = 1;
+		}
+		final int pointerCount = paths.length;
+		final int steps = Math.max(0, duration / eventInterval);
+		computeTrajectory(paths, steps);
+
+		final long downTime = SystemClock.uptimeMillis();
+		long eventTime = downTime;
+		// 手指依次按下
+		setCoords(0, pointerCount);
+		send(downTime, eventTime, MotionEvent.ACTION_DOWN, 1);
+		for(int pointer = 1; pointer < pointerCount; pointer++){
+			send(downTime, eventTime, MotionEvent.ACTION_POINTER_DOWN + (pointer << MotionEvent.ACTION_POINTER_INDEX_SHIFT), pointer + 1);
+		}
+		// 按预先计算的轨迹移动
+		for(int step = 1; step <= steps; step++){
+			eventTime += eventInterval;
+			setCoords(step, pointerCount);
+			send(downTime, eventTime, MotionEvent.ACTION_MOVE, pointerCount);
+		}
+		// 手指倒序抬起
+		for(int pointer = pointerCount - 1; pointer > 0; pointer--){
+			eventTime += eventInterval;
+			send(downTime, eventTime, MotionEvent.ACTION_POINTER_UP + (pointer << MotionEvent.ACTION_POINTER_INDEX_SHIFT), pointer + 1);
+		}
+		eventTime += eventInterval;
+		send(downTime, eventTime, MotionEvent.ACTION_UP, 1);
+	}
+
+	/**
+	 * 在给定坐标点击指定次数，多个坐标时多个手指同时点击
+	 * Taps the given points a number of times. Several points are tapped together by several pointers.
+	 *
+	 * @param numTaps the number of taps
+	 * @param points the points to tap
+	 */
+
+	public void tap(int numTaps, PointF... points) {
+		final GesturePath[] paths = new GesturePath[points.length];
+		for(int i = 0; i < points.length; i++){
+			paths[i] = GesturePath.point(points[i]);
+		}
+		for(int i = 0; i < numTaps; i++){
+			performGesture(paths, 0, EVENT_TIME_INTERVAL_MS);
+		}
+	}
+
+	/**
+	 * 两个手指沿直线移动，用于划屏和缩放
+	 * Moves two pointers along straight lines, as in a swipe or a pinch.
+	 *
+	 * @param startPoint1 the start point of the first pointer
+	 * @param startPoint2 the start point of the second pointer
+	 * @param endPoint1 the end point of the first pointer
+	 * @param endPoint2 the end point of the second pointer
+	 */
+
+	public void moveTwoPointers(PointF startPoint1, PointF startPoint2, PointF endPoint1, PointF endPoint2) {
+		performGesture(new GesturePath[] {GesturePath.line(startPoint1, endPoint1), GesturePath.line(startPoint2, endPoint2)},
+				GESTURE_DURATION_MS, EVENT_TIME_INTERVAL_MS);
+	}
+
+	/**
+	 * 两个手指从给定点出发各画一个半圆，第一个向下，第二个向上
+	 * Draws two semi-circles starting at the given points, the first one turning downwards and the second
+	 * one upwards. A {@link #LARGE} rotation has a radius of 100 pixels and takes about 3 seconds, a
+	 * {@link #SMALL} one a radius of 10 pixels.
+	 *
+	 * @param size {@link #LARGE} or {@link #SMALL}
+	 * @param start1 the start point of the first pointer
+	 * @param start2 the start point of the second pointer
+	 */
+
+	public void rotate(int size, PointF start1, PointF start2) {
+		// 每步移动1像素，半径为步长倒数
+		final double incrementFactor = size == SMALL ? 0.1 : 0.01;
+		final float radius = (float) (1 / incrementFactor);
+		final int steps = (int) Math.ceil(Math.PI / incrementFactor);
+		final GesturePath path1 = GesturePath.arc(new PointF(start1.x, start1.y + radius), radius, -Math.PI / 2, Math.PI);
+		final GesturePath path2 = GesturePath.arc(new PointF(start2.x, start2.y - radius), radius, Math.PI / 2, Math.PI);
+		performGesture(new GesturePath[] {path1, path2}, steps * EVENT_TIME_INTERVAL_MS, EVENT_TIME_INTERVAL_MS);
+	}
+
+	/**
+	 * 预先计算所有手指每一步的坐标，并准备复用的坐标点和手指属性
+	 * Computes the positions of all pointers for every step, and prepares the reused pointer coordinates
+	 * and properties. The buffers only grow.
+	 *
+	 * @param paths the paths of the pointers
+	 * @param steps the number of moves
+	 */
+
+	private void computeTrajectory(GesturePath[] paths, int steps) {
+		final int pointerCount = paths.length;
+		final int size = (steps + 1) * pointerCount * 2;
+		if(trajectory.length < size){
+			trajectory = new float[size];
+		}
+		if(pointerCoords.length < pointerCount){
+			pointerCoords = new PointerCoords[pointerCount];
+			pointerProperties = new PointerProperties[pointerCount];
+			for(int pointer = 0; pointer < pointerCount; pointer++){
+				pointerCoords[pointer] = new PointerCoords();
+				pointerCoords[pointer].pressure = 1;
+				pointerCoords[pointer].size = 1;
+				pointerProperties[pointer] = new PointerProperties();
+				pointerProperties[pointer].id = pointer;
+				pointerProperties[pointer].toolType = MotionEvent.TOOL_TYPE_FINGER;
+			}
+		}
+		int index = 0;
+		for(int step = 0; step <= steps; step++){
+			final float fraction = steps == 0 ? 0 : (float) step / steps;
+			for(GesturePath path : paths){
+				path.getPosition(fraction, position);
+				trajectory[index++] = position[0];
+				trajectory[index++] = position[1];
+			}
+		}
+	}
+
+	/**
+	 * 把第step步的坐标写入复用的坐标点
+	 * Copies the positions of the given step into the reused pointer coordinates.
+	 *
+	 * @param step the step
+	 * @param pointerCount the number of pointers
+	 */
+
+	private void setCoords(int step, int pointerCount) {
+		int index = step * pointerCount * 2;
+		for(int pointer = 0; pointer < pointerCount; pointer++){
+			pointerCoords[pointer].x = trajectory[index++];
+			pointerCoords[pointer].y = trajectory[index++];
+		}
+	}
+
+	/**
+	 * 发送事件并回收
+	 * Injects an event built from the reused pointer coordinates and recycles it. The up event of the last
+	 * pointer ends the sequence.
+	 *
+	 * @param downTime the time of the first down event
+	 * @param eventTime the time of this event
+	 * @param action the action
+	 * @param pointerCount the number of pointers in the event
+	 */
+
+	private void send(long downTime, long eventTime, int action, int pointerCount) {
+		final MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, pointerCount, pointerProperties, pointerCoords,
+				0, 0, // metaState, buttonState
+				1, 1, // x precision, y precision
+				0, 0, // deviceId, edgeFlags
+				InputDevice.SOURCE_TOUCHSCREEN, 0); // source, flags
+		try {
+			eventInjector.inject(event, action == MotionEvent.ACTION_UP);
+		} finally {
+			event.recycle();
+		}
+	}
+}
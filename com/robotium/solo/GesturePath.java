@@ -0,0 +1,121 @@
+package com.robotium.solo;
+
+import android.graphics.PointF;
+
+/**
+ * 手势中一个手指的移动轨迹，提供直线、贝塞尔曲线、圆弧和静止点
+ * The path of one pointer of a gesture, used with {@link Solo#performGesture(int, int, GesturePath...)}.<br/>
+ * Lines, Bézier curves, arcs and stationary points are created with the static methods. Other paths may
+ * be implemented by overriding {@link #getPosition(float, float[])}.
+ */
+public abstract class GesturePath {
+
+	/**
+	 * 计算轨迹上给定进度的坐标，写入position，不能分配对象
+	 * Computes the position of the pointer at the given fraction of the gesture. It is called once per
+	 * event before the gesture starts and should not allocate.
+	 *
+	 * @param fraction the fraction of the gesture, from 0 to 1
+	 * @param position an array of two floats in which to hold the x and y coordinates
+	 */
+	public abstract void getPosition(float fraction, float[] position);
+
+	/**
+	 * 静止不动的点
+	 * Returns a path that stays at the given point.
+	 *
+	 * @param point the point
+	 * @return the path
+	 */
+	public static GesturePath point(PointF point) {
+		return line(point, point);
+	}
+
+	/**
+	 * 直线
+	 * Returns a straight line from one point to another.
+	 *
+	 * @param from the start point
+	 * @param to the end point
+	 * @return the path
+	 */
+	public static GesturePath line(PointF from, PointF to) {
+		final float fromX = from.x, fromY = from.y, toX = to.x, toY = to.y;
+		return new GesturePath() {
+			public void getPosition(float fraction, float[] position) {
+				position[0] = fromX + (toX - fromX) * fraction;
+				position[1] = fromY + (toY - fromY) * fraction;
+			}
+		};
+	}
+
+	/**
+	 * 二次贝塞尔曲线
+	 * Returns a quadratic Bézier curve.
+	 *
+	 * @param from the start point
+	 * @param control the control point
+	 * @param to the end point
+	 * @return the path
+	 */
+	public static GesturePath bezier(PointF from, PointF control, PointF to) {
+		final float[] xs = {from.x, control.x, to.x};
+		final float[] ys = {from.y, control.y, to.y};
+		return new GesturePath() {
+			public void getPosition(float fraction, float[] position) {
+				final float t = fraction;
+				final float u = 1 - t;
+				final float b0 = u * u, b1 = 2 * u * t, b2 = t * t;
+				position[0] = b0 * xs[0] + b1 * xs[1] + b2 * xs[2];
+				position[1] = b0 * ys[0] + b1 * ys[1] + b2 * ys[2];
+			}
+		};
+	}
+
+	/**
+	 * 三次贝塞尔曲线
+	 * Returns a cubic Bézier curve.
+	 *
+	 * @param from the start point
+	 * @param control1 the first control point
+	 * @param control2 the second control point
+	 * @param to the end point
+	 * @return the path
+	 */
+	public static GesturePath bezier(PointF from, PointF control1, PointF control2, PointF to) {
+		final float[] xs = {from.x, control1.x, control2.x, to.x};
+		final float[] ys = {from.y, control1.y, control2.y, to.y};
+		return new GesturePath() {
+			public void getPosition(float fraction, float[] position) {
+				final float t = fraction;
+				final float u = 1 - t;
+				final float b0 = u * u * u, b1 = 3 * u * u * t, b2 = 3 * u * t * t, b3 = t * t * t;
+				position[0] = b0 * xs[0] + b1 * xs[1] + b2 * xs[2] + b3 * xs[3];
+				position[1] = b0 * ys[0] + b1 * ys[1] + b2 * ys[2] + b3 * ys[3];
+			}
+		};
+	}
+
+	/**
+	 * 圆弧，角度为弧度，0指向右侧，正值顺时针(屏幕坐标y轴向下)
+	 * Returns a circular arc. Angles are in radians, 0 points to the right and positive angles turn
+	 * clockwise on screen.
+	 *
+	 * @param center the center of the circle
+	 * @param radius the radius of the circle
+	 * @param startAngle the angle of the start point
+	 * @param sweepAngle the angle to sweep, negative to turn counterclockwise
+	 * @return the path
+	 */
+	public static GesturePath arc(PointF center, final float radius, final double startAngle, final double sweepAngle) {
+		final float centerX = center.x, centerY = center.y;
+		return new GesturePath() {
+			public void getPosition(float fraction, float[] position) {
+				final double angle = startAngle + sweepAngle * fraction;
+				position[0] = (float) (centerX + radius * Math.cos(angle));
+				position[1] = (float) (centerY + radius * Math.sin(angle));
+			}
+		};
+	}
+
+}
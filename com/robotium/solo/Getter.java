@@ -70,7 +70,7 @@ class Getter {
 
 	public <T extends TextView> T getView(Class<T> classToFilterBy, String text, boolean onlyVisible) {
 		// 获取指定class类型和text的第1个view,默认短超时
-		T viewToReturn = (T) waiter.waitForText(classToFilterBy, text, 0, Timeout.getSmallTimeout(), false, onlyVisible, false);
+		T viewToReturn = (T) waiter.waitForText(classToFilterBy, text, 0, waiter.newDeadline("getView '" + text + "'", Timeout.getSmallTimeout()), false, onlyVisible);
 		// 未找到提示异常
 		if(viewToReturn == null)
 			Assert.fail(classToFilterBy.getSimpleName() + " with text: '" + text + "' is not found!");
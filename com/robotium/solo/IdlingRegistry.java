@@ -0,0 +1,85 @@
+package com.robotium.solo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * 空闲资源注册表，进程内共享，被测应用和测试代码都可以注册
+ * The process wide registry of {@link IdlingResource}s. As it is static, resources can be registered by the
+ * application under test as well as by the test, before or after {@code Solo} has been created.
+ *
+ */
+
+public final class IdlingRegistry {
+	// 已注册的资源
+	private static final List<IdlingResource> resources = new CopyOnWriteArrayList<IdlingResource>();
+
+
+	/**
+	 * 不允许实例化
+	 * Not instantiable.
+	 */
+
+	private IdlingRegistry() {
+	}
+
+	/**
+	 * 注册资源，重复注册无影响
+	 * Registers a resource. Registering a resource twice has no effect.
+	 *
+	 * @param resource the resource to register
+	 */
+
+	public static void register(IdlingResource resource) {
+		if(resource == null){
+			throw new IllegalArgumentException("The resource can not be null");
+		}
+		synchronized (resources) {
+			if(!resources.contains(resource)){
+				resources.add(resource);
+			}
+		}
+	}
+
+	/**
+	 * 注销资源
+	 * Unregisters a resource.
+	 *
+	 * @param resource the resource to unregister
+	 * @return {@code true} if the resource was registered
+	 */
+
+	public static boolean unregister(IdlingResource resource) {
+		return resources.remove(resource);
+	}
+
+	/**
+	 * 获取所有已注册的资源
+	 * Returns the registered resources.
+	 *
+	 * @return a copy of the registered resources
+	 */
+
+	public static List<IdlingResource> getResources() {
+		return new ArrayList<IdlingResource>(resources);
+	}
+
+	/**
+	 * 获取当前忙碌的资源
+	 * Returns the registered resources that are currently busy.
+	 *
+	 * @return the busy resources, empty if all are idle
+	 */
+
+	static List<IdlingResource> getBusyResources() {
+		final List<IdlingResource> busyResources = new ArrayList<IdlingResource>();
+		for(IdlingResource resource : resources){
+			if(!resource.isIdleNow()){
+				busyResources.add(resource);
+			}
+		}
+		return busyResources;
+	}
+}
@@ -0,0 +1,28 @@
+package com.robotium.solo;
+
+/**
+ * 空闲资源接口，被测应用或测试代码通过它告诉Robotium当前是否忙碌
+ * Represents a resource of the application under test that can be busy, e.g. a network client or a
+ * background queue.<br/>
+ * Implementations are registered with {@link IdlingRegistry#register(IdlingResource)} and waited for by
+ * {@link Solo#waitForIdle(int)}, and before every wait and click if {@link Solo.Config#waitForIdlingResources} is set.
+ */
+public interface IdlingResource {
+
+	/**
+	 * 资源名称，用于诊断信息
+	 * Returns the name of this resource. It is used in the diagnostics of waits that time out.
+	 *
+	 * @return the name of this resource
+	 */
+	public String getName();
+
+	/**
+	 * 当前空闲返回true,忙碌返回false,会被频繁调用，不能阻塞
+	 * Returns whether this resource is idle. It is called often, from any thread, and must not block.
+	 *
+	 * @return {@code true} if idle and {@code false} if busy
+	 */
+	public boolean isIdleNow();
+
+}
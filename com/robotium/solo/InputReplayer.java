@@ -0,0 +1,91 @@
+package com.robotium.solo;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * 输入轨迹回放工具类，按原有间隔或缩放后的间隔重新生成事件时间，交给Sink注入
+ * Replays input traces read by {@link InputTraceReader}. The event times are moved to the present,
+ * keeping their spacing or scaling it, and every event is handed to a {@link Sink}. The replayer
+ * only uses plain values and a {@link Clock}, so it runs on the JVM with a fake sink.
+ *
+ */
+
+class InputReplayer {
+
+	/**
+	 * 回放事件的接收者
+	 * Receives the replayed events.
+	 */
+
+	interface Sink {
+
+		/**
+		 * 注入一个事件
+		 * Injects one event.
+		 *
+		 * @param record the event with its times moved to the present. It is reused for the next event
+		 * @param paced {@code true} if the event should be held back until its event time
+		 */
+
+		void inject(InputTraceRecord record, boolean paced);
+	}
+
+	// 回放事件的接收者
+	private final Sink sink;
+	// 时钟
+	private final Clock clock;
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param sink the sink that injects the events
+	 * @param clock the clock that gives the present time
+	 */
+
+	public InputReplayer(Sink sink, Clock clock) {
+		this.sink = sink;
+		this.clock = clock;
+	}
+
+	/**
+	 * 回放轨迹。timeScale大于0时按缩放后的时间实时发送，1为原速，0.5为两倍速；不大于0时保持原有时间间隔尽快发送
+	 * Replays a trace. If {@code timeScale} is greater than 0 the spacing of the events is scaled by it
+	 * and every event is held back until its time, so 1 replays at the recorded speed and 0.5 twice as
+	 * fast. Otherwise the events keep their recorded spacing but are injected as fast as possible.
+	 *
+	 * @param in the trace, closed when the replay ends or fails
+	 * @param timeScale the factor applied to the time between events, or 0 for full speed
+	 * @return the number of replayed events
+	 * @throws IOException if the trace can not be read
+	 */
+
+	public int replay(InputStream in, float timeScale) throws IOException {
+		// 文件头读取失败时由InputTraceReader关闭输入流
+		final InputTraceReader reader = new InputTraceReader(in);
+		final InputTraceRecord record = new InputTraceRecord();
+		final boolean paced = timeScale > 0;
+		final float scale = paced ? timeScale : 1;
+		int count = 0;
+		long firstEventTime = 0;
+		long start = 0;
+		try {
+			while(reader.read(record)){
+				if(count == 0){
+					firstEventTime = record.eventTime;
+					start = clock.uptimeMillis();
+				}
+				record.downTime = start + Math.round((record.downTime - firstEventTime) * scale);
+				record.eventTime = start + Math.round((record.eventTime - firstEventTime) * scale);
+				sink.inject(record, paced);
+				count++;
+			}
+		} finally {
+			reader.close();
+		}
+		return count;
+	}
+}
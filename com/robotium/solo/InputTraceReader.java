@@ -0,0 +1,144 @@
+package com.robotium.solo;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * 输入轨迹读取工具类，格式见InputTraceWriter
+ * Reads input traces written by {@link InputTraceWriter}.
+ *
+ */
+
+class InputTraceReader {
+	// 缓冲区大小64KB
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// 输入流
+	private final DataInputStream in;
+	// 上一个事件的时间
+	private long lastEventTime = 0;
+	// 上一个触摸事件各手指的坐标
+	private int[] lastXs = new int[2];
+	private int[] lastYs = new int[2];
+
+
+	/**
+	 * 构造函数，读取并校验文件头
+	 * Constructs this object and checks the header.
+	 *
+	 * @param in the stream to read from, it is buffered and owned by this reader
+	 * @throws IOException if the header can not be read or is not the header of a supported trace, the
+	 * stream is closed then
+	 */
+
+	public InputTraceReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+		try {
+			if(this.in.readInt() != InputTraceWriter.MAGIC){
+				throw new IOException("Not an input trace");
+			}
+			final int version = this.in.readUnsignedByte();
+			if(version != InputTraceWriter.VERSION){
+				throw new IOException("Unsupported input trace version " + version);
+			}
+		} catch (IOException e) {
+			try {
+				in.close();
+			} catch (IOException ignored) {}
+			throw e;
+		}
+	}
+
+	/**
+	 * 读取下一个事件到给定对象
+	 * Reads the next event into the given record.
+	 *
+	 * @param record the record to fill
+	 * @return {@code true} if an event was read and {@code false} at the end of the trace
+	 * @throws IOException if the trace can not be read or is truncated
+	 */
+
+	public boolean read(InputTraceRecord record) throws IOException {
+		final int type = in.read();
+		if(type < 0){
+			return false;
+		}
+		record.type = type;
+		record.action = (int) readVarint();
+		record.eventTime = lastEventTime + readSigned();
+		record.downTime = record.eventTime - readSigned();
+		lastEventTime = record.eventTime;
+		if(type == InputTraceRecord.MOTION){
+			record.pointerCount = (int) readVarint();
+			record.ensureCapacity(record.pointerCount);
+			if(lastXs.length < record.pointerCount){
+				final int[] xs = new int[record.pointerCount];
+				final int[] ys = new int[record.pointerCount];
+				System.arraycopy(lastXs, 0, xs, 0, lastXs.length);
+				System.arraycopy(lastYs, 0, ys, 0, lastYs.length);
+				lastXs = xs;
+				lastYs = ys;
+			}
+			for(int i = 0; i < record.pointerCount; i++){
+				record.pointerIds[i] = (int) readVarint();
+				lastXs[i] += (int) readSigned();
+				lastYs[i] += (int) readSigned();
+				record.xs[i] = (float) lastXs[i] / InputTraceWriter.COORDINATE_SCALE;
+				record.ys[i] = (float) lastYs[i] / InputTraceWriter.COORDINATE_SCALE;
+			}
+		}
+		else if(type == InputTraceRecord.KEY){
+			record.keyCode = (int) readVarint();
+			record.repeatCount = (int) readVarint();
+			record.metaState = (int) readVarint();
+		}
+		else{
+			throw new IOException("Unknown event type " + type);
+		}
+		return true;
+	}
+
+	/**
+	 * 关闭输入流
+	 * Closes the stream.
+	 *
+	 * @throws IOException if the stream can not be closed
+	 */
+
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * 读取zigzag编码的有符号数
+	 * Reads a zigzag encoded signed value.
+	 */
+
+	private long readSigned() throws IOException {
+		final long value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * 读取无符号变长整数
+	 * Reads an unsigned variable-length integer.
+	 */
+
+	private long readVarint() throws IOException {
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7){
+			final int b = in.read();
+			if(b < 0){
+				throw new EOFException("Truncated input trace");
+			}
+			value |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0){
+				return value;
+			}
+		}
+		throw new IOException("Malformed input trace");
+	}
+}
@@ -0,0 +1,65 @@
+package com.robotium.solo;
+
+
+/**
+ * 输入轨迹中的一个事件，触摸事件或按键事件，读写时复用同一个对象
+ * One event of an input trace, a touch event or a key event. It holds plain values only, so traces can be
+ * written, read and replayed without Android classes. Readers fill the same instance for every event.
+ *
+ */
+
+class InputTraceRecord {
+	// 触摸事件
+	static final int MOTION = 0;
+	// 按键事件
+	static final int KEY = 1;
+	// 事件类型，MOTION或KEY
+	int type;
+	// MotionEvent或KeyEvent的action
+	int action;
+	// 按下时间
+	long downTime;
+	// 事件时间
+	long eventTime;
+	// 手指数量
+	int pointerCount;
+	// 各手指的id和坐标
+	int[] pointerIds = new int[2];
+	float[] xs = new float[2];
+	float[] ys = new float[2];
+	// 按键码
+	int keyCode;
+	// 重复次数
+	int repeatCount;
+	// 功能键状态
+	int metaState;
+
+
+	/**
+	 * 保证能容纳给定数量的手指
+	 * Makes room for the given number of pointers.
+	 *
+	 * @param pointers the number of pointers
+	 */
+
+	void ensureCapacity(int pointers) {
+		if(pointerIds.length < pointers){
+			pointerIds = new int[pointers];
+			xs = new float[pointers];
+			ys = new float[pointers];
+		}
+	}
+
+	/**
+	 * 是否为一个事件序列的最后一个，即手指全部抬起或取消，或按键事件
+	 * Returns whether this event ends a sequence: a touch event lifting the last pointer or cancelling
+	 * the gesture, or any key event.
+	 *
+	 * @return {@code true} if the sequence ends with this event
+	 */
+
+	boolean endsSequence() {
+		// MotionEvent.ACTION_UP为1，ACTION_CANCEL为3
+		return type == KEY || action == 1 || action == 3;
+	}
+}
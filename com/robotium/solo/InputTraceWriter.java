@@ -0,0 +1,154 @@
+package com.robotium.solo;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * 输入轨迹写入工具类，紧凑的二进制格式：时间和坐标按与上一事件的差值变长编码
+ * Writes input traces in a compact binary format. After a header of {@link #MAGIC} and {@link #VERSION},
+ * every event is a type byte followed by variable-length integers:
+ * <ul>
+ * <li>the action,</li>
+ * <li>the event time as the difference to the previous event, and the down time as the difference to the event time,</li>
+ * <li>for touch events the pointer count, then per pointer the id and the x and y coordinates in
+ * 1/{@link #COORDINATE_SCALE} pixels as the difference to the same pointer index of the previous touch event,</li>
+ * <li>for key events the key code, the repeat count and the meta state.</li>
+ * </ul>
+ * Signed values are zigzag encoded, so the small differences of a gesture take one or two bytes each.
+ * The output is buffered; {@link #close()} flushes it.
+ *
+ */
+
+class InputTraceWriter {
+	// 文件头标识 "RBTR"
+	static final int MAGIC = 0x52425452;
+	// 格式版本
+	static final int VERSION = 1;
+	// 坐标精度，1/16像素
+	static final int COORDINATE_SCALE = 16;
+	// 缓冲区大小64KB
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// 输出流
+	private final DataOutputStream out;
+	// 上一个事件的时间
+	private long lastEventTime = 0;
+	// 上一个触摸事件各手指的坐标
+	private int[] lastXs = new int[2];
+	private int[] lastYs = new int[2];
+
+
+	/**
+	 * 构造函数，写入文件头
+	 * Constructs this object and writes the header.
+	 *
+	 * @param out the stream to write to, it is buffered and owned by this writer
+	 * @throws IOException if the header can not be written, the stream is closed then
+	 */
+
+	public InputTraceWriter(OutputStream out) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+		try {
+			this.out.writeInt(MAGIC);
+			this.out.writeByte(VERSION);
+		} catch (IOException e) {
+			try {
+				out.close();
+			} catch (IOException ignored) {}
+			throw e;
+		}
+	}
+
+	/**
+	 * 写入一个事件
+	 * Writes one event.
+	 *
+	 * @param record the event
+	 * @throws IOException if the event can not be written
+	 */
+
+	public synchronized void write(InputTraceRecord record) throws IOException {
+		out.writeByte(record.type);
+		writeVarint(record.action);
+		writeSigned(record.eventTime - lastEventTime);
+		writeSigned(record.eventTime - record.downTime);
+		lastEventTime = record.eventTime;
+		if(record.type == InputTraceRecord.MOTION){
+			writeVarint(record.pointerCount);
+			if(lastXs.length < record.pointerCount){
+				lastXs = grow(lastXs, record.pointerCount);
+				lastYs = grow(lastYs, record.pointerCount);
+			}
+			for(int i = 0; i < record.pointerCount; i++){
+				final int x = Math.round(record.xs[i] * COORDINATE_SCALE);
+				final int y = Math.round(record.ys[i] * COORDINATE_SCALE);
+				writeVarint(record.pointerIds[i]);
+				writeSigned(x - lastXs[i]);
+				writeSigned(y - lastYs[i]);
+				lastXs[i] = x;
+				lastYs[i] = y;
+			}
+		}
+		else{
+			writeVarint(record.keyCode);
+			writeVarint(record.repeatCount);
+			writeVarint(record.metaState);
+		}
+	}
+
+	/**
+	 * 写出缓冲区并关闭
+	 * Flushes the buffered events and closes the stream.
+	 *
+	 * @throws IOException if the stream can not be closed
+	 */
+
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * 写入有符号数，zigzag编码
+	 * Writes a signed value, zigzag encoded.
+	 *
+	 * @param value the value
+	 * @throws IOException if the value can not be written
+	 */
+
+	private void writeSigned(long value) throws IOException {
+		writeVarint((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * 写入无符号变长整数，每字节7位
+	 * Writes an unsigned variable-length integer, seven bits per byte.
+	 *
+	 * @param value the value
+	 * @throws IOException if the value can not be written
+	 */
+
+	private void writeVarint(long value) throws IOException {
+		while((value & ~0x7FL) != 0){
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * 扩大数组
+	 * Returns a copy of the array with the given length.
+	 *
+	 * @param array the array
+	 * @param length the new length
+	 * @return the copy
+	 */
+
+	private static int[] grow(int[] array, int length) {
+		final int[] grown = new int[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
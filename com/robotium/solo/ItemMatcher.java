@@ -0,0 +1,19 @@
+package com.robotium.solo;
+
+/**
+ * 列表数据项匹配接口
+ * Matches the data items of a list adapter.<br/>
+ * Implementations may be used with {@link Solo#scrollListToItem(android.widget.AbsListView, ItemMatcher)} to
+ * locate a row by the item it shows instead of by its rendered views.
+ */
+public interface ItemMatcher {
+
+	/**
+	 * 数据项符合条件返回true,不符合返回false,在UI线程调用
+	 * Should return whether the given item is the one searched for. It is called on the UI thread.
+	 * @param item the item returned by {@code Adapter.getItem(int)}, may be {@code null}
+	 * @return {@code true} if the item matches and {@code false} if it does not
+	 */
+	public boolean matches(Object item);
+
+}
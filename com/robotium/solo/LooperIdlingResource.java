@@ -0,0 +1,78 @@
+package com.robotium.solo;
+
+import java.lang.reflect.Field;
+import android.os.Looper;
+import android.os.Message;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.util.Log;
+
+
+/**
+ * 主线程消息队列空闲资源，没有到期的消息时空闲，延时消息不算忙碌
+ * Tracks the message queue of the main looper. It is idle when no message is due: messages posted with a
+ * delay, such as a blinking cursor, do not count until their time has come.
+ * <br><br>
+ * The queue is read via reflection, with the fields looked up once and cached for the process. It should be
+ * checked after the background resources, because finishing background work typically posts to the main looper.
+ *
+ */
+
+class LooperIdlingResource implements IdlingResource {
+	// 日志打印标签
+	private static final String LOG_TAG = "Robotium";
+	// 是否已查找反射字段
+	private static boolean resolved = false;
+	// 主线程消息队列
+	private static MessageQueue mainQueue;
+	// 消息队列头字段
+	private static Field messagesField;
+	// 消息执行时间字段
+	private static Field whenField;
+
+
+	public String getName() {
+		return "main looper";
+	}
+
+	public boolean isIdleNow() {
+		resolve();
+		if(mainQueue == null){
+			return true;
+		}
+		// 消息队列的方法都在自身上同步
+		synchronized (mainQueue) {
+			try {
+				final Message head = (Message) messagesField.get(mainQueue);
+				return head == null || whenField.getLong(head) > SystemClock.uptimeMillis();
+			} catch (IllegalAccessException e) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * 查找并缓存反射字段，只执行一次
+	 * Looks up the queue and fields once per process.
+	 */
+
+	private static synchronized void resolve() {
+		if(resolved){
+			return;
+		}
+		resolved = true;
+		try {
+			final Field queueField = Looper.class.getDeclaredField("mQueue");
+			queueField.setAccessible(true);
+			messagesField = MessageQueue.class.getDeclaredField("mMessages");
+			messagesField.setAccessible(true);
+			whenField = Message.class.getDeclaredField("when");
+			whenField.setAccessible(true);
+			mainQueue = (MessageQueue) queueField.get(Looper.getMainLooper());
+		} catch (NoSuchFieldException e) {
+			Log.w(LOG_TAG, "Main looper can not be tracked: " + e);
+		} catch (IllegalAccessException e) {
+			Log.w(LOG_TAG, "Main looper can not be tracked: " + e);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.robotium.solo;
+
+import android.os.SystemClock;
+
+
+/**
+ * 按目标时间发送事件的调度工具类，粗粒度sleep后自旋等待到目标时间，并记录实际偏差
+ * Holds back injected events until their target uptime. The wait sleeps until shortly before the target
+ * and then spins on {@link System#nanoTime()}, so events are released within a fraction of a millisecond
+ * of their target however fast the host is. Every target is absolute, so lateness does not accumulate
+ * over a gesture.
+ * <br><br>
+ * The difference between the release time and the target of every event is recorded in
+ * {@link WaitTelemetry#getInputJitter()} in microseconds.
+ *
+ */
+
+class PacingScheduler {
+	// 最后2ms自旋等待，不sleep
+	private static final long SPIN_NANOS = 2000000L;
+	// 每ms的纳秒数
+	private static final long NANOS_PER_MILLI = 1000000L;
+	// 延时等待工具类
+	private final Sleeper sleeper;
+	// 等待耗时统计，记录偏差
+	private final WaitTelemetry waitTelemetry;
+	// uptimeMillis与nanoTime的对应关系：uptimeMillis变为anchorUptime时的nanoTime
+	private long anchorUptime = -1;
+	private long anchorNanos;
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param sleeper the {@code Sleeper} instance
+	 * @param waitTelemetry the {@code WaitTelemetry} instance
+	 */
+
+	public PacingScheduler(Sleeper sleeper, WaitTelemetry waitTelemetry) {
+		this.sleeper = sleeper;
+		this.waitTelemetry = waitTelemetry;
+	}
+
+	/**
+	 * 等待到给定的uptime，已经过了时立即返回，并记录实际偏差
+	 * Waits until the given uptime and records how far from it the wait ended. Returns at once if the
+	 * time has passed.
+	 *
+	 * @param uptimeMillis the target in the time base of {@link SystemClock#uptimeMillis()}, e.g. the event time of a {@code MotionEvent}
+	 * @throws java.util.concurrent.CancellationException if the thread is interrupted or the instance has been shut down
+	 */
+
+	public synchronized void awaitUptime(long uptimeMillis) {
+		if(anchorUptime < 0){
+			anchor();
+		}
+		final long target = anchorNanos + (uptimeMillis - anchorUptime) * NANOS_PER_MILLI;
+		final long remaining = target - System.nanoTime();
+		// 先sleep到目标前2ms以内
+		if(remaining > SPIN_NANOS){
+			sleeper.sleep((int) ((remaining - SPIN_NANOS) / NANOS_PER_MILLI));
+		}
+		else{
+			sleeper.checkCancelled();
+		}
+		// 剩余时间自旋
+		long now = System.nanoTime();
+		while(now < target){
+			Thread.yield();
+			now = System.nanoTime();
+		}
+		waitTelemetry.recordInputJitter((now - target) / 1000);
+	}
+
+	/**
+	 * 在uptimeMillis跳变的时刻记录nanoTime，使两个时钟的对应关系精确到微秒
+	 * Records {@link System#nanoTime()} at the moment {@link SystemClock#uptimeMillis()} ticks, so that
+	 * millisecond targets map to nanoseconds within microseconds. Spins for at most one millisecond.
+	 */
+
+	private void anchor() {
+		final long start = SystemClock.uptimeMillis();
+		long uptime = start;
+		while(uptime == start){
+			uptime = SystemClock.uptimeMillis();
+		}
+		anchorNanos = System.nanoTime();
+		anchorUptime = uptime;
+	}
+}
@@ -29,6 +29,8 @@ class Presser{
 	private final DialogUtils dialogUtils;
 	// View获取工具类
 	private final ViewFetcher viewFetcher;
+	// 触摸和按键事件注入工具类
+	private final EventInjector eventInjector;
 
 
 	/**
@@ -41,15 +43,17 @@ class Presser{
 	 * @param sleeper the {@code Sleeper} instance
 	 * @param waiter the {@code Waiter} instance
 	 * @param dialogUtils the {@code DialogUtils} instance
+	 * @param eventInjector the {@code EventInjector} instance
 	 */
 
-	public Presser(ViewFetcher viewFetcher, Clicker clicker, Instrumentation inst, Sleeper sleeper, Waiter waiter, DialogUtils dialogUtils) {
+	public Presser(ViewFetcher viewFetcher, Clicker clicker, Instrumentation inst, Sleeper sleeper, Waiter waiter, DialogUtils dialogUtils, EventInjector eventInjector) {
 		this.viewFetcher = viewFetcher;
 		this.clicker = clicker;
 		this.inst = inst;
 		this.sleeper = sleeper;
 		this.waiter = waiter;
 		this.dialogUtils = dialogUtils;
+		this.eventInjector = eventInjector;
 	}
 
 
@@ -89,12 +93,12 @@ class Presser{
 		sleeper.sleep();
 		try{
 			// 点击Menu按钮
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_MENU);
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_MENU);
 			// 等待Menu出现
 			dialogUtils.waitForDialogToOpen(Timeout.getSmallTimeout(), true);
 			// 点击2次上方向键.Item位置回到第一个
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_UP);
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_UP);
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_UP);
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_UP);
 		}catch(SecurityException e){
 			Assert.fail("Can not press the menu!");
 		}
@@ -102,32 +106,32 @@ class Presser{
 		if (index < row[1]) {
 			for (int i = 0; i < index; i++) {
 				sleeper.sleepMini();
-				inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_RIGHT);
+				eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_RIGHT);
 			}
 		// 在第二行
 		} else if (index >= row[1] && index < row[2]) {
 			// 下移到下一行，即第二行
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_DOWN);	
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_DOWN);	
 			// 移动到指定的Item
 			for (int i = row[1]; i < index; i++) {
 				sleeper.sleepMini();
-				inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_RIGHT);
+				eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_RIGHT);
 			}
 			// 在第三行,或者之后的行
 		} else if (index >= row[2]) {
 			// 移动到第三行
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_DOWN);	
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_DOWN);	
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_DOWN);	
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_DOWN);	
 			// 移动到指定的Item
 			for (int i = row[2]; i < index; i++) {
 				sleeper.sleepMini();
-				inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_RIGHT);
+				eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_RIGHT);
 			}
 		}
 
 		try{
 			// 点击确认
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_ENTER);
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_ENTER);
 		}catch (SecurityException ignored) {}
 	}
 	
@@ -172,7 +176,7 @@ class Presser{
 
 		try{
 			// 发送事件，初始化位置,最下面
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_DOWN);
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_DOWN);
 		}catch(SecurityException ignored){}
 		// 如果指定的itemIndex为负值，那么往上移动
 		boolean countingUp = true;
@@ -187,18 +191,18 @@ class Presser{
 			// 向下
 			if(countingUp){
 				try{
-					inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_DOWN);
+					eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_DOWN);
 				}catch(SecurityException ignored){}
 			// 向下
 			}else{
 				try{
-					inst.sendKeyDownUpSync(KeyEvent.KEYCODE_DPAD_UP);
+					eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_DPAD_UP);
 				}catch(SecurityException ignored){}
 			}
 		}
 		// 点击确认按钮
 		try{
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_ENTER);
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_ENTER);
 		}catch(SecurityException ignored){}
 	}
 }
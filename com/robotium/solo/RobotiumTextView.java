@@ -16,6 +16,8 @@ class RobotiumTextView extends TextView {
 	private int locationX = 0;
 	// 屏幕中对应的Y坐标
 	private int locationY = 0;
+	// 对应的WebElement，未基于WebElement创建时为null
+	private WebElement webElement;
 
 	/**
 	 * 构造函数
@@ -78,4 +80,26 @@ class RobotiumTextView extends TextView {
 		this.locationY = locationY;
 	}
 
+	/**
+	 * 设置对应的WebElement
+	 * Sets the web element this {@code TextView} is based on.
+	 *
+	 * @param webElement the web element
+	 */
+
+	void setWebElement(WebElement webElement){
+		this.webElement = webElement;
+	}
+
+	/**
+	 * 获取对应的WebElement
+	 * Returns the web element this {@code TextView} is based on.
+	 *
+	 * @return the web element or {@code null} if it is not based on one
+	 */
+
+	WebElement getWebElement(){
+		return webElement;
+	}
+
 }
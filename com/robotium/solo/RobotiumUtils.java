@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import android.view.View;
@@ -134,36 +133,51 @@ public class RobotiumUtils {
 		if(view == null) {
 			return uniqueTextViews.size();
 		}
-		// 按照输入的regex构造正则对象
-		Pattern pattern = null;
+		// 匹配则加入uniqueTextViews.因uniqueTextViews为Set类型，所以不会存在重复view.重复add不生效
+		if (matches(getPattern(regex), view)){
+			uniqueTextViews.add(view);
+		}
+		// 返回uniqueTextViews总数
+		return uniqueTextViews.size();		
+	}
+
+	/**
+	 * 按照输入的regex构造正则对象，不是合法正则时按字面匹配
+	 * Compiles a regex, falling back to a literal match if it is not a valid regular expression.
+	 *
+	 * @param regex the regex to compile
+	 * @return the pattern
+	 */
+
+	static Pattern getPattern(String regex){
 		try{
-			pattern = Pattern.compile(regex);
+			return Pattern.compile(regex);
 		}catch(PatternSyntaxException e){
-			pattern = Pattern.compile(regex, Pattern.LITERAL);
+			return Pattern.compile(regex, Pattern.LITERAL);
 		}
+	}
+
+	/**
+	 * 校验view的文本内容，错误提示信息，以及文本为空时的帮助提醒信息是否与给定的正则匹配
+	 * Checks if the text of a view matches a pattern. The error and, if the text is empty, the hint are checked as well.
+	 *
+	 * @param pattern the pattern to match
+	 * @param view the view to check
+	 * @return {@code true} if the view matches
+	 */
+
+	static boolean matches(Pattern pattern, TextView view){
 		// 获取view 的 text并按照正则匹配
-		Matcher matcher = pattern.matcher(view.getText().toString());
-		//如果配置，把 view加入uniqueTextViews
-		if (matcher.find()){
-			uniqueTextViews.add(view);
+		final String text = view.getText().toString();
+		if (pattern.matcher(text).find()){
+			return true;
+		}
+		// 如果view设置了错误提示信息.那么错误提示信息也作为检查条件
+		if (view.getError() != null && pattern.matcher(view.getError().toString()).find()){
+			return true;
 		}
-		// 如果view设置了错误提示信息.那么错误提示信息也作为检查条件,如果错误信息匹配了输入的regex,
-		// 那么加入uniqueTextViews.因uniqueTextViews为Set类型，所以不会存在重复view.重复add不生效
-		if (view.getError() != null){
-			matcher = pattern.matcher(view.getError().toString());
-			if (matcher.find()){
-				uniqueTextViews.add(view);
-			}
-		}	
 		// 检查view 的提示信息是否和给定的regex匹配，如果配置也当做符合的view
-		if (view.getText().toString().equals("") && view.getHint() != null){
-			matcher = pattern.matcher(view.getHint().toString());
-			if (matcher.find()){
-				uniqueTextViews.add(view);
-			}
-		}	
-		// 返回uniqueTextViews总数
-		return uniqueTextViews.size();		
+		return text.equals("") && view.getHint() != null && pattern.matcher(view.getHint().toString()).find();
 	}
 
 	/**
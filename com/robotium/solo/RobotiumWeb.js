@@ -4,6 +4,11 @@
  * @author Renas Reda, renas.reda@robotium.com
  * 
  */
+// 滚动模式下要滚动到的匹配序号，从1开始，0表示不滚动
+var robotiumScrollToMatch = 0;
+// 滚动模式下缓存的匹配节点
+var robotiumMatches = [];
+
 // 获取所有的Web元素
 function allWebElements() {
 	for (var key in document.all){
@@ -284,7 +289,16 @@ function enterTextByTagName(tagName, text) {
 	finished();
 }
 // 获取Element属性，并调用prompt方法，弹出属性,Robotium修改过的WebClient抓取这些信息，来构造页面元素 Element
+// 滚动模式下先缓存，在finished()中滚动后统一提交
 function promptElement(element) {
+	if(robotiumScrollToMatch > 0){
+		robotiumMatches.push(element);
+		return;
+	}
+	promptElementData(element, true);
+}
+// 提交Element信息，onlyVisible为true时只提交当前可见的
+function promptElementData(element, onlyVisible) {
     // 获取element的id
 	var id = element.id;
 	// 获取element的 text
@@ -312,12 +326,21 @@ function promptElement(element) {
 	// 获取element大小,
 	var rect = element.getBoundingClientRect();
 	// 可见的element拼接字符串，传递给Robotium WebClient
-	if(rect.width > 0 && rect.height > 0 && rect.left >= 0 && rect.top >= 0){
+	if(rect.width > 0 && rect.height > 0 && (!onlyVisible || (rect.left >= 0 && rect.top >= 0))){
 		prompt(id + ';,' + text + ';,' + name + ";," + className + ";," + tagName + ";," + rect.left + ';,' + rect.top + ';,' + rect.width + ';,' + rect.height + ';,' + attributes);
 	}
 }
 // 按照range信息构造内容返回给Robotium WebClient
-function promptText(element, range) {	
+// 滚动模式下先缓存，在finished()中滚动后统一提交
+function promptText(element, range) {
+	if(robotiumScrollToMatch > 0){
+		robotiumMatches.push(element);
+		return;
+	}
+	promptTextData(element, range, true);
+}
+// 提交文本节点信息，onlyVisible为true时只提交当前可见的
+function promptTextData(element, range, onlyVisible) {	
     // 获取Elemet的text内容
 	var text = element.textContent;
 	if(text.trim().length>0) {
@@ -326,7 +349,7 @@ function promptText(element, range) {
 		// 获取尺寸信息
 		var rect = range.getBoundingClientRect();
 		// 只返回可见的 Element
-		if(rect.width > 0 && rect.height > 0 && rect.left >= 0 && rect.top >= 0){
+		if(rect.width > 0 && rect.height > 0 && (!onlyVisible || (rect.left >= 0 && rect.top >= 0))){
 			var id = element.parentNode.id;
 			var name = element.parentNode.getAttribute('name');
 			var className = element.parentNode.className;
@@ -336,7 +359,46 @@ function promptText(element, range) {
 	}
 }
 
+// 提交页面滚动偏移，Robotium据此计算元素在整个页面中的位置
+function pageOffset(){
+	prompt('robotium-scroll;,' + window.pageXOffset + ';,' + window.pageYOffset);
+}
+
+// 滚动模式：把第robotiumScrollToMatch个匹配滚动到可见区域中间，然后提交滚动偏移和所有匹配，不可见的也提交
+function scrollToMatch(){
+	var matches = robotiumMatches;
+	var index = robotiumScrollToMatch - 1;
+	robotiumMatches = [];
+	robotiumScrollToMatch = 0;
+	if(index < matches.length){
+		var target = matches[index];
+		// 文本节点按其父节点滚动
+		if(target.nodeType == 3){
+			target = target.parentNode;
+		}
+		var rect = target.getBoundingClientRect();
+		if(rect.top < 0 || rect.bottom > window.innerHeight || rect.left < 0 || rect.right > window.innerWidth){
+			window.scrollTo(window.pageXOffset + rect.left - Math.max(0, (window.innerWidth - rect.width) / 2), window.pageYOffset + rect.top - Math.max(0, (window.innerHeight - rect.height) / 2));
+		}
+	}
+	pageOffset();
+	var range = document.createRange();
+	for(var i = 0; i < matches.length; i++){
+		try{
+			if(matches[i].nodeType == 3){
+				promptTextData(matches[i], range, false);
+			}
+			else{
+				promptElementData(matches[i], false);
+			}
+		}catch(ignored){}
+	}
+}
+
 // js执行完毕，通知Robotium WebClient 完成了
 function finished(){
+	if(robotiumScrollToMatch > 0){
+		scrollToMatch();
+	}
 	prompt('robotium-finished');
 }
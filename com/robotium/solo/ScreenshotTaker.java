@@ -5,7 +5,9 @@ import java.io.FileOutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
 import com.robotium.solo.Solo.Config;
 import com.robotium.solo.Solo.Config.ScreenshotFileType;
 import android.graphics.Bitmap;
@@ -13,9 +15,6 @@ import android.graphics.Canvas;
 import android.graphics.Picture;
 import android.opengl.GLSurfaceView;
 import android.opengl.GLSurfaceView.Renderer;
-import android.os.Handler;
-import android.os.HandlerThread;
-import android.os.Message;
 import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
@@ -38,12 +37,12 @@ class ScreenshotTaker {
 	private final ActivityUtils activityUtils;
 	// 日志标记，标识该操作是Robotium的
 	private final String LOG_TAG = "Robotium";
-	// 连续截图线程
-	private ScreenshotSequenceThread screenshotSequenceThread = null;
-	// 图片存储处理线程
-	private HandlerThread screenShotSaverThread = null;
+	// 连续截图任务
+	private ScreenshotSequence screenshotSequence = null;
+	// 共享调度器，用于连续截图和保存图片
+	private final SharedScheduler scheduler;
 	// 图片保存工具类
-	private ScreenShotSaver screenShotSaver = null;
+	private final ScreenShotSaver screenShotSaver = new ScreenShotSaver();
 	// view查找工具类
 	private final ViewFetcher viewFetcher;
 	// 延时等待工具类
@@ -58,13 +57,15 @@ class ScreenshotTaker {
 	 * @param activityUtils the {@code ActivityUtils} instance
 	 * @param viewFetcher the {@code ViewFetcher} instance
 	 * @param sleeper the {@code Sleeper} instance
+	 * @param scheduler the {@code SharedScheduler} instance
 	 * 
 	 */
-	ScreenshotTaker(Config config, ActivityUtils activityUtils, ViewFetcher viewFetcher, Sleeper sleeper) {
+	ScreenshotTaker(Config config, ActivityUtils activityUtils, ViewFetcher viewFetcher, Sleeper sleeper, SharedScheduler scheduler) {
 		this.config = config;
 		this.activityUtils = activityUtils;
 		this.viewFetcher = viewFetcher;
 		this.sleeper = sleeper;
+		this.scheduler = scheduler;
 	}
 
 	/**
@@ -85,8 +86,6 @@ class ScreenshotTaker {
 		// 无法获取DecorView,直接退出
 		if(decorView == null) 
 			return;
-		// 初始化图片存储需要的一些事情
-		initScreenShotSaver();
 		// 构造截图线程
 		ScreenshotRunnable runnable = new ScreenshotRunnable(decorView, name, quality);
 		// 执行截图线程
@@ -122,16 +121,14 @@ class ScreenshotTaker {
 	 *
 	 */
 	public void startScreenshotSequence(final String name, final int quality, final int frameDelay, final int maxFrames) {
-		// 初始化截图保存相关
-		initScreenShotSaver();
 		// 禁止同时执行多个连续截图，当有连续截图在执行时抛出异常
-		if(screenshotSequenceThread != null) {
+		if(screenshotSequence != null) {
 			throw new RuntimeException("only one screenshot sequence is supported at a time");
 		}
-		// 构造一个连续截图线程
-		screenshotSequenceThread = new ScreenshotSequenceThread(name, quality, frameDelay, maxFrames);
-		// 开始连续截图
-		screenshotSequenceThread.start();
+		// 构造一个连续截图任务
+		screenshotSequence = new ScreenshotSequence(name, quality, maxFrames);
+		// 开始连续截图,在共享调度器中按间隔执行
+		screenshotSequence.start(frameDelay);
 	}
 
 	/**
@@ -142,12 +139,12 @@ class ScreenshotTaker {
 	 * progress, startScreenshotSequence() will throw an exception.
 	 */
 	public void stopScreenshotSequence() {
-		// 当连续截图线程非空时，停止连续截图
-		if(screenshotSequenceThread != null) {
+		// 当连续截图任务非空时，停止连续截图
+		if(screenshotSequence != null) {
 			// 停止连续截图
-			screenshotSequenceThread.interrupt();
-			// 释放线程对象
-			screenshotSequenceThread = null;
+			screenshotSequence.stop();
+			// 释放任务对象
+			screenshotSequence = null;
 		}
 	}
 
@@ -227,7 +224,8 @@ class ScreenshotTaker {
 		try {
 			latch.await();
 		} catch (InterruptedException ex) {
-			ex.printStackTrace();
+			// 恢复中断标记，交由调用方处理
+			Thread.currentThread().interrupt();
 		}
 	}
 
@@ -322,97 +320,85 @@ class ScreenshotTaker {
 		return fileName;
 	}
 
-	/**
-	 * 初始化图片存储相关资源
-	 * This method initializes the aysnc screenshot saving logic
-	 */
-	private void initScreenShotSaver() {
-		// 如果当前存储线程未初始化，则进行初始化
-		if(screenShotSaverThread == null || screenShotSaver == null) {
-			// 初始化一个处理线程
-			screenShotSaverThread = new HandlerThread("ScreenShotSaver");
-			// 开始运行线程
-			screenShotSaverThread.start();
-			// 初始化一个存储类
-			screenShotSaver = new ScreenShotSaver(screenShotSaverThread);
-		}
-	}
-
 	/** 
-	 * 连续截图线程
+	 * 连续截图任务，在共享调度器中按间隔执行
 	 * _name       截图保存名,会拼接上顺序0--_maxFrames-1
 	 * _quality    截图质量0-100
-	 * _frameDelay 截图间隔时间，单位 ms
 	 * _maxFrames  截图数量
-	 * This is the thread which causes a screenshot sequence to happen
-	 * in parallel with testing.
+	 * This is the task which causes a screenshot sequence to happen
+	 * in parallel with testing. It runs on the shared scheduler.
 	 */
-	private class ScreenshotSequenceThread extends Thread {
+	private class ScreenshotSequence implements Runnable {
 		// 开始点设置为0
 		private int seqno = 0;
 		// 保存的文件名
 		private String name;
 		// 图片质量0-100
 		private int quality;
-		// 截图延时，单位 ms
-		private int frameDelay;
 		// 需要截图的数量
 		private int maxFrames;
+		// 调度中的任务
+		private ScheduledFuture<?> future;
 
-		private boolean keepRunning = true;
+		private volatile boolean keepRunning = true;
 		// 构造函数
-		public ScreenshotSequenceThread(String _name, int _quality, int _frameDelay, int _maxFrames) {
+		public ScreenshotSequence(String _name, int _quality, int _maxFrames) {
 			name = _name;
 			quality = _quality; 
-			frameDelay = _frameDelay;
 			maxFrames = _maxFrames;
 		}
+		// 开始按间隔截图
+		public synchronized void start(int frameDelay) {
+			future = scheduler.scheduleWithFixedDelay(this, 0, frameDelay);
+		}
 
 		public void run() {
-			// 截图数量未达到指定值，继续截图
-			while(seqno < maxFrames) {
-				// 线程结束或业务已经完成则退出循环
-				if(!keepRunning || Thread.interrupted()) break;
-				// 截图
-				doScreenshot();
-				// 计算器+1
-				seqno++;
-				try {
-					// 等待指定的时间
-					Thread.sleep(frameDelay);
-				} catch (InterruptedException e) {
-				}
+			// 线程结束或截图数量已达到指定值则停止
+			if(!keepRunning || seqno >= maxFrames) {
+				finish();
+				return;
 			}
-			// 释放线程对象
-			screenshotSequenceThread = null;
+			// 截图
+			doScreenshot();
+			// 计算器+1
+			seqno++;
 		}
 		// 截图
 		public void doScreenshot() {
 			// 获取当前的屏幕DecorView
 			View v = getScreenshotView();
-			// 如果无法获取decorView 终止当前线程
+			// 如果无法获取decorView 终止当前任务
 			if(v == null) keepRunning = false;
 			// 拼接文件名
 			String final_name = name+"_"+seqno;
-			// 初始化截图线程
+			// 初始化截图任务
 			ScreenshotRunnable r = new ScreenshotRunnable(v, final_name, quality);
 			// 记录日志
 			Log.d(LOG_TAG, "taking screenshot "+final_name);
-			// 启动截图线程
+			// 在UI线程截图
 			activityUtils.getCurrentActivity(false).runOnUiThread(r);
 		}
-		// 停掉当前线程
-		public void interrupt() {
+		// 停掉当前任务
+		public void stop() {
 			// 标记为设置为false,停止截图
 			keepRunning = false;
-			super.interrupt();
+			finish();
+		}
+		// 取消调度并释放任务对象
+		private synchronized void finish() {
+			if(future != null) {
+				future.cancel(false);
+			}
+			if(screenshotSequence == this) {
+				screenshotSequence = null;
+			}
 		}
 	}
 
 	/**
 	 * 抓取当前屏幕并发送给对应图片处理器进行相关图片处理和保存
 	 * Here we have a Runnable which is responsible for taking the actual screenshot,
-	 * and then posting the bitmap to a Handler which will save it.
+	 * and then handing the bitmap to the saver which will save it.
 	 *
 	 * This Runnable is run on the UI thread.
 	 */
@@ -452,8 +438,10 @@ class ScreenshotTaker {
 	}
 
 	/**
-	 * 保存图片，通过异步线程完成
-	 * This class is a Handler which deals with saving the screenshots on a separate thread.
+	 * 保存图片，通过共享调度器在后台线程按提交顺序逐张完成，最多占用一个共享线程
+	 * This class deals with saving the screenshots on a thread of the shared scheduler. Saves run one
+	 * at a time in the order they were handed in, so they occupy at most one of the shared threads and
+	 * leave the other to activity tracking and asynchronous waits.
 	 *
 	 * The screenshot logic by necessity has to run on the ui thread.  However, in practice
 	 * it seems that saving a screenshot (with quality 100) takes approx twice as long
@@ -463,57 +451,86 @@ class ScreenshotTaker {
 	 * process approx 3x faster as far as the main thread is concerned.
 	 *
 	 */
-	private class ScreenShotSaver extends Handler {
-		// 构造函数
-		public ScreenShotSaver(HandlerThread thread) {
-			super(thread.getLooper());
-		}
+	private class ScreenShotSaver implements Runnable {
+		// 等待保存的图片，按提交顺序
+		private final LinkedList<Runnable> pendingSaves = new LinkedList<Runnable>();
+		// 是否已有保存任务在共享调度器上运行
+		private boolean saving = false;
 
 		/**
-		 * 保存图片,通过消息推送
+		 * 保存图片,加入队列，没有保存任务运行时交给共享调度器执行
 		 * bitmap  要保存的图片
 		 * name    图片名
 		 * quality 图片质量0-100
-		 * This method posts a Bitmap with meta-data to the Handler queue.
+		 * This method queues a Bitmap with meta-data and starts a save task on the shared scheduler if none is running.
 		 *
 		 * @param bitmap the bitmap to save
 		 * @param name the name of the file
 		 * @param quality the compression rate. From 0 (compress for lowest size) to 100 (compress for maximum quality).
 		 */
-		public void saveBitmap(Bitmap bitmap, String name, int quality) {
-			// 初始化构造一个消息
-			Message message = this.obtainMessage();
-			// 初始化消息属性
-			message.arg1 = quality;
-			message.obj = bitmap;
-			message.getData().putString("name", name);
-			// 发送消息，等待处理器处理
-			this.sendMessage(message);
+		public void saveBitmap(final Bitmap bitmap, final String name, final int quality) {
+			enqueue(new Runnable() {
+				public void run() {
+					// 处理图片内容
+					if(bitmap != null) {
+						// 保存图片到指定文件
+						saveFile(name, bitmap, quality);
+						// 释放图片缓存
+						bitmap.recycle();
+					}
+					// 如果图片无内容，则打印日志信息
+					else {
+						Log.d(LOG_TAG, "NULL BITMAP!!");
+					}
+				}
+			});
 		}
 
 		/**
-		 * 处理收到的消息
-		 * Here we process the Handler queue and save the bitmaps.
+		 * 加入队列，没有保存任务运行时启动一个
+		 * Queues a save and starts the save task if it is not running.
 		 *
-		 * @param message A Message containing the bitmap to save, and some metadata.
+		 * @param save the save to queue
 		 */
-		public void handleMessage(Message message) {
-			// 获取图片名
-			String name = message.getData().getString("name");
-			// 获取图片质量
-			int quality = message.arg1;
-			// 获取图片内容
-			Bitmap b = (Bitmap)message.obj;
-			// 处理图片内容
-			if(b != null) {
-				// 保存图片到指定文件
-				saveFile(name, b, quality);
-				// 释放图片缓存
-				b.recycle();
+		private void enqueue(Runnable save) {
+			synchronized (pendingSaves) {
+				pendingSaves.add(save);
+				if(saving){
+					return;
+				}
+				saving = true;
 			}
-			// 如果图片无内容，则打印日志信息
-			else {
-				Log.d(LOG_TAG, "NULL BITMAP!!");
+			try {
+				scheduler.execute(this);
+			} catch (RuntimeException e) {
+				synchronized (pendingSaves) {
+					pendingSaves.clear();
+					saving = false;
+				}
+				throw e;
+			}
+		}
+
+		/**
+		 * 依次保存队列中的图片，队列为空时结束
+		 * Saves the queued bitmaps one after another and ends when the queue is empty.
+		 */
+		public void run() {
+			while(true){
+				final Runnable save;
+				synchronized (pendingSaves) {
+					save = pendingSaves.poll();
+					if(save == null){
+						saving = false;
+						return;
+					}
+				}
+				// 单张保存失败不影响队列中之后的图片
+				try {
+					save.run();
+				} catch (RuntimeException e) {
+					Log.d(LOG_TAG, "Can't save the screenshot!", e);
+				}
 			}
 		}
 
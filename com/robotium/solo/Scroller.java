@@ -1,15 +1,23 @@
 package com.robotium.solo;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import com.robotium.solo.Solo.Config;
 import junit.framework.Assert;
 import android.app.Instrumentation;
+import android.graphics.Rect;
 import android.os.SystemClock;
+import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.webkit.WebView;
 import android.widget.AbsListView;
+import android.widget.Adapter;
 import android.widget.GridView;
+import android.widget.HorizontalScrollView;
 import android.widget.ListView;
 import android.widget.ScrollView;
 
@@ -42,6 +50,26 @@ class Scroller {
 	private final Sleeper sleeper;
 	// Robotium属性配置类
 	private final Config config;
+	// 等待耗时统计，记录滑动稳定耗时
+	private final WaitTelemetry waitTelemetry;
+	// 触摸事件注入工具类
+	private final EventInjector eventInjector;
+	// 按计划生成事件时间时，拖动事件的间隔10ms
+	private static final int DRAG_EVENT_INTERVAL = 10;
+	// 滑动稳定检查间隔，约一帧，sleep不与帧同步
+	private static final int SETTLE_POLL = 16;
+	// 位置连续不变的检查次数，跨越多个间隔，避免间隔恰好落在同一帧内
+	private static final int SETTLE_STABLE_POLLS = 3;
+	// 滑动稳定等待上限，与原来滑动后固定等待的时长相同
+	private static final int SETTLE_TIMEOUT = 500;
+	// ViewPager类名，兼容support库与androidx
+	private static final String[] VIEW_PAGER_CLASSES = {"android.support.v4.view.ViewPager", "androidx.viewpager.widget.ViewPager"};
+	// PagerAdapter的类名，支持support库和androidx
+	private static final String[] PAGER_ADAPTER_CLASSES = {"android.support.v4.view.PagerAdapter", "androidx.viewpager.widget.PagerAdapter"};
+	// 日志打印标签
+	private static final String LOG_TAG = "Robotium";
+	// RecyclerView类名，兼容support库与androidx
+	private static final String[] RECYCLER_VIEW_CLASSES = {"android.support.v7.widget.RecyclerView", "androidx.recyclerview.widget.RecyclerView"};
 
 
 	/**
@@ -52,14 +80,18 @@ class Scroller {
 	 * @param activityUtils the {@code ActivityUtils} instance
 	 * @param viewFetcher the {@code ViewFetcher} instance
 	 * @param sleeper the {@code Sleeper} instance
+	 * @param waitTelemetry the {@code WaitTelemetry} instance
+	 * @param eventInjector the {@code EventInjector} instance
 	 */
 
-	public Scroller(Config config, Instrumentation inst, ActivityUtils activityUtils, ViewFetcher viewFetcher, Sleeper sleeper) {
+	public Scroller(Config config, Instrumentation inst, ActivityUtils activityUtils, ViewFetcher viewFetcher, Sleeper sleeper, WaitTelemetry waitTelemetry, EventInjector eventInjector) {
 		this.config = config;
 		this.inst = inst;
 		this.activityUtils = activityUtils;
 		this.viewFetcher = viewFetcher;
 		this.sleeper = sleeper;
+		this.waitTelemetry = waitTelemetry;
+		this.eventInjector = eventInjector;
 	}
 
 
@@ -93,33 +125,44 @@ class Scroller {
 		float yStep = (toY - fromY) / stepCount;
 		// 计算每次增加X坐标量
 		float xStep = (toX - fromX) / stepCount;
+		// 异步或实时发送时按固定间隔生成事件时间，拖动速度不受发送耗时影响
+		final boolean plannedTimestamps = eventInjector.usesPlannedTimestamps();
 		// 构造MotionEvent,先按住
-		MotionEvent event = MotionEvent.obtain(downTime, eventTime,MotionEvent.ACTION_DOWN, fromX, fromY, 0);
-		try {
-			// 通过Instrument发送按住事件
-			inst.sendPointerSync(event);
-			// 抓取可能出现的异常
-		} catch (SecurityException ignored) {}
+		injectDragEvent(downTime, eventTime, MotionEvent.ACTION_DOWN, fromX, fromY);
 		// 按照设置的步数，发送Move事件
 		for (int i = 0; i < stepCount; ++i) {
 			y += yStep;
 			x += xStep;
-			eventTime = SystemClock.uptimeMillis();
+			eventTime = plannedTimestamps ? eventTime + DRAG_EVENT_INTERVAL : SystemClock.uptimeMillis();
 			// 构造 MOVE事件
-			event = MotionEvent.obtain(downTime, eventTime,MotionEvent.ACTION_MOVE, x, y, 0);
-			try {
-				// 通过Instrument发送按住事件
-				inst.sendPointerSync(event);
-				// 抓取可能出现的异常
-			} catch (SecurityException ignored) {}
+			injectDragEvent(downTime, eventTime, MotionEvent.ACTION_MOVE, x, y);
 		}
 		// 获取系统当前时间
-		eventTime = SystemClock.uptimeMillis();
+		eventTime = plannedTimestamps ? eventTime + DRAG_EVENT_INTERVAL : SystemClock.uptimeMillis();
 		// 构造松开事件
-		event = MotionEvent.obtain(downTime, eventTime, MotionEvent.ACTION_UP,toX, toY, 0);
+		injectDragEvent(downTime, eventTime, MotionEvent.ACTION_UP, toX, toY);
+	}
+
+	/**
+	 * 发送一个拖动事件并回收，松开事件同步发送
+	 * Injects one event of a drag and recycles it. The up event ends the sequence and is sent synchronously.
+	 *
+	 * @param downTime the time of the down event
+	 * @param eventTime the time of this event
+	 * @param action the action
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 */
+
+	private void injectDragEvent(long downTime, long eventTime, int action, float x, float y) {
+		final MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
 		try {
-			inst.sendPointerSync(event);
-		} catch (SecurityException ignored) {}
+			eventInjector.inject(event, action == MotionEvent.ACTION_UP);
+			// 抓取可能出现的异常
+		} catch (SecurityException ignored) {
+		} finally {
+			event.recycle();
+		}
 	}
 
 
@@ -130,10 +173,11 @@ class Scroller {
 	 * Scrolls a ScrollView.
 	 * direction 拖动方向 0 滚动条向上拉动,1滚动条向下拉动
 	 * @param direction the direction to be scrolled
+	 * @param deadline the deadline shared with the caller
 	 * @return {@code true} if scrolling occurred, false if it did not
 	 */
 
-	private boolean scrollScrollView(final ScrollView view, int direction){
+	private boolean scrollScrollView(final ScrollView view, int direction, Deadline deadline){
 		// null 检查，比较传入null参数引发异常
 		if(view == null){
 			return false;
@@ -159,6 +203,8 @@ class Scroller {
 				view.scrollBy(0, scrollAmount);
 			}
 		});
+		// 等待布局稳定后再比较位置
+		waitForScrollToSettle(view, deadline);
 		// 滚动条坐标未变化，标识本次拖动动作失败.已经处于顶端了，触发无效果
 		if (originalY == view.getScrollY()) {
 			return false;
@@ -169,14 +215,78 @@ class Scroller {
 	}
 
 	/**
-	 * 滚动条滑到底部或者顶部，已经处于顶部，调用该方法拖动到顶部将引发死循环
-	 * Scrolls a ScrollView to top or bottom.
+	 * 滚动条滑到底部或者顶部，按内容高度计算偏移，在UI线程一次完成
+	 * Scrolls a ScrollView to top or bottom. The offset is computed from the height of the content, so the
+	 * view is scrolled in a single operation on the UI thread.
 	 *
 	 * @param direction the direction to be scrolled
+	 * @param deadline the deadline shared with the caller
+	 */
+
+	private void scrollScrollViewAllTheWay(final ScrollView view, final int direction, Deadline deadline) {
+		inst.runOnMainSync(new Runnable(){
+			public void run(){
+				int scrollTo = 0;
+				final View content = view.getChildAt(0);
+				if(direction == DOWN && content != null){
+					scrollTo = Math.max(0, content.getBottom() + view.getPaddingBottom() - view.getHeight());
+				}
+				view.scrollTo(view.getScrollX(), scrollTo);
+			}
+		});
+		waitForScrollToSettle(view, deadline);
+	}
+
+	/**
+	 * 把给定view滚动到可见区域：由view所在的ScrollView、ListView等祖先按精确偏移一次滚动，然后检查是否可见
+	 * Scrolls the given view into sight. The rectangle of the view is requested on screen, so every
+	 * scrolling ancestor such as a ScrollView or a ListView scrolls once by the exact offset, without
+	 * animation. Then waits for the scroll to settle and verifies that the view is shown.
+	 *
+	 * @param view the view to scroll to
+	 * @param deadline the deadline shared with the caller
+	 * @return {@code true} if the view is shown after scrolling
+	 */
+
+	public boolean scrollToView(final View view, Deadline deadline) {
+		if(view == null){
+			return false;
+		}
+		final String previousPhase = deadline.enter("scroll");
+		deadline.count("scroll");
+		inst.runOnMainSync(new Runnable(){
+			public void run(){
+				view.requestRectangleOnScreen(new Rect(0, 0, view.getWidth(), view.getHeight()), true);
+			}
+		});
+		deadline.enter(previousPhase);
+		waitForScrollToSettle(getScrollingAncestor(view), deadline);
+		final boolean[] shown = new boolean[1];
+		inst.runOnMainSync(new Runnable(){
+			public void run(){
+				shown[0] = view.isShown() && view.getGlobalVisibleRect(new Rect());
+			}
+		});
+		return shown[0];
+	}
+
+	/**
+	 * 获取view最近的可滚动祖先，没有时返回view本身
+	 * Returns the nearest ancestor of a view that scrolls, or the view itself if there is none.
+	 *
+	 * @param view the view
+	 * @return the nearest scrolling ancestor or the view
 	 */
 
-	private void scrollScrollViewAllTheWay(final ScrollView view, final int direction) {
-		while(scrollScrollView(view, direction));
+	private View getScrollingAncestor(View view) {
+		ViewParent parent = view.getParent();
+		while(parent instanceof View){
+			if(parent instanceof AbsListView || parent instanceof ScrollView || parent instanceof HorizontalScrollView || parent instanceof WebView){
+				return (View) parent;
+			}
+			parent = parent.getParent();
+		}
+		return view;
 	}
 
 	/**
@@ -207,6 +317,28 @@ class Scroller {
 		return scroll(Scroller.DOWN);
 	}
 
+	/**
+	 * 拖动到顶部，耗时计入给定截止时间的scroll阶段
+	 * Scrolls down, consuming the budget of the given deadline.
+	 *
+	 * @param deadline the deadline shared with the caller
+	 * @return {@code true} if more scrolling can be done
+	 */
+
+	public boolean scrollDown(Deadline deadline) {
+		// 如果配置设置了禁止拖动，那么将不拖动控件
+		if(!config.shouldScroll) {
+			return false;
+		}
+		final String previousPhase = deadline.enter("scroll");
+		deadline.count("scroll");
+		try {
+			return scroll(Scroller.DOWN, false, deadline);
+		} finally {
+			deadline.enter(previousPhase);
+		}
+	}
+
 	/**
 	 * 拖动当前页面的可拖动控件
 	 * direction  0拖动到顶部,1拖动到底部
@@ -219,6 +351,21 @@ class Scroller {
 	 */
 
 	public boolean scroll(int direction, boolean allTheWay) {
+		return scroll(direction, allTheWay, Deadline.unbounded(sleeper.getClock(), "scroll"));
+	}
+
+	/**
+	 * 拖动当前页面的可拖动控件，等待时间不超过给定截止时间的剩余时间
+	 * Scrolls up and down, consuming the budget of the given deadline.
+	 *
+	 * @param direction the direction in which to scroll
+	 * @param allTheWay <code>true</code> if the view should be scrolled to the beginning or end,
+	 *                  <code>false</code> to scroll one page up or down.
+	 * @param deadline the deadline shared with the caller
+	 * @return {@code true} if more scrolling can be done
+	 */
+
+	public boolean scroll(int direction, boolean allTheWay, Deadline deadline) {
 		// 获取所有的Clicker可操作Views
 		final ArrayList<View> viewList = RobotiumUtils.
 				removeInvisibleViews(viewFetcher.getAllViews(true));
@@ -235,20 +382,23 @@ class Scroller {
 		}
 		// 是一个列表控件，则使用列表控件方法操作
 		if (view instanceof AbsListView) {
-			return scrollList((AbsListView)view, direction, allTheWay);
+			return scrollList((AbsListView)view, direction, allTheWay, deadline);
 		}
 		// 如果是一个可拖动控件，则按照可拖动控件方法操作
 		if (view instanceof ScrollView) {
 			if (allTheWay) {
-				scrollScrollViewAllTheWay((ScrollView) view, direction);
+				scrollScrollViewAllTheWay((ScrollView) view, direction, deadline);
 				return false;
 			} else {
-				return scrollScrollView((ScrollView)view, direction);
+				return scrollScrollView((ScrollView)view, direction, deadline);
 			}
 		}
 		// 如果是一个WebView控件，则按照WebView方法操作
 		if(view instanceof WebView){
-			return scrollWebView((WebView)view, direction, allTheWay);
+			final boolean canScrollMore = scrollWebView((WebView)view, direction, allTheWay);
+			// 翻页带有滚动动画，等待动画结束
+			waitForScrollToSettle(view, deadline);
+			return canScrollMore;
 		}
 		// 非上述控件类型，返回false
 		return false;
@@ -304,6 +454,21 @@ class Scroller {
 	 */
 
 	public <T extends AbsListView> boolean scrollList(T absListView, int direction, boolean allTheWay) {
+		return scrollList(absListView, direction, allTheWay, Deadline.unbounded(sleeper.getClock(), "scrollList"));
+	}
+
+	/**
+	 * 拖动一个列表，等待时间不超过给定截止时间的剩余时间
+	 * Scrolls a list, consuming the budget of the given deadline.
+	 *
+	 * @param absListView the list to be scrolled
+	 * @param direction the direction to be scrolled
+	 * @param allTheWay {@code true} to scroll the view all the way up or down, {@code false} to scroll one page up or down
+	 * @param deadline the deadline shared with the caller
+	 * @return {@code true} if more scrolling can be done
+	 */
+
+	public <T extends AbsListView> boolean scrollList(T absListView, int direction, boolean allTheWay, Deadline deadline) {
 		// 非null校验
 		if(absListView == null){
 			return false;
@@ -348,10 +513,86 @@ class Scroller {
 
 			scrollListToLine(absListView, lineToScrollTo);
 		}
-		sleeper.sleep();
+		waitForScrollToSettle(absListView, deadline);
 		return true;
 	}
 
+	/**
+	 * 等待滑动稳定：连续多次检查位置相同且没有待处理的布局时返回，最多等待500ms，耗时计入settle阶段
+	 * Waits until a scroll step has settled: the scroll position stays the same over
+	 * {@link #SETTLE_STABLE_POLLS} consecutive polls and no layout is pending. The polls are about a frame
+	 * apart but not synchronized with frames, so two polls can fall into the same frame; requiring the
+	 * position to hold over more than one interval keeps a fling between two frames from looking settled.
+	 * Waits at most as long as the fixed pause that was used before, bounded by the deadline. The time is
+	 * charged to the "settle" phase and recorded in {@link WaitTelemetry#getScrollSettleTimes()}.
+	 *
+	 * @param view the scrolled view
+	 * @param deadline the deadline shared with the caller
+	 */
+
+	private void waitForScrollToSettle(View view, Deadline deadline) {
+		final long startTime = sleeper.uptimeMillis();
+		final long endTime = startTime + Math.min(SETTLE_TIMEOUT, deadline.remaining());
+		final String previousPhase = deadline.enter("settle");
+		try {
+			long[] previousPosition = null;
+			// 位置连续不变的次数
+			int stablePolls = 0;
+			while(true){
+				final long[] position = getScrollPosition(view);
+				// 最后一项为1表示布局未完成
+				if(Arrays.equals(position, previousPosition) && position[position.length - 1] == 0){
+					stablePolls++;
+				}
+				else{
+					stablePolls = 0;
+				}
+				if(stablePolls >= SETTLE_STABLE_POLLS - 1 || sleeper.uptimeMillis() >= endTime){
+					break;
+				}
+				previousPosition = position;
+				sleeper.sleep(SETTLE_POLL);
+			}
+		} finally {
+			deadline.enter(previousPhase);
+		}
+		deadline.count("settle");
+		waitTelemetry.recordScrollSettle(sleeper.uptimeMillis() - startTime);
+	}
+
+	/**
+	 * 在UI线程读取滑动位置：滚动坐标，列表的首个可见行及其顶部位置，是否有待处理的布局
+	 * Reads the scroll position on the UI thread: the scroll offsets, for lists the first visible position and
+	 * the top of its row, and whether a layout is pending.
+	 *
+	 * @param view the scrolled view
+	 * @return the position, the last element is {@code 1} if a layout is pending
+	 */
+
+	private long[] getScrollPosition(final View view) {
+		final long[] position = new long[5];
+		inst.runOnMainSync(new Runnable(){
+			public void run(){
+				position[0] = view.getScrollX();
+				position[1] = view.getScrollY();
+				if(view instanceof AbsListView){
+					final AbsListView list = (AbsListView) view;
+					final View firstRow = list.getChildAt(0);
+					position[2] = list.getFirstVisiblePosition();
+					position[3] = firstRow != null ? firstRow.getTop() : 0;
+				}
+				// RecyclerView等通过移动子View滚动，滚动坐标不变，记录首个子View的位置
+				else if(view instanceof ViewGroup && ((ViewGroup) view).getChildCount() > 0){
+					final View firstChild = ((ViewGroup) view).getChildAt(0);
+					position[2] = firstChild.getLeft();
+					position[3] = firstChild.getTop();
+				}
+				position[4] = view.isLayoutRequested() ? 1 : 0;
+			}
+		});
+		return position;
+	}
+
 
 	/**
 	 * 拖动列表内容到指定的行
@@ -382,6 +623,103 @@ class Scroller {
 	}
 
 
+	/**
+	 * 按数据项查找列表行并直接跳转：在UI线程遍历adapter的数据项，不需要渲染，找到后一次setSelection跳到该行并等待其渲染
+	 * Scrolls a list to the first row whose adapter item matches. The items are scanned on the UI thread
+	 * through {@code Adapter.getItem(int)} without rendering them, and the list jumps to the matching
+	 * position with a single {@code setSelection}, unless the row is already shown. Then waits until the
+	 * row has been rendered.
+	 *
+	 * @param list the list to scroll
+	 * @param matcher the matcher of the adapter items
+	 * @param deadline the deadline shared with the caller
+	 * @return the row view or {@code null} if no item matches or the row is not rendered before the deadline
+	 */
+
+	public View scrollListToItem(final AbsListView list, final ItemMatcher matcher, Deadline deadline) {
+		if(list == null){
+			return null;
+		}
+		final int[] position = {AbsListView.INVALID_POSITION};
+		final RuntimeException[] failure = new RuntimeException[1];
+		final String previousPhase = deadline.enter("search");
+		inst.runOnMainSync(new Runnable(){
+			public void run(){
+				try {
+					final Adapter adapter = list.getAdapter();
+					final int count = adapter != null ? adapter.getCount() : 0;
+					for(int i = 0; i < count; i++){
+						if(matcher.matches(adapter.getItem(i))){
+							position[0] = i;
+							break;
+						}
+					}
+					// 行未完整显示时才跳转
+					if(position[0] != AbsListView.INVALID_POSITION && !isRowFullyShown(list, position[0])){
+						list.setSelection(position[0]);
+					}
+				} catch (RuntimeException e) {
+					failure[0] = e;
+				}
+			}
+		});
+		deadline.enter(previousPhase);
+		// 匹配器抛出的异常在调用线程重新抛出
+		if(failure[0] != null){
+			throw failure[0];
+		}
+		if(position[0] == AbsListView.INVALID_POSITION){
+			return null;
+		}
+		deadline.count("scroll");
+		waitForScrollToSettle(list, deadline);
+		// 等待目标行渲染出来，在UI线程查找行，避免读到布局中的列表状态
+		while(true){
+			final View row = getRow(list, position[0]);
+			if(row != null){
+				return row;
+			}
+			if(deadline.isExpired()){
+				return null;
+			}
+			sleeper.sleep(SETTLE_POLL, deadline);
+		}
+	}
+
+	/**
+	 * 在UI线程获取指定位置的行，未渲染时返回null
+	 * Returns the row at the given position, looked up on the UI thread so that it does not race with
+	 * the layout of the list.
+	 *
+	 * @param list the list
+	 * @param position the adapter position of the row
+	 * @return the row view or {@code null} if it is not shown
+	 */
+
+	private View getRow(final AbsListView list, final int position) {
+		final View[] row = new View[1];
+		inst.runOnMainSync(new Runnable(){
+			public void run(){
+				row[0] = list.getChildAt(position - list.getFirstVisiblePosition());
+			}
+		});
+		return row[0];
+	}
+
+	/**
+	 * 指定位置的行是否完整显示，在UI线程调用
+	 * Returns whether the row at the given position is shown completely. Called on the UI thread.
+	 *
+	 * @param list the list
+	 * @param position the adapter position of the row
+	 * @return {@code true} if the row is shown completely
+	 */
+
+	private boolean isRowFullyShown(AbsListView list, int position) {
+		final View row = list.getChildAt(position - list.getFirstVisiblePosition());
+		return row != null && row.getTop() >= 0 && row.getBottom() <= list.getHeight();
+	}
+
 	/**
 	 * 横向拖动,拖动默认拆分成40步操作
 	 * side           指定拖动方向
@@ -394,6 +732,10 @@ class Scroller {
 
 	@SuppressWarnings("deprecation")
 	public void scrollToSide(Side side, float scrollPosition) {
+		// 开启时优先直接滚动当前的横向容器
+		if(config.scrollContainersProgrammatically && scrollContainerToSide(getHorizontalContainer(), side, scrollPosition)){
+			return;
+		}
 		// 获取屏幕高度
 		int screenHeight = activityUtils.getCurrentActivity().getWindowManager().getDefaultDisplay()
 				.getHeight();
@@ -425,6 +767,10 @@ class Scroller {
 	 */
 
 	public void scrollViewToSide(View view, Side side, float scrollPosition) {
+		// 开启时优先直接滚动横向容器
+		if(config.scrollContainersProgrammatically && scrollContainerToSide(view, side, scrollPosition)){
+			return;
+		}
 		// 临时变量，存储控件在手机屏幕中的相对坐标
 		int[] corners = new int[2];
 		// 获取相对坐标
@@ -445,4 +791,177 @@ class Scroller {
 			drag(x, corners[0], y, y, 40);
 	}
 
+	/**
+	 * 获取当前可见的最新的横向容器：HorizontalScrollView、ViewPager或可横向滚动的RecyclerView
+	 * Returns the freshest shown horizontal container: a HorizontalScrollView, a ViewPager or a
+	 * RecyclerView that scrolls horizontally.
+	 *
+	 * @return the container or {@code null} if none is shown
+	 */
+
+	private View getHorizontalContainer() {
+		final ArrayList<View> containers = new ArrayList<View>();
+		for(View view : RobotiumUtils.removeInvisibleViews(viewFetcher.getAllViews(true))){
+			if(view instanceof HorizontalScrollView || isInstanceOf(view, VIEW_PAGER_CLASSES)
+					|| (isInstanceOf(view, RECYCLER_VIEW_CLASSES) && canScrollHorizontally(view))){
+				containers.add(view);
+			}
+		}
+		return viewFetcher.getFreshestView(containers);
+	}
+
+	/**
+	 * 不发送拖动事件，直接滚动横向容器一步并等待滚动稳定。ViewPager翻一页，HorizontalScrollView和RecyclerView按宽度比例滚动
+	 * Scrolls a horizontal container one step without a drag gesture and waits for the scroll to settle.
+	 * A ViewPager is moved to the adjacent page with {@code setCurrentItem}, a HorizontalScrollView or a
+	 * RecyclerView is scrolled by the given fraction of its width with {@code scrollBy}.
+	 *
+	 * @param view the container
+	 * @param side the side to which to scroll; {@link Side#RIGHT} shows the content to the right
+	 * @param scrollPosition the fraction of the width to scroll, from 0 to 1. Ignored for a ViewPager
+	 * @return {@code true} if the view is a supported container and was scrolled, {@code false} to fall back to a drag
+	 */
+
+	private boolean scrollContainerToSide(final View view, Side side, float scrollPosition) {
+		if(view == null){
+			return false;
+		}
+		final int direction = side == Side.RIGHT ? 1 : -1;
+		final Deadline deadline = Deadline.unbounded(sleeper.getClock(), "scrollToSide");
+		if(isInstanceOf(view, VIEW_PAGER_CLASSES)){
+			if(!scrollViewPager(view, direction)){
+				return false;
+			}
+		}
+		else if(view instanceof HorizontalScrollView || isInstanceOf(view, RECYCLER_VIEW_CLASSES)){
+			final int amount = direction * Math.round(view.getWidth() * scrollPosition);
+			inst.runOnMainSync(new Runnable(){
+				public void run(){
+					view.scrollBy(amount, 0);
+				}
+			});
+		}
+		else{
+			return false;
+		}
+		deadline.count("scroll");
+		waitForScrollToSettle(view, deadline);
+		return true;
+	}
+
+	/**
+	 * 在UI线程把ViewPager切换到相邻页，不使用动画，已在首页或末页时不切换
+	 * Moves a ViewPager to the adjacent page on the UI thread, without the smooth scroll animation.
+	 * The methods are looked up on the library classes {@code ViewPager} and {@code PagerAdapter}, so that
+	 * private and anonymous subclasses work; if those are not found they are looked up on the runtime class
+	 * and made accessible.
+	 *
+	 * @param viewPager the ViewPager
+	 * @param direction {@code 1} for the next page and {@code -1} for the previous page
+	 * @return {@code false} if the methods of the ViewPager could not be called
+	 */
+
+	private boolean scrollViewPager(final View viewPager, final int direction) {
+		final boolean[] scrolled = new boolean[1];
+		inst.runOnMainSync(new Runnable(){
+			public void run(){
+				try {
+					final Object adapter = getMethod(viewPager, VIEW_PAGER_CLASSES, "getAdapter").invoke(viewPager);
+					if(adapter == null){
+						return;
+					}
+					final int count = (Integer) getMethod(adapter, PAGER_ADAPTER_CLASSES, "getCount").invoke(adapter);
+					final int currentItem = (Integer) getMethod(viewPager, VIEW_PAGER_CLASSES, "getCurrentItem").invoke(viewPager);
+					final int item = Math.max(0, Math.min(count - 1, currentItem + direction));
+					if(item != currentItem){
+						getMethod(viewPager, VIEW_PAGER_CLASSES, "setCurrentItem", int.class, boolean.class).invoke(viewPager, item, false);
+					}
+					scrolled[0] = true;
+				} catch (Exception e) {
+					Log.w(LOG_TAG, "ViewPager can not be scrolled programmatically, falling back to a drag: " + e);
+				}
+			}
+		});
+		return scrolled[0];
+	}
+
+	/**
+	 * 判断view是否可以横向滚动
+	 * Returns whether a view can scroll horizontally in either direction. Requires API level 14.
+	 *
+	 * @param view the view
+	 * @return {@code true} if the view can scroll horizontally, {@code false} below API level 14
+	 */
+
+	private boolean canScrollHorizontally(final View view) {
+		if(android.os.Build.VERSION.SDK_INT < 14){
+			return false;
+		}
+		final boolean[] canScroll = new boolean[1];
+		inst.runOnMainSync(new Runnable(){
+			public void run(){
+				canScroll[0] = view.canScrollHorizontally(1) || view.canScrollHorizontally(-1);
+			}
+		});
+		return canScroll[0];
+	}
+
+	/**
+	 * 按类名判断view是否为给定类型的实例，用于不依赖support库识别控件
+	 * Returns whether a view is an instance of one of the given classes, compared by name so that no
+	 * dependency on the support libraries is needed.
+	 *
+	 * @param view the view
+	 * @param classNames the fully qualified class names
+	 * @return {@code true} if the view or one of its superclasses has one of the given names
+	 */
+
+	private static boolean isInstanceOf(View view, String[] classNames) {
+		return findClass(view, classNames) != null;
+	}
+
+	/**
+	 * 在对象的类和父类中查找给定类名的类
+	 * Returns the class or superclass of an object that has one of the given names.
+	 *
+	 * @param object the object
+	 * @param classNames the fully qualified class names
+	 * @return the matching class or {@code null} if there is none
+	 */
+
+	private static Class<?> findClass(Object object, String[] classNames) {
+		for(Class<?> objectClass = object.getClass(); objectClass != null && objectClass != Object.class; objectClass = objectClass.getSuperclass()){
+			for(String className : classNames){
+				if(className.equals(objectClass.getName())){
+					return objectClass;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 获取公开方法，优先在给定类名的库类上查找，找不到时在实际类上查找并设为可访问
+	 * Returns a public method, looked up on the library class with one of the given names. If the object
+	 * does not extend such a class, the method is looked up on its runtime class and made accessible.
+	 *
+	 * @param object the object the method is called on
+	 * @param classNames the fully qualified names of the library classes
+	 * @param name the name of the method
+	 * @param parameterTypes the parameter types of the method
+	 * @return the method
+	 * @throws NoSuchMethodException if the method does not exist
+	 */
+
+	private static Method getMethod(Object object, String[] classNames, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+		final Class<?> libraryClass = findClass(object, classNames);
+		if(libraryClass != null){
+			return libraryClass.getMethod(name, parameterTypes);
+		}
+		Log.w(LOG_TAG, object.getClass().getName() + " does not extend a known library class, calling " + name + "() on it directly");
+		final Method method = object.getClass().getMethod(name, parameterTypes);
+		method.setAccessible(true);
+		return method;
+	}
+
 }
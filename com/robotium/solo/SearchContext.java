@@ -0,0 +1,72 @@
+package com.robotium.solo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import android.view.View;
+
+
+/**
+ * 单次查找的状态，每次查找或等待创建一个，不在线程间共享
+ * The state of one search or wait: the unique views and web elements found so far, including the ones
+ * that were scrolled out of sight. Every invocation creates its own context, so concurrent searches do
+ * not see each other's matches. A context must not be shared between threads.
+ *
+ */
+
+class SearchContext {
+	// 已检查过的文本，按位置和内容区分，滑动后只检查新出现的行或变化了的内容
+	final Set<String> evaluatedTexts = new HashSet<String>();
+	// 已匹配text正则的位置，列表行按adapter位置区分，不受view复用影响
+	final Set<String> matchedTexts = new HashSet<String>();
+	// 已找到的WebElement
+	final List<WebElement> webElements = new ArrayList<WebElement>();
+	// 已找到的指定class类型的View
+	final Set<View> uniqueViews = new HashSet<View>();
+	// 按对象本身分配的编号，用于位置标识，不同对象的编号不会相同
+	private final Map<Object, Integer> identities = new IdentityHashMap<Object, Integer>();
+
+
+	/**
+	 * 获取已找到的不重复View数量
+	 * Returns the number of unique views found so far.
+	 *
+	 * @return the number of unique views
+	 */
+
+	public int getNumberOfUniqueViews() {
+		return uniqueViews.size();
+	}
+
+	/**
+	 * 获取已找到的不重复文本匹配数量
+	 * Returns the number of unique text matches found so far.
+	 *
+	 * @return the number of text matches
+	 */
+
+	public int getNumberOfTextMatches() {
+		return matchedTexts.size();
+	}
+
+	/**
+	 * 获取对象在本次查找中的编号，同一对象总是相同编号，不同对象编号不同
+	 * Returns the number of an object within this search. The same object always gets the same number
+	 * and distinct objects get distinct numbers, unlike {@link System#identityHashCode(Object)}.
+	 *
+	 * @param object the object
+	 * @return the number of the object
+	 */
+
+	public int getIdentity(Object object) {
+		Integer identity = identities.get(object);
+		if(identity == null){
+			identity = identities.size();
+			identities.put(object, identity);
+		}
+		return identity;
+	}
+}
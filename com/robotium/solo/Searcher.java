@@ -2,13 +2,16 @@ package com.robotium.solo;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import android.os.SystemClock;
+import java.util.regex.Pattern;
 import android.util.Log;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.AbsListView;
+import android.widget.AdapterView;
 import android.widget.TextView;
 
 
@@ -16,6 +19,11 @@ import android.widget.TextView;
  * 控件搜索工具类，可以按照各种关键信息查找对应控件
  * Contains various search methods. Examples are: searchForEditTextWithTimeout(),
  * searchForTextWithTimeout(), searchForButtonWithTimeout().
+ * <br><br>
+ * 本类不保存查找状态，可以在多个线程中同时调用
+ * This class holds no search state. The matches of a search are kept in a {@link SearchContext} owned by
+ * the invocation, so searches and waits may be issued concurrently from several threads, e.g. a
+ * watchdog thread next to the test thread.
  * 
  * @author Renas Reda, renas.reda@robotium.com
  * 
@@ -32,12 +40,6 @@ class Searcher {
 	private final Sleeper sleeper;
 	// 日志打印标签，标识这是 Robotium
 	private final String LOG_TAG = "Robotium";
-	// 由于存储包含指定text正则的views,检查内容包括显示内容，错误提示信息和友好提示信息
-	Set<TextView> uniqueTextViews;
-	// WebElement缓存
-	List<WebElement> webElements;
-	// 统计非重复View数量
-	private int numberOfUniqueViews;
 	// 默认超时5s
 	private final int TIMEOUT = 5000;
 
@@ -57,8 +59,6 @@ class Searcher {
 		this.webUtils = webUtils;
 		this.scroller = scroller;
 		this.sleeper = sleeper;
-		webElements = new ArrayList<WebElement>();
-		uniqueTextViews = new HashSet<TextView>();
 	}
 
 
@@ -84,21 +84,22 @@ class Searcher {
 	 */
 
 	public boolean searchWithTimeoutFor(Class<? extends TextView> viewClass, String regex, int expectedMinimumNumberOfMatches, boolean scroll, boolean onlyVisible) {
-		// 设定超时时间,当前时间加上5s
-		final long endTime = SystemClock.uptimeMillis() + TIMEOUT;
+		// 设定超时时间,当前时间加上5s,内部的查找和滑动共用这一个超时
+		final Deadline deadline = new Deadline(sleeper.getClock(), "searchFor '" + regex + "'", TIMEOUT);
 		// 初始化临时变量为null
 		TextView foundAnyMatchingView = null;
 		// 如果还没到达指定时间还为找到则继续查找
-		while (SystemClock.uptimeMillis() < endTime) {
-			// 等500ms
-			sleeper.sleep();
-			// 按照给定的条件调用查询方法,超时设置为0
-			foundAnyMatchingView = searchFor(viewClass, regex, expectedMinimumNumberOfMatches, 0, scroll, onlyVisible);
+		while (!deadline.isExpired()) {
+			// 按轮询节奏等待，第一次只等一帧
+			sleeper.pace(deadline);
+			// 按照给定的条件调用查询方法,共用同一个截止时间
+			foundAnyMatchingView = searchFor(viewClass, regex, expectedMinimumNumberOfMatches, deadline, scroll, onlyVisible);
 			// 找到则直接返回
 			if (foundAnyMatchingView !=null){
 				return true;
 			}
 		}
+		Log.d(LOG_TAG, deadline.report());
 		return false;
 	}
 
@@ -127,6 +128,28 @@ class Searcher {
 	 */
 
 	public <T extends TextView> T searchFor(final Class<T> viewClass, final String regex, int expectedMinimumNumberOfMatches, final long timeout, final boolean scroll, final boolean onlyVisible) {
+		// timeout为0表示不限时
+		final Deadline deadline = timeout > 0 ? new Deadline(sleeper.getClock(), "searchFor '" + regex + "'", timeout) : Deadline.unbounded(sleeper.getClock(), "searchFor '" + regex + "'");
+		return searchFor(viewClass, regex, expectedMinimumNumberOfMatches, deadline, scroll, onlyVisible);
+	}
+
+	/**
+	 * 按照给定的条件查找TextView类型的View，查找、等待和滑动共用给定的截止时间
+	 * Searches for a {@code View} with the given regex string and returns it if the
+	 * searched {@code View} is found a given number of times. The search consumes the budget of the given deadline.
+	 *
+	 * @param viewClass what kind of {@code View} to search for, e.g. {@code Button.class} or {@code TextView.class}
+	 * @param regex the text to search for. The parameter <strong>will</strong> be interpreted as a regular expression.
+	 * @param expectedMinimumNumberOfMatches the minimum number of matches expected to be found. {@code 0} matches means that one or more
+	 * matches are expected to be found.
+	 * @param deadline the deadline shared with the caller
+	 * @param scroll whether scrolling should be performed
+	 * @param onlyVisible {@code true} if only texts visible on the screen should be searched
+	 * 
+	 * @return the view if it is found a given number of times, {@code null} if it is not found
+	 */
+
+	public <T extends TextView> T searchFor(final Class<T> viewClass, final String regex, int expectedMinimumNumberOfMatches, final Deadline deadline, final boolean scroll, final boolean onlyVisible) {
 		// 如果设置的期望配匹次数小于1次，则默认配置为1次
 		if(expectedMinimumNumberOfMatches < 1) {
 			expectedMinimumNumberOfMatches = 1;
@@ -135,8 +158,9 @@ class Searcher {
 		final Callable<Collection<T>> viewFetcherCallback = new Callable<Collection<T>>() {
 			@SuppressWarnings("unchecked")
 			public Collection<T> call() throws Exception {
-				// 等待500ms
-				sleeper.sleep();
+				// 此处不再等待，等待由调用方的轮询节奏统一控制
+				final String previousPhase = deadline.enter("search");
+				deadline.count("search");
 				// 获取当前屏幕的所有views,类型为viewClass所指定的
 				ArrayList<T> viewsToReturn = viewFetcher.getCurrentViews(viewClass);
 				// 如果配置了只查找可见view中的内容，那么过滤掉所有非可见的
@@ -147,6 +171,7 @@ class Searcher {
 				if(viewClass.isAssignableFrom(TextView.class)) {
 					viewsToReturn.addAll((Collection<? extends T>) webUtils.getTextViewsFromWebView());
 				}
+				deadline.enter(previousPhase);
 				// 返回找到的views
 				return viewsToReturn;
 			}
@@ -154,7 +179,7 @@ class Searcher {
 
 		try {
 			// 查找相关view
-			return searchFor(viewFetcherCallback, regex, expectedMinimumNumberOfMatches, timeout, scroll);
+			return searchFor(viewFetcherCallback, regex, expectedMinimumNumberOfMatches, deadline, scroll);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -168,17 +193,17 @@ class Searcher {
 	 * index           指定的数量从0开始计数
 	 * Searches for a view class.
 	 * 
-	 * @param uniqueViews the set of unique views
+	 * @param searchContext the context of the search, holding the unique views found so far
 	 * @param viewClass the view class to search for
 	 * @param index the index of the view class
 	 * @return true if view class if found a given number of times
 	 */
 
-	public <T extends View> boolean searchFor(Set<T> uniqueViews, Class<T> viewClass, final int index) {
+	public <T extends View> boolean searchFor(SearchContext searchContext, Class<T> viewClass, final int index) {
 		// 获取当前界面的所有给定 class类型的可见View
 		ArrayList<T> allViews = RobotiumUtils.removeInvisibleViews(viewFetcher.getCurrentViews(viewClass));
 		// 返回不重复的view数量，并把allViews加入到uniqueViews集合中
-		int uniqueViewsFound = (getNumberOfUniqueViews(uniqueViews, allViews));
+		int uniqueViewsFound = (getNumberOfUniqueViews(searchContext.uniqueViews, allViews));
 		// index位置在总数量中，返回true,可以获取
 		if(uniqueViewsFound > 0 && index < uniqueViewsFound) {
 			return true;
@@ -237,67 +262,181 @@ class Searcher {
 	 */
 
 	public <T extends TextView> T searchFor(Callable<Collection<T>> viewFetcherCallback, String regex, int expectedMinimumNumberOfMatches, long timeout, boolean scroll) throws Exception {
-		// 设置超时时间点
-		final long endTime = SystemClock.uptimeMillis() + timeout;	
+		// timeout为0表示不限时
+		final Deadline deadline = timeout > 0 ? new Deadline(sleeper.getClock(), "searchFor '" + regex + "'", timeout) : Deadline.unbounded(sleeper.getClock(), "searchFor '" + regex + "'");
+		return searchFor(viewFetcherCallback, regex, expectedMinimumNumberOfMatches, deadline, scroll);
+	}
+
+	/**
+	 * 按照回调返回的views查找符合条件的View，查找和滑动共用给定的截止时间
+	 * Searches for a {@code View} with the given regex string and returns it if the
+	 * searched {@code View} is found a given number of times. The search and the scrolling consume
+	 * the budget of the given deadline.
+	 * <br><br>
+	 * 滑动查找时每个文本按位置和内容只检查一次，列表行按adapter位置计数，复用的view不会漏计或重复计数
+	 * When scrolling, every text is evaluated once per location and content, so a page only costs the
+	 * rows it reveals. Rows of lists are located by their adapter position, so matches are counted
+	 * correctly although the list recycles its row views.
+	 *
+	 * @param viewFetcherCallback callback which should return an updated collection of views to search
+	 * @param regex the text to search for. The parameter <strong>will</strong> be interpreted as a regular expression.
+	 * @param expectedMinimumNumberOfMatches the minimum number of matches expected to be found. {@code 0} matches means that one or more
+	 * matches are expected to be found.
+	 * @param deadline the deadline shared with the caller
+	 * @param scroll whether scrolling should be performed
+	 * 
+	 * @return the view if it is found a given number of times, {@code null} if it is not found
+	 *
+	 * @throws Exception not really, it's just the signature of {@code Callable}
+	 */
+
+	public <T extends TextView> T searchFor(Callable<Collection<T>> viewFetcherCallback, String regex, int expectedMinimumNumberOfMatches, Deadline deadline, boolean scroll) throws Exception {
 		Collection<T> views;
+		// 本次查找的状态，滑动后已滑出屏幕的匹配也计入
+		final SearchContext searchContext = new SearchContext();
+		// 正则只编译一次
+		final Pattern pattern = RobotiumUtils.getPattern(regex);
 
 		while (true) {
-			// 检查是否已过设定的超时点
-			final boolean timedOut = timeout > 0 && SystemClock.uptimeMillis() > endTime;
 			// 已经超时则直接退出查询，并打印相关日志记录
-			if(timedOut){
-				logMatchesFound(regex);
+			if(deadline.isExpired()){
+				logMatchesFound(searchContext, regex);
+				Log.d(LOG_TAG, deadline.report());
 				return null;
 			}
 			// 获取给定条件过滤后的所有Views
 			views = viewFetcherCallback.call();
 
 			for(T view : views){
-				// 检查是否找到了期望的数量，如果找到了期望数量的元素，那么清空缓存，返回找到的对应View
-				if (RobotiumUtils.getNumberOfMatches(regex, view, uniqueTextViews) == expectedMinimumNumberOfMatches) {
-					uniqueTextViews.clear();
+				if(view == null){
+					continue;
+				}
+				final String location = getTextLocation(searchContext, view);
+				// 同一位置的相同内容已检查过，不再匹配
+				if(!searchContext.evaluatedTexts.add(location + '\u0000' + getTextContent(view))){
+					continue;
+				}
+				if(!RobotiumUtils.matches(pattern, view) || !searchContext.matchedTexts.add(location)){
+					continue;
+				}
+				// 检查是否找到了期望的数量，如果找到了期望数量的元素，那么返回找到的对应View
+				if (searchContext.getNumberOfTextMatches() == expectedMinimumNumberOfMatches) {
 					return view;
 				}
 			}
 			// 如果配置了可拖动，但是当前不允许拖动，那么记录异常日志，返回null,由Config中配置是否可拖动，默认为true
-			if(scroll && !scroller.scrollDown()){
-				logMatchesFound(regex);
+			if(scroll && !scroller.scrollDown(deadline)){
+				logMatchesFound(searchContext, regex);
 				return null; 
 			}
 			// 如果未设置可拖动，记录异常日志，返回null
 			if(!scroll){
-				logMatchesFound(regex);
+				logMatchesFound(searchContext, regex);
 				return null; 
 			}
 		}
 	}
 
+	/**
+	 * 获取文本的位置标识：列表中的view按列表、adapter位置和行内路径标识，WebView中的文本按页面坐标，其他view按对象本身
+	 * Returns the location of a text for deduplication. A view inside a list row is identified by the
+	 * list, the adapter position of the row and its path inside the row, so a recycled row view showing
+	 * another item gets another location. Texts of web views are identified by their location within the
+	 * page, which does not change when the page scrolls, other views by their identity within the search.
+	 *
+	 * @param searchContext the context of the search that numbers the views
+	 * @param view the view
+	 * @return the location
+	 */
+
+	private String getTextLocation(SearchContext searchContext, TextView view) {
+		// WebView中的文本不在界面树中
+		if(view.getParent() == null){
+			final int[] xy = new int[2];
+			final WebElement webElement = view instanceof RobotiumTextView ? ((RobotiumTextView) view).getWebElement() : null;
+			if(webElement != null){
+				webElement.getDocumentLocation(xy);
+			}
+			else{
+				view.getLocationOnScreen(xy);
+			}
+			return "web:" + xy[0] + "," + xy[1];
+		}
+		final StringBuilder path = new StringBuilder();
+		View child = view;
+		ViewParent parent = view.getParent();
+		while(parent instanceof ViewGroup){
+			final ViewGroup group = (ViewGroup) parent;
+			if(group instanceof AbsListView){
+				final int position = ((AbsListView) group).getPositionForView(child);
+				if(position != AdapterView.INVALID_POSITION){
+					return "row:" + searchContext.getIdentity(group) + ":" + position + path;
+				}
+				break;
+			}
+			path.insert(0, "/" + group.indexOfChild(child));
+			child = group;
+			parent = group.getParent();
+		}
+		return "view:" + searchContext.getIdentity(view);
+	}
+
+	/**
+	 * 获取参与匹配的文本内容：文本，错误提示信息和帮助提醒信息
+	 * Returns the content a view is matched on: its text, error and hint.
+	 *
+	 * @param view the view
+	 * @return the content
+	 */
+
+	private String getTextContent(TextView view) {
+		return view.getText() + "\u0000" + view.getError() + "\u0000" + view.getHint();
+	}
+
 	/**
 	 * 按照给定的By条件，查找 WebView中的WebElement,minimumNumberOfMatches 指定需要返回第几个
 	 * Searches for a web element.
 	 * 
+	 * @param searchContext the context of the search, holding the web elements found so far
+	 * @param by the By object e.g. By.id("id");
+	 * @param minimumNumberOfMatches the minimum number of matches that are expected to be shown. {@code 0} means any number of matches
+	 * @return the web element or null if not found
+	 */
+
+	public WebElement searchForWebElement(SearchContext searchContext, final By by, int minimumNumberOfMatches){
+		return searchForWebElement(searchContext, by, minimumNumberOfMatches, false);
+	}
+
+	/**
+	 * 按照给定的By条件查找WebElement,scrollWithJavaScript为true时在同一次js执行中把目标滚动到可见区域
+	 * Searches for a web element. If {@code scrollWithJavaScript} is set, the page is scrolled to the
+	 * match in the same JavaScript pass that locates it, and matches that are not shown are counted too.
+	 *
+	 * @param searchContext the context of the search, holding the web elements found so far
 	 * @param by the By object e.g. By.id("id");
 	 * @param minimumNumberOfMatches the minimum number of matches that are expected to be shown. {@code 0} means any number of matches
+	 * @param scrollWithJavaScript {@code true} if the page should be scrolled to the match by JavaScript
 	 * @return the web element or null if not found
 	 */
 
-	public WebElement searchForWebElement(final By by, int minimumNumberOfMatches){
+	public WebElement searchForWebElement(SearchContext searchContext, final By by, int minimumNumberOfMatches, boolean scrollWithJavaScript){
 		// 如果传入数量小于1,那么默认设置为1
 		if(minimumNumberOfMatches < 1){
 			minimumNumberOfMatches = 1;
 		}
 		// 使用by作为过滤条件.获取当前的所有WebElement
-		List<WebElement> viewsFromScreen = webUtils.getCurrentWebElements(by);
+		List<WebElement> viewsFromScreen = scrollWithJavaScript ? webUtils.getCurrentWebElements(by, minimumNumberOfMatches) : webUtils.getCurrentWebElements(by);
 		// viewsFromScreen中的元素合并到webElement中，并且去重,text，xy坐标一致作为重复判定条件
-		addViewsToList (webElements, viewsFromScreen);
+		addViewsToList (searchContext.webElements, viewsFromScreen);
 		// 返回指定的WebElement
-		return getViewFromList(webElements, minimumNumberOfMatches);
+		return getViewFromList(searchContext.webElements, minimumNumberOfMatches);
 	}
 
 	/**
 	 * 列表合并,webElementsOnScreen加入到allWebElements中
-	 * 使用 text，xy坐标位置作为2个列表中元素是否重复判断条件
-	 * Adds views to a given list.
+	 * 使用 text，在整个页面中的xy坐标作为2个列表中元素是否重复判断条件，页面滚动后同一元素不会重复加入
+	 * Adds views to a given list. Elements are compared by text and location within the page, so an
+	 * element is not added twice after the page has been scrolled.
 	 * 
 	 * @param allWebElements the list of all views
 	 * @param webTextViewsOnScreen the list of views shown on screen
@@ -311,12 +450,12 @@ class Searcher {
 		//  遍历
 		for(WebElement textFromScreen : webElementsOnScreen){
 			boolean foundView = false;
-			// 获取屏幕xy坐标
-			textFromScreen.getLocationOnScreen(xyViewFromScreen);
+			// 获取页面中的xy坐标
+			textFromScreen.getDocumentLocation(xyViewFromScreen);
 
 			for(WebElement textFromList : allWebElements){
-				// 获取屏幕对应的xy坐标
-				textFromList.getLocationOnScreen(xyViewFromSet);
+				// 获取页面中的xy坐标
+				textFromList.getDocumentLocation(xyViewFromSet);
 				//  allWebElements中已存在的则不重复加入,按照text和xy坐标作为是否相等的条件
 				if(textFromScreen.getText().equals(textFromList.getText()) && xyViewFromScreen[0] == xyViewFromSet[0] && xyViewFromScreen[1] == xyViewFromSet[1]) {
 					foundView = true;
@@ -350,9 +489,6 @@ class Searcher {
 				webElementToReturn = webElements.get(--match);
 			}catch(Exception ignored){}
 		}
-		//找到元素则清空缓存
-		if(webElementToReturn != null)
-			webElements.clear();
 		// 返回元素
 		return webElementToReturn;
 	}
@@ -366,45 +502,31 @@ class Searcher {
 	 * @return number of unique views
 	 */
 
-	public <T extends View> int getNumberOfUniqueViews(Set<T>uniqueViews, ArrayList<T> views){
+	public <T extends View> int getNumberOfUniqueViews(Set<? super T> uniqueViews, ArrayList<T> views){
 		// 把view加入set中,set类型保证了不会存在重复的view
 		for(int i = 0; i < views.size(); i++){
 			uniqueViews.add(views.get(i));
 		}
 		// 获取uniqueViews中的View总数
-		numberOfUniqueViews = uniqueViews.size();
-		return numberOfUniqueViews;
-	}
-
-	/**
-	 * 获取unqiueViews中的View数量
-	 * Returns the number of unique views.
-	 * 
-	 * @return the number of unique views
-	 */
-
-	public int getNumberOfUniqueViews(){
-		return numberOfUniqueViews;
+		return uniqueViews.size();
 	}
 
 	/**
-	 * 打印搜索失败日志.并清空缓存内容
+	 * 打印搜索失败日志
 	 * Logs a (searchFor failed) message.
 	 *  
+	 * @param searchContext the context of the failed search
 	 * @param regex the search string to log
 	 */
 
-	public void logMatchesFound(String regex){
+	public void logMatchesFound(SearchContext searchContext, String regex){
 		// 打印当前TextView总数和搜索条件
-		if (uniqueTextViews.size() > 0) {
-			Log.d(LOG_TAG, " There are only " + uniqueTextViews.size() + " matches of '" + regex + "'");
+		if (searchContext.getNumberOfTextMatches() > 0) {
+			Log.d(LOG_TAG, " There are only " + searchContext.getNumberOfTextMatches() + " matches of '" + regex + "'");
 		}
 		// 打印当前WebView中的Element数量和搜索条件
-		else if(webElements.size() > 0){
-			Log.d(LOG_TAG, " There are only " + webElements.size() + " matches of '" + regex + "'");
+		else if(searchContext.webElements.size() > 0){
+			Log.d(LOG_TAG, " There are only " + searchContext.webElements.size() + " matches of '" + regex + "'");
 		}
-		// 清理缓存内容
-		uniqueTextViews.clear();
-		webElements.clear();
 	}
 }
@@ -2,7 +2,6 @@ package com.robotium.solo;
 
 
 import junit.framework.Assert;
-import android.app.Instrumentation;
 import android.view.KeyEvent;
 
 /**
@@ -15,8 +14,8 @@ import android.view.KeyEvent;
  */
 
 class Sender {
-	// Instrument,用于发送各类事件
-	private final Instrumentation inst;
+	// 触摸和按键事件注入工具类
+	private final EventInjector eventInjector;
 	// 等待工具类
 	private final Sleeper sleeper;
 
@@ -24,12 +23,12 @@ class Sender {
 	 * 构造函数
 	 * Constructs this object.
 	 * 
-	 * @param inst the {@code Instrumentation} instance
+	 * @param eventInjector the {@code EventInjector} instance
 	 * @param sleeper the {@code Sleeper} instance
 	 */
 
-	Sender(Instrumentation inst, Sleeper sleeper) {
-		this.inst = inst;
+	Sender(EventInjector eventInjector, Sleeper sleeper) {
+		this.eventInjector = eventInjector;
 		this.sleeper = sleeper;
 	}
 
@@ -44,7 +43,7 @@ class Sender {
 	{
 		sleeper.sleep();
 		try{
-			inst.sendCharacterSync(keycode);
+			eventInjector.injectKeyDownUp(keycode);
 			// 捕获可能遇到的权限问题
 		}catch(SecurityException e){
 			// 日志提醒，该操作无权和相关错误日志
@@ -62,7 +61,7 @@ class Sender {
 		sleeper.sleep();
 		try {
 			// 发送返回事件
-			inst.sendKeyDownUpSync(KeyEvent.KEYCODE_BACK);
+			eventInjector.injectKeyDownUp(KeyEvent.KEYCODE_BACK);
 			// 等待500ms
 			sleeper.sleep();
 		} catch (Throwable ignored) {}
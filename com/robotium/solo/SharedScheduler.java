@@ -0,0 +1,173 @@
+package com.robotium.solo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * 进程内共享的调度器，所有Solo实例的后台任务共用两个线程，按引用计数在最后一个实例关闭时停止
+ * A scheduler shared by the background work of all {@code Solo} instances in the process: activity
+ * tracking, screenshot saving and sequences, and asynchronous waits. The threads are created by the
+ * first {@link #acquire()} and stopped when the last handle is closed, so the number of threads stays
+ * constant however many instances are created.
+ * <br><br>
+ * Every instance acquires its own handle. Closing a handle cancels the tasks scheduled through it.
+ *
+ */
+
+class SharedScheduler {
+	// 共享线程数
+	private static final int THREADS = 2;
+	// 共享的线程池
+	private static ScheduledThreadPoolExecutor executor;
+	// 未关闭的句柄数
+	private static int references = 0;
+	// 用于同步
+	private static final Object LOCK = new Object();
+	// 线程编号
+	private static final AtomicInteger threadNumber = new AtomicInteger();
+	// 本句柄调度的任务，关闭时取消
+	private final List<Future<?>> tasks = new ArrayList<Future<?>>();
+	// 本句柄是否已关闭
+	private boolean closed = false;
+
+
+	/**
+	 * 构造函数，只通过acquire()获取
+	 * Constructs a handle. Use {@link #acquire()}.
+	 */
+
+	private SharedScheduler() {
+	}
+
+	/**
+	 * 获取一个句柄，必要时启动共享线程
+	 * Acquires a handle to the shared scheduler, starting its threads if this is the only open handle.
+	 *
+	 * @return a new handle that must be closed with {@link #close()}
+	 */
+
+	public static SharedScheduler acquire() {
+		synchronized (LOCK) {
+			if(executor == null){
+				executor = new ScheduledThreadPoolExecutor(THREADS, new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "Robotium-Scheduler-" + threadNumber.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+			references++;
+			return new SharedScheduler();
+		}
+	}
+
+	/**
+	 * 以固定间隔执行任务
+	 * Runs a task repeatedly, with the given delay between the end of one run and the start of the next.
+	 *
+	 * @param task the task to run
+	 * @param initialDelay the delay before the first run in milliseconds
+	 * @param delay the delay between runs in milliseconds
+	 * @return the future of the task, cancel it to stop the task
+	 */
+
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay) {
+		synchronized (LOCK) {
+			checkOpen();
+			return track(executor.scheduleWithFixedDelay(task, initialDelay, delay, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	/**
+	 * 以固定频率执行任务
+	 * Runs a task repeatedly at a fixed rate.
+	 *
+	 * @param task the task to run
+	 * @param initialDelay the delay before the first run in milliseconds
+	 * @param period the period between the starts of two runs in milliseconds
+	 * @return the future of the task, cancel it to stop the task
+	 */
+
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period) {
+		synchronized (LOCK) {
+			checkOpen();
+			return track(executor.scheduleAtFixedRate(task, initialDelay, period, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	/**
+	 * 在后台线程执行一次任务
+	 * Runs a task once on a background thread.
+	 *
+	 * @param task the task to run
+	 * @return the future of the task
+	 */
+
+	public Future<?> execute(Runnable task) {
+		synchronized (LOCK) {
+			checkOpen();
+			return track(executor.submit(task));
+		}
+	}
+
+	/**
+	 * 关闭句柄，取消通过它调度的任务，最后一个句柄关闭时停止共享线程，重复调用无影响
+	 * Closes this handle and cancels the tasks scheduled through it. The shared threads are stopped
+	 * when the last open handle is closed. Closing a handle twice has no effect.
+	 */
+
+	public void close() {
+		synchronized (LOCK) {
+			if(closed){
+				return;
+			}
+			closed = true;
+			for(Future<?> task : tasks){
+				task.cancel(false);
+			}
+			tasks.clear();
+			references--;
+			if(references == 0 && executor != null){
+				executor.shutdownNow();
+				executor = null;
+			}
+		}
+	}
+
+	/**
+	 * 记录任务以便关闭时取消，同时清理已完成的任务
+	 * Tracks a task so that it is cancelled on close, dropping the ones that are done.
+	 *
+	 * @param task the task to track
+	 * @return the task
+	 */
+
+	private <T extends Future<?>> T track(T task) {
+		for(int i = tasks.size() - 1; i >= 0; i--){
+			if(tasks.get(i).isDone()){
+				tasks.remove(i);
+			}
+		}
+		tasks.add(task);
+		return task;
+	}
+
+	/**
+	 * 句柄已关闭时抛出异常
+	 * Throws if this handle has been closed.
+	 */
+
+	private void checkOpen() {
+		if(closed){
+			throw new IllegalStateException("The scheduler has been closed");
+		}
+	}
+}
@@ -1,6 +1,11 @@
 package com.robotium.solo;
+
+import java.util.concurrent.CancellationException;
+
 /**
- * 延时等待工具类
+ * 延时等待工具类，所有等待都响应中断和取消
+ * Sleeps on behalf of all blocking loops. Every sleep honours thread interruption and the
+ * cancellation token of the {@code Solo} instance.
  *
  */
 class Sleeper {
@@ -8,6 +13,58 @@ class Sleeper {
 	private final int PAUSE = 500;
 	// 常量300ms
 	private final int MINIPAUSE = 300;
+	// 一帧的时间16ms
+	private final int FRAME = 16;
+	// 取消标记
+	private final CancellationToken cancellationToken = new CancellationToken();
+	// 时钟
+	private final Clock clock;
+
+
+	/**
+	 * 构造函数，使用系统时钟
+	 * Constructs this object with the real clock.
+	 */
+
+	public Sleeper() {
+		this(Clock.SYSTEM);
+	}
+
+
+	/**
+	 * 构造函数，使用指定时钟
+	 * Constructs this object with the given clock.
+	 *
+	 * @param clock the clock that all sleeps and wait loops use
+	 */
+
+	public Sleeper(Clock clock) {
+		this.clock = clock;
+	}
+
+
+	/**
+	 * 获取时钟
+	 * Returns the clock that all sleeps and wait loops use.
+	 *
+	 * @return the clock
+	 */
+
+	public Clock getClock() {
+		return clock;
+	}
+
+
+	/**
+	 * 获取当前时间
+	 * Returns the current time of the clock.
+	 *
+	 * @return the current time in milliseconds
+	 */
+
+	public long uptimeMillis() {
+		return clock.uptimeMillis();
+	}
 
 	/**
 	 * 延时500ms
@@ -30,16 +87,132 @@ class Sleeper {
 
 
 	/**
-	 * 延时指定数值的ms
+	 * 延时指定数值的ms，被中断或已取消时恢复中断标记并抛出CancellationException
 	 * Sleeps the current thread for <code>time</code> milliseconds.
 	 *
 	 * @param time the length of the sleep in milliseconds
+	 * @throws CancellationException if the thread is interrupted or the instance has been shut down
 	 */
 
 	public void sleep(int time) {
+		cancellationToken.block();
+		try {
+			clock.sleep(time);
+		} catch (InterruptedException e) {
+			// 恢复中断标记，交由调用方处理
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while sleeping");
+		} finally {
+			cancellationToken.unblock();
+		}
+	}
+
+
+	/**
+	 * 延时指定数值的ms，不响应取消，只用于关闭activity等清理操作
+	 * Sleeps the current thread for <code>time</code> milliseconds, ignoring cancellation. Only used by clean up
+	 * code that has to run after the instance has been shut down. An interrupt ends the sleep early and is kept.
+	 *
+	 * @param time the length of the sleep in milliseconds
+	 */
+
+	public void sleepUncancellable(int time) {
 		try {
-			Thread.sleep(time);
-		} catch (InterruptedException ignored) {}
+			clock.sleep(time);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * 检查是否已取消，用于不调用sleep的循环
+	 * Throws if the current thread has been interrupted or the instance has been shut down. Used by
+	 * loops that do not sleep between iterations.
+	 *
+	 * @throws CancellationException if the thread is interrupted or the instance has been shut down
+	 */
+
+	public void checkCancelled() {
+		cancellationToken.throwIfCancelled();
+	}
+
+
+	/**
+	 * 取消所有等待，阻塞中的线程会被中断
+	 * Cancels all waits. Threads that are sleeping are interrupted and every later sleep throws.
+	 */
+
+	public void cancel() {
+		cancellationToken.cancel();
+	}
+
+
+	/**
+	 * 是否已取消
+	 * Returns whether the waits have been cancelled.
+	 *
+	 * @return {@code true} if cancelled
+	 */
+
+	public boolean isCancelled() {
+		return cancellationToken.isCancelled();
+	}
+
+
+	/**
+	 * 延时500ms，但不超过截止时间的剩余时间，耗时计入sleep阶段
+	 * Sleeps the current thread for a default pause length, bounded by the remaining budget of the given deadline.
+	 *
+	 * @param deadline the deadline whose budget the sleep consumes
+	 */
+
+	public void sleep(Deadline deadline) {
+		sleep(PAUSE, deadline);
+	}
+
+
+	/**
+	 * 延时指定数值的ms，但不超过截止时间的剩余时间，耗时计入sleep阶段
+	 * Sleeps the current thread for <code>time</code> milliseconds, bounded by the remaining budget of the given deadline.
+	 *
+	 * @param time the length of the sleep in milliseconds
+	 * @param deadline the deadline whose budget the sleep consumes
+	 */
+
+	public void sleep(int time, Deadline deadline) {
+		final String previousPhase = deadline.enter("sleep");
+		sleep((int) Math.min(time, deadline.remaining()));
+		deadline.enter(previousPhase);
+	}
+
+
+	/**
+	 * 轮询节奏：第一次轮询前只等一帧，之后每次翻倍，最长500ms，不超过截止时间的剩余时间
+	 * Sleeps before the next poll of the given deadline. The first poll waits one frame and every
+	 * following poll waits twice as long, up to the default pause length.
+	 *
+	 * @param deadline the deadline that is polled
+	 */
+
+	public void pace(Deadline deadline) {
+		sleep(getPace(deadline.poll()), deadline);
+	}
+
+
+	/**
+	 * 获取第poll次轮询前需要等待的时间
+	 * Returns the pause before the given poll.
+	 *
+	 * @param poll the number of earlier polls
+	 * @return the pause in milliseconds
+	 */
+
+	public int getPace(int poll) {
+		if(poll >= 5){
+			return PAUSE;
+		}
+		return Math.min(FRAME << poll, PAUSE);
 	}
 
 }
@@ -1,7 +1,14 @@
 package com.robotium.solo;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 import junit.framework.Assert;
 import android.app.Activity;
 import android.app.Instrumentation;
@@ -38,14 +45,21 @@ import android.app.Instrumentation.ActivityMonitor;
  * <br>
  * Robotium can be used in conjunction with Android test classes like 
  * ActivityInstrumentationTestCase2 and SingleLaunchActivityTestCase. 
- * 
+ * <br><br>
+ * 查询和等待方法可以在多个线程中同时调用，每次调用有自己的查找状态，WebView的查找依次执行；操作类方法(点击、输入、滑动)同一时间只应由一个线程调用
+ * The search, wait and get methods, including the asynchronous waits, may be called concurrently from
+ * several threads, e.g. a watchdog thread next to the test thread: every call keeps its own search state.
+ * Searches in WebViews are the exception: the WebView reports its elements through one callback per Solo
+ * instance, so their JavaScript passes run one after the other. Methods that act on the screen, like click,
+ * enter, scroll and drag, should only be called from one thread at a time, since their input events would
+ * interleave.
  *
  *
  *
  * @author Renas Reda, renas.reda@robotium.com
  */
 
-public class Solo {
+public class Solo implements Closeable {
 	// 断言工具类
 	protected final Asserter asserter;
 	// view获取工具类
@@ -62,20 +76,34 @@ public class Solo {
 	protected final ActivityUtils activityUtils;
 	// 弹框操作工具类
 	protected final DialogUtils dialogUtils;
+	// 窗口监听工具类
+	protected final WindowWatcher windowWatcher;
 	// 文本输入工具类
 	protected final TextEnterer textEnterer;
-	// 屏幕方向操作工具类
-	protected final Rotator rotator;
 	// 带滚动条控件擦做工具类
 	protected final Scroller scroller;
 	// 等待工具类
 	protected final Sleeper sleeper;
-	// 手动划屏操作工具类
-	protected final Swiper swiper;
-	// 手指点击操作工具类
-	protected final Tapper tapper;
+	// 按目标时间发送事件的调度工具类
+	protected final PacingScheduler pacingScheduler;
+	// 触摸事件注入工具类
+	protected final EventInjector eventInjector;
+	// 多点触控手势工具类，用于点击、划屏、缩放和画圈
+	protected final GestureEngine gestureEngine;
 	// View等待工具类
 	protected final Waiter waiter;
+	// 异步等待工具类
+	protected final AsyncWaiter asyncWaiter;
+	// 进程内共享的调度器句柄
+	protected final SharedScheduler scheduler;
+	// 等待耗时统计
+	protected final WaitTelemetry waitTelemetry;
+	// 超时学习
+	protected final TimeoutLearner timeoutLearner;
+	// 按帧等待工具类
+	protected final FrameWaiter frameWaiter;
+	// 动画等待工具类
+	protected final AnimationWaiter animationWaiter;
 	// 设置类控件操作工具类
 	protected final Setter setter;
 	// View属性获取工具类
@@ -88,12 +116,12 @@ public class Solo {
 	protected final ScreenshotTaker screenshotTaker;
 	// Instrument,用于发送各类事件
 	protected final Instrumentation instrumentation;
-	// 放大动作工具类
-	protected final Zoomer zoomer;
 	// 网站地址
 	protected String webUrl = null;
 	// 相关属性配置
 	private final Config config;
+	// 等待耗时统计是否已写入文件
+	private boolean waitTelemetryDumped = false;
 	// 横屏
 	public final static int LANDSCAPE = ActivityInfo.SCREEN_ORIENTATION_LANDSCAPE;   // 0
 	// 竖屏
@@ -153,29 +181,51 @@ public class Solo {
 	 */
 
 	private Solo(Config config, Instrumentation instrumentation, Activity activity) {
+		this(config, instrumentation, activity, Clock.SYSTEM);
+	}
+
+	/**
+	 * 构造函数，使用指定的时钟，用于以虚拟时间测试等待逻辑
+	 * Constructor that takes the clock all waits measure and sleep with, e.g. a {@link VirtualClock}
+	 * in tests of the timeout logic.
+	 * 
+	 * @param config the {@link Config} instance 
+	 * @param instrumentation the {@link Instrumentation} instance
+	 * @param activity the start {@link Activity} or {@code null}
+	 * if no Activity is specified
+	 * @param clock the clock of all waits
+	 */
+
+	Solo(Config config, Instrumentation instrumentation, Activity activity, Clock clock) {
 		this.config = config;
 		this.instrumentation = instrumentation;
-		this.sleeper = new Sleeper();
-		this.sender = new Sender(instrumentation, sleeper);
-		this.activityUtils = new ActivityUtils(instrumentation, activity, sleeper);
+		this.sleeper = new Sleeper(clock);
+		this.waitTelemetry = new WaitTelemetry();
+		this.pacingScheduler = new PacingScheduler(sleeper, waitTelemetry);
+		this.eventInjector = new EventInjector(config, instrumentation, pacingScheduler);
+		this.sender = new Sender(eventInjector, sleeper);
+		this.scheduler = SharedScheduler.acquire();
+		this.activityUtils = new ActivityUtils(instrumentation, activity, sleeper, scheduler);
 		this.viewFetcher = new ViewFetcher(activityUtils);
-		this.screenshotTaker = new ScreenshotTaker(config, activityUtils, viewFetcher, sleeper);
-		this.dialogUtils = new DialogUtils(activityUtils, viewFetcher, sleeper);
+		this.screenshotTaker = new ScreenshotTaker(config, activityUtils, viewFetcher, sleeper, scheduler);
+		this.windowWatcher = new WindowWatcher(viewFetcher, sleeper.getClock());
+		this.dialogUtils = new DialogUtils(activityUtils, viewFetcher, sleeper, windowWatcher);
 		this.webUtils = new WebUtils(config, instrumentation,activityUtils,viewFetcher, sleeper);
-		this.scroller = new Scroller(config, instrumentation, activityUtils, viewFetcher, sleeper);
+		this.scroller = new Scroller(config, instrumentation, activityUtils, viewFetcher, sleeper, waitTelemetry, eventInjector);
 		this.searcher = new Searcher(viewFetcher, webUtils, scroller, sleeper);
-		this.waiter = new Waiter(activityUtils, viewFetcher, searcher,scroller, sleeper);
+		this.timeoutLearner = new TimeoutLearner(activityUtils, sleeper.getClock(), config.learnedTimeoutsPath, config.learnedTimeoutSafetyFactor);
+		this.frameWaiter = new FrameWaiter(config, viewFetcher, sleeper);
+		this.waiter = new Waiter(config, activityUtils, viewFetcher, searcher,scroller, sleeper, waitTelemetry, timeoutLearner, frameWaiter);
+		this.asyncWaiter = new AsyncWaiter(activityUtils, viewFetcher, scheduler, sleeper.getClock());
 		this.setter = new Setter(activityUtils);
 		this.getter = new Getter(instrumentation, activityUtils, waiter);
 		this.asserter = new Asserter(activityUtils, waiter);
 		this.checker = new Checker(viewFetcher, waiter);
-		this.clicker = new Clicker(activityUtils, viewFetcher,sender, instrumentation, sleeper, waiter, webUtils, dialogUtils);
-		this.zoomer = new Zoomer(instrumentation);
-		this.swiper = new Swiper(instrumentation);
-		this.tapper =  new Tapper(instrumentation);
-		this.rotator = new Rotator(instrumentation);
-		this.presser = new Presser(viewFetcher, clicker, instrumentation, sleeper, waiter, dialogUtils);
-		this.textEnterer = new TextEnterer(instrumentation, clicker, dialogUtils);
+		this.animationWaiter = new AnimationWaiter(config, instrumentation, viewFetcher, sleeper);
+		this.clicker = new Clicker(activityUtils, viewFetcher,sender, instrumentation, sleeper, waiter, webUtils, dialogUtils, animationWaiter, eventInjector);
+		this.gestureEngine = new GestureEngine(eventInjector);
+		this.presser = new Presser(viewFetcher, clicker, instrumentation, sleeper, waiter, dialogUtils, eventInjector);
+		this.textEnterer = new TextEnterer(config, instrumentation, clicker, dialogUtils);
 		// 进行初始化
 		initialize();
 	}
@@ -237,6 +287,107 @@ public class Solo {
 		 */
 		public boolean useJavaScriptToClickWebElements = false;
 
+		/**
+		 * typeText是否逐个字符发送按键事件，默认为false，通过InputConnection一次提交整个字符串
+		 * Set to true if typeText should inject one key event per character, for applications that rely
+		 * on key listeners. By default the whole text is committed at once through the {@code InputConnection}
+		 * of the EditText, which fires text watchers but no key events. Default value is false.
+		 */
+		public boolean typeTextWithKeyEvents = false;
+
+		/**
+		 * 等待WebElement需要滚动时，是否在查找的同一次js执行中用window.scrollTo滚动到目标，默认为false，按页滚动WebView
+		 * Set to true if waits for web elements that scroll should scroll the page to the element with
+		 * {@code window.scrollTo} in the same JavaScript pass that locates it, instead of paging the WebView
+		 * and querying again. Default value is false.
+		 */
+		public boolean useJavaScriptToScrollWebViews = false;
+
+		/**
+		 * 横向滚动时是否直接滚动HorizontalScrollView、ViewPager和RecyclerView，默认为false，发送拖动手势
+		 * Set to true if scrollToSide and scrollViewToSide should scroll a HorizontalScrollView, ViewPager or
+		 * horizontal RecyclerView directly with {@code setCurrentItem} or {@code scrollBy} and wait for it to
+		 * settle, instead of injecting a drag gesture. Other views are still dragged. Default value is false.
+		 */
+		public boolean scrollContainersProgrammatically = false;
+
+		/**
+		 * 手势和拖动是否异步注入事件，只在最后一个事件同步等待，需要API 18，默认为false，每个事件同步发送
+		 * Set to true if gestures and drags should inject their events asynchronously through
+		 * {@code UiAutomation} and wait only for the last event, instead of waiting for every event.
+		 * Requires API level 18, below which events are sent synchronously. Default value is false.
+		 */
+		public boolean injectInputAsynchronously = false;
+
+		/**
+		 * 手势和拖动是否按事件时间实时发送，偏差记录在WaitTelemetry.getInputJitter()，默认为false，尽快发送
+		 * Set to true if the events of gestures and drags should be sent at their event times, so that a
+		 * gesture takes as long on the device as its timestamps say and velocity-sensitive gestures behave
+		 * the same on fast and slow hosts. The achieved jitter is reported by
+		 * {@link WaitTelemetry#getInputJitter()}. Default value is false.
+		 */
+		public boolean paceInputInRealTime = false;
+
+		/**
+		 * 等待耗时统计的输出文件，设置后在shutdown或finalize时追加写入，默认为null不输出
+		 * The file that wait telemetry is appended to by {@link Solo#shutdown()}, or by {@link Solo#finalize()}
+		 * if shutdown was not called, e.g. {@code "/sdcard/Robotium-Telemetry/waits.tsv"}. Solo instances
+		 * sharing the file each append their entries. Default value is null, nothing is written.
+		 */
+		public String waitTelemetryPath = null;
+
+		/**
+		 * 超时学习文件，设置后按activity和定位条件保存p99耗时，下次运行据此缩短超时，默认为null不启用
+		 * The file that observed wait latencies are persisted to, per activity and locator. When set, waits that
+		 * have been seen in an earlier run use the learned timeout p99 * {@link #learnedTimeoutSafetyFactor},
+		 * capped at the configured timeout. Only waits that use the default timeouts of {@link Timeout} are
+		 * shortened, a timeout passed to a method is kept. The file is merged, not overwritten, by
+		 * {@link Solo#shutdown()}, so several Solo instances can share it. Default value is null, timeouts
+		 * are not learned.
+		 */
+		public String learnedTimeoutsPath = null;
+
+		/**
+		 * 学习到的超时的安全系数，默认为3
+		 * The factor the learned p99 latency is multiplied with. Default value is 3.
+		 */
+		public float learnedTimeoutSafetyFactor = 3;
+
+		/**
+		 * 是否按帧检查等待条件，开启后不拖动的view等待在每渲染一帧时检查一次，没有新的帧时不检查，需要API 16，默认为false
+		 * Set to true if Robotium's own view waits that do not scroll should be evaluated once per rendered
+		 * frame through {@code Choreographer} instead of polling, skipping frames in which nothing was drawn.
+		 * {@link Solo#waitForCondition(Condition, int)} always polls, as user conditions may depend on state
+		 * that does not cause a redraw and must not run on the UI thread. Requires API level 16, older
+		 * versions keep polling. Default value is false.
+		 */
+		public boolean frameAlignedPolling = false;
+
+		/**
+		 * 是否在每次等待和点击前等待应用空闲，与{@link Solo#waitForIdle(int)}的判断相同，默认为false
+		 * Set to true if every wait and click should first wait until the app is idle, as in
+		 * {@link Solo#waitForIdle(int)}. The time counts against the timeout of the wait but takes at most half
+		 * of it, so the wait still searches if the app stays busy. Resources that are still busy are logged.
+		 * Default value is false.
+		 */
+		public boolean waitForIdlingResources = false;
+
+		/**
+		 * 是否在点击view前等待当前窗口的动画结束，默认为false
+		 * Set to true if clicks on views should first wait until no view animation or property animation is
+		 * running in the current windows, as in {@link Solo#waitForAnimations(int)}. Default value is false.
+		 */
+		public boolean waitForAnimations = false;
+
+		/**
+		 * 是否把测试进程的属性动画时长比例设为0，使动画直接结束，最后一个solo调用shutdown时恢复，默认为false
+		 * Set to true if the duration scale of property animations should be set to 0 for the test process,
+		 * so that animators jump to their end values. The scale is shared by the process: the original one is
+		 * restored when the last Solo instance that changed it calls {@link Solo#shutdown()}, or is finalized.
+		 * View animations are not affected. Requires API level 11. Default value is false.
+		 */
+		public boolean disableAnimations = false;
+
 		/**
 		 * 截图枚举类型jpg png
 		 * The screenshot file type, JPEG or PNG.
@@ -273,6 +424,18 @@ public class Solo {
 		return activityUtils.getActivityMonitor();
 	}
 
+	/**
+	 * 获取等待耗时统计
+	 * Returns the wait telemetry. It holds, per call site and locator, how long the waitFor methods
+	 * took relative to their timeouts.
+	 * 
+	 * @return the {@link WaitTelemetry} used by Robotium
+	 */
+
+	public WaitTelemetry getWaitTelemetry(){
+		return waitTelemetry;
+	}
+
 	/**
 	 * 所以当前界面中的所有View
 	 * Returns an ArrayList of all the View objects located in the focused 
@@ -388,7 +551,7 @@ public class Solo {
 	 */
 
 	public boolean waitForText(String text, int minimumNumberOfMatches, long timeout, boolean scroll, boolean onlyVisible) {
-		return (waiter.waitForText(text, minimumNumberOfMatches, timeout, scroll, onlyVisible, true) != null);
+		return (waiter.waitForText(text, minimumNumberOfMatches, timeout, scroll, onlyVisible) != null);
 	}
 
 	/**
@@ -592,6 +755,33 @@ public class Solo {
 		return (waiter.waitForWebElement(by, minimumNumberOfMatches, timeout, scroll) != null);
 	}
 
+	/**
+	 * 等待AsyncTask、所有已注册的空闲资源和主线程消息队列空闲，可设置超时时间，超时时日志中打印仍忙碌的资源
+	 * Waits until the app is idle: no {@code AsyncTask} is running or queued, every {@link IdlingResource}
+	 * registered with {@link IdlingRegistry} is idle and no message is due on the main looper. Register an
+	 * {@link ExecutorIdlingResource} for other executors. If the timeout passes first, the resources that
+	 * are still busy are logged.
+	 *
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return {@code true} if all resources are idle and {@code false} if some are still busy after the timeout
+	 */
+
+	public boolean waitForIdle(int timeout){
+		return waiter.waitForIdle(new Deadline(sleeper.getClock(), "waitForIdle", timeout));
+	}
+
+	/**
+	 * 等待当前窗口的view动画和属性动画结束，可设置超时时间
+	 * Waits until no view animation or property animation is running in the current windows.
+	 *
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return {@code true} if the animations have settled and {@code false} if some are still running after the timeout
+	 */
+
+	public boolean waitForAnimations(int timeout){
+		return animationWaiter.waitForAnimations(new Deadline(sleeper.getClock(), "waitForAnimations", timeout));
+	}
+
 	/**
 	 * 按照给定的Condition判断条件进行等待操作，可设置超时时间
 	 * condition   配置的判定规则
@@ -607,6 +797,94 @@ public class Solo {
 		return waiter.waitForCondition(condition, timeout);
 	}
 
+	/**
+	 * 异步等待指定的text内容出现，超时时间20s，不阻塞调用线程
+	 * Waits for the specified text to appear without blocking the calling thread. Default timeout is 20 seconds.
+	 * 
+	 * @param text the text to wait for, specified as a regular expression
+	 * @return a {@link Future} that completes with {@code true} if text is displayed and {@code false} if it is not displayed before the timeout
+	 */
+
+	public Future<Boolean> waitForTextAsync(String text) {
+		return asyncWaiter.waitForText(text, 0, Timeout.getLargeTimeout());
+	}
+
+	/**
+	 * 异步等待指定text内容出现minimumNumberOfMatches次，可以设置超时时间，不阻塞调用线程
+	 * Waits for the specified text to appear without blocking the calling thread.
+	 * 
+	 * @param text the text to wait for, specified as a regular expression
+	 * @param minimumNumberOfMatches the minimum number of matches that are expected to be found. {@code 0} means any number of matches
+	 * @param timeout the the amount of time in milliseconds to wait 
+	 * @return a {@link Future} that completes with {@code true} if text is displayed and {@code false} if it is not displayed before the timeout
+	 */
+
+	public Future<Boolean> waitForTextAsync(String text, int minimumNumberOfMatches, long timeout) {
+		return asyncWaiter.waitForText(text, minimumNumberOfMatches, timeout);
+	}
+
+	/**
+	 * 异步等待指定类型的minimumNumberOfMatches个view出现，可设置超时时间，不阻塞调用线程
+	 * Waits for a View matching the specified class without blocking the calling thread.
+	 * 
+	 * @param viewClass the {@link View} class to wait for
+	 * @param minimumNumberOfMatches the minimum number of matches that are expected to be found. {@code 0} means any number of matches
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return a {@link Future} that completes with {@code true} if the {@link View} is displayed and {@code false} if it is not displayed before the timeout
+	 */
+
+	public <T extends View> Future<Boolean> waitForViewAsync(final Class<T> viewClass, final int minimumNumberOfMatches, final long timeout){
+		// 因为计数从0,开始因此数量减一
+		int index = minimumNumberOfMatches-1;
+		// 小于1,修正为0
+		if(index < 1)
+			index = 0;
+
+		return asyncWaiter.waitForView(viewClass, index, timeout);
+	}
+
+	/**
+	 * 异步等待指定名字的activity出现，可设置超时时间，不阻塞调用线程
+	 * Waits for an Activity matching the specified name without blocking the calling thread.
+	 *
+	 * @param name the name of the {@link Activity} to wait for. Example is: {@code "MyActivity"}
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return a {@link Future} that completes with {@code true} if {@link Activity} appears before the timeout and {@code false} if it does not
+	 */
+
+	public Future<Boolean> waitForActivityAsync(String name, long timeout){
+		return asyncWaiter.waitForActivity(name, timeout);
+	}
+
+	/**
+	 * 异步等待指定类型的activity出现，可设置超时时间，不阻塞调用线程
+	 * Waits for an Activity matching the specified class without blocking the calling thread.
+	 *
+	 * @param activityClass the class of the {@code Activity} to wait for. Example is: {@code MyActivity.class}
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return a {@link Future} that completes with {@code true} if {@link Activity} appears before the timeout and {@code false} if it does not
+	 */
+
+	public Future<Boolean> waitForActivityAsync(Class<? extends Activity> activityClass, long timeout){
+		return asyncWaiter.waitForActivity(activityClass, timeout);
+	}
+
+	/**
+	 * 异步按照给定的Condition判断条件进行等待，可设置超时时间，不阻塞调用线程
+	 * Waits for a condition to be satisfied without blocking the calling thread.
+	 * <br><br>
+	 * All asynchronous waits share one scheduler thread. The returned {@link Future} can be cancelled
+	 * and completes with {@code false} when the timeout expires.
+	 * 
+	 * @param condition the condition to wait for
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return a {@link Future} that completes with {@code true} if condition is satisfied and {@code false} if it is not satisfied before the timeout
+	 */
+
+	public Future<Boolean> waitForConditionAsync(Condition condition, long timeout){
+		return asyncWaiter.waitForCondition(condition, timeout);
+	}
+
 	/**
 	 * 查找指定文本内容的EditText类型View是否出现
 	 * text   指定的文本内容 
@@ -986,7 +1264,7 @@ public class Solo {
 			throw new RuntimeException("clickOnScreen(float x, float y, int numberOfClicks) requires API level >= 14");
 
 		}
-		tapper.generateTapGesture(numberOfClicks, new PointF(x, y));
+		gestureEngine.tap(numberOfClicks, new PointF(x, y));
 	}
 
 	/**
@@ -1656,6 +1934,79 @@ public class Solo {
 		scroller.scrollListToLine(absListView, line);
 	}
 
+	/**
+	 * 把给定view滚动到可见区域，由其所在的可滚动控件按精确偏移一次滚动
+	 * Scrolls the given view into sight. Its ScrollView or list ancestors scroll once by the exact offset
+	 * needed, instead of paging until the view is shown.
+	 *
+	 * @param view the {@link View} to scroll to
+	 * @return {@code true} if the view is shown after scrolling
+	 */
+
+	public boolean scrollToView(View view){
+		return scroller.scrollToView(view, new Deadline(sleeper.getClock(), "scrollToView", Timeout.getSmallTimeout()));
+	}
+
+	/**
+	 * 把指定id的view滚动到可见区域，view需要已在界面树中，例如ScrollView中的内容
+	 * Scrolls the view with the given id into sight. The view must be part of the view hierarchy, e.g. the
+	 * content of a ScrollView. Use {@link #scrollListToItem(AbsListView, ItemMatcher)} for list rows that
+	 * have not been rendered.
+	 *
+	 * @param id the R.id of the {@link View} to scroll to
+	 * @return {@code true} if the view is shown after scrolling
+	 */
+
+	public boolean scrollToView(int id){
+		return scrollToView(waiter.waitForView(id, 0, Timeout.getSmallTimeout(), false));
+	}
+
+	/**
+	 * 按数据项查找列表行并直接跳转到该行，不逐页滑动
+	 * Scrolls an AbsListView to the first row whose adapter item matches. The items are scanned through the
+	 * adapter without rendering them, and the list jumps to the row with a single scroll.
+	 *
+	 * @param absListView the {@link AbsListView} to scroll
+	 * @param matcher the matcher of the adapter items
+	 * @return the row view or {@code null} if no item matches
+	 */
+
+	public View scrollListToItem(AbsListView absListView, ItemMatcher matcher){
+		return scroller.scrollListToItem(absListView, matcher, new Deadline(sleeper.getClock(), "scrollListToItem", Timeout.getSmallTimeout()));
+	}
+
+	/**
+	 * 按数据项的toString()查找列表行并直接跳转到该行，regex按正则表达式解析
+	 * Scrolls an AbsListView to the first row whose adapter item's {@code toString()} matches the given regex.
+	 * The items are scanned through the adapter without rendering them, and the list jumps to the row with a single scroll.
+	 *
+	 * @param absListView the {@link AbsListView} to scroll
+	 * @param regex the text of the item. The parameter will be interpreted as a regular expression
+	 * @return the row view or {@code null} if no item matches
+	 */
+
+	public View scrollListToItem(AbsListView absListView, String regex){
+		final Pattern pattern = RobotiumUtils.getPattern(regex);
+		return scrollListToItem(absListView, new ItemMatcher() {
+			public boolean matches(Object item) {
+				return item != null && pattern.matcher(item.toString()).find();
+			}
+		});
+	}
+
+	/**
+	 * 按数据项查找第index个列表控件中的行并直接跳转到该行
+	 * Scrolls an AbsListView matching the specified index to the first row whose adapter item matches.
+	 *
+	 * @param index the index of the {@link AbsListView} to scroll. {@code 0} if only one list is available
+	 * @param matcher the matcher of the adapter items
+	 * @return the row view or {@code null} if no item matches
+	 */
+
+	public View scrollListToItem(int index, ItemMatcher matcher){
+		return scrollListToItem(waiter.waitForAndGetView(index, AbsListView.class), matcher);
+	}
+
 	/**
 	 * 拖动指定的第index列表内容到指定的行
 	 * Scroll a AbsListView matching the specified index to the specified line. 
@@ -1747,7 +2098,7 @@ public class Solo {
 		if (android.os.Build.VERSION.SDK_INT < 14){
 			throw new RuntimeException("pinchToZoom() requires API level >= 14");
 		}
-		zoomer.generateZoomGesture(startPoint1, startPoint2, endPoint1, endPoint2);
+		gestureEngine.moveTwoPointers(startPoint1, startPoint2, endPoint1, endPoint2);
 	}
 
 	/**
@@ -1771,8 +2122,7 @@ public class Solo {
 		if (android.os.Build.VERSION.SDK_INT < 14){
 			throw new RuntimeException("swipe() requires API level >= 14");
 		}
-		swiper.generateSwipeGesture(startPoint1, startPoint2, endPoint1,
-				endPoint2);
+		gestureEngine.moveTwoPointers(startPoint1, startPoint2, endPoint1, endPoint2);
 	}
 
 	/**
@@ -1791,7 +2141,7 @@ public class Solo {
 		if (android.os.Build.VERSION.SDK_INT < 14){
 			throw new RuntimeException("rotateLarge(PointF center1, PointF center2) requires API level >= 14");
 		}
-		rotator.generateRotateGesture(Rotator.LARGE, center1, center2);
+		gestureEngine.rotate(GestureEngine.LARGE, center1, center2);
 	}
 
 	/**
@@ -1810,7 +2160,89 @@ public class Solo {
 		if (android.os.Build.VERSION.SDK_INT < 14){
 			throw new RuntimeException("rotateSmall(PointF center1, PointF center2) requires API level >= 14");
 		}
-		rotator.generateRotateGesture(Rotator.SMALL, center1, center2);
+		gestureEngine.rotate(GestureEngine.SMALL, center1, center2);
+	}
+
+	/**
+	 * 执行多点触控手势，每个轨迹对应一个手指，API要求14
+	 * Performs a gesture with one pointer per path. The pointers go down at the start of their paths, move
+	 * along them together and go up at their ends. Requires API level >= 14.
+	 *
+	 * @param duration the duration of the movement in milliseconds
+	 * @param eventInterval the time between two move events in milliseconds. Example is: 10
+	 * @param paths the paths of the pointers, e.g. {@code GesturePath.line(from, to)}
+	 */
+
+	public void performGesture(int duration, int eventInterval, GesturePath... paths)
+	{
+		// API未到14抛出异常
+		if (android.os.Build.VERSION.SDK_INT < 14){
+			throw new RuntimeException("performGesture() requires API level >= 14");
+		}
+		gestureEngine.performGesture(paths, duration, eventInterval);
+	}
+
+	/**
+	 * 开始录制输入，之后的点击、拖动、手势和按键事件写入给定文件，已在录制时先结束之前的录制
+	 * Starts recording the touch and key events that Robotium injects, e.g. clicks, drags, gestures and
+	 * key presses, to a compact binary trace. A recording in progress is stopped first. Text entered with
+	 * {@code enterText()} or {@code typeText()} through the input method is not recorded.
+	 *
+	 * @param path the path of the trace file, e.g. {@code "/sdcard/Robotium-Traces/login.trace"}
+	 */
+
+	public void startRecordingInput(String path) {
+		try {
+			final File file = new File(path);
+			if(file.getParentFile() != null){
+				file.getParentFile().mkdirs();
+			}
+			eventInjector.startRecording(new FileOutputStream(file));
+		} catch (IOException e) {
+			throw new RuntimeException("Can not record input to " + path, e);
+		}
+	}
+
+	/**
+	 * 结束录制输入并写出文件，未在录制时无影响
+	 * Stops recording input and writes the rest of the trace. Has no effect if no recording is in progress.
+	 */
+
+	public void stopRecordingInput() {
+		eventInjector.stopRecording();
+	}
+
+	/**
+	 * 尽快回放录制的输入，保持原有的事件时间间隔，触摸事件批量注入
+	 * Replays a trace recorded with {@link #startRecordingInput(String)} as fast as possible. The events
+	 * keep their recorded spacing in their timestamps, and touch events are injected in batches that are
+	 * waited for once per gesture.
+	 *
+	 * @param path the path of the trace file
+	 * @return the number of replayed events
+	 */
+
+	public int replayInput(String path) {
+		return replayInput(path, 0);
+	}
+
+	/**
+	 * 回放录制的输入，timeScale大于0时按缩放后的时间实时发送，1为原速，0.5为两倍速，0为尽快发送
+	 * Replays a trace recorded with {@link #startRecordingInput(String)}. If {@code timeScale} is greater
+	 * than 0 the events are sent at their recorded times scaled by it, so 1 replays at the recorded speed
+	 * and 0.5 twice as fast. 0 replays as fast as possible. A recording in progress is paused during the replay.
+	 *
+	 * @param path the path of the trace file
+	 * @param timeScale the factor applied to the time between events, or 0 for full speed
+	 * @return the number of replayed events
+	 */
+
+	public int replayInput(String path, float timeScale) {
+		try {
+			return eventInjector.replay(new FileInputStream(path), timeScale, sleeper.getClock());
+		} catch (IOException e) {
+			throw new RuntimeException("Can not replay input from " + path, e);
+		}
 	}
 
 	/**
@@ -1961,7 +2393,8 @@ public class Solo {
 
 	/**
 	 * 对第index个 EditText输入内容
-	 * Types text in an EditText matching the specified index.
+	 * Types text in an EditText matching the specified index. The text is committed through the input
+	 * connection of the EditText unless {@link Config#typeTextWithKeyEvents} is set.
 	 *
 	 * @param index the index of the {@link EditText}. {@code 0} if only one is available
 	 * @param text the text to type in the {@link EditText} field
@@ -1973,7 +2406,8 @@ public class Solo {
 
 	/**
 	 * 对指定的 EditText输入内容
-	 * Types text in the specified EditText.
+	 * Types text in the specified EditText. The text is committed through the input connection of the
+	 * EditText unless {@link Config#typeTextWithKeyEvents} is set.
 	 *
 	 * @param editText the {@link EditText} to type text in
 	 * @param text the text to type in the {@link EditText} field
@@ -2777,6 +3211,72 @@ public class Solo {
 		sleeper.sleep(time);
 	}
 
+	/**
+	 * 停止solo的所有操作，阻塞中的等待被中断并抛出CancellationException，之后的等待立即抛出CancellationException
+	 * Shuts down this Solo instance. Waits, searches and scrolls that are blocked in other threads are interrupted
+	 * and throw a {@link java.util.concurrent.CancellationException}, as does every later blocking call.
+	 * Pending asynchronous waits are cancelled, a running screenshot sequence is stopped and the shared
+	 * background threads are released. Wait telemetry is appended to {@link Config#waitTelemetryPath},
+	 * learned timeouts are merged into {@link Config#learnedTimeoutsPath}
+	 * and the animation duration scale and the window list hook are released, see {@link Config#disableAnimations}.
+	 * {@link #finishOpenedActivities()} and {@link #finalize()} can still be called afterwards.
+	 */
+
+	public void shutdown() {
+		dumpWaitTelemetry();
+		saveLearnedTimeouts();
+		animationWaiter.restoreDurationScale();
+		windowWatcher.uninstall();
+		activityUtils.stopActivitySync();
+		sleeper.cancel();
+		eventInjector.stopRecording();
+		asyncWaiter.shutdown();
+		screenshotTaker.stopScreenshotSequence();
+		scheduler.close();
+	}
+
+	/**
+	 * 释放solo的所有资源，先调用shutdown再移除ActivityMonitor，通常在tearDown中finishOpenedActivities之后调用
+	 * Releases every resource of this Solo instance: calls {@link #shutdown()} and removes the
+	 * {@code ActivityMonitor}. This is the documented release point, usually called in tearDown() after
+	 * {@link #finishOpenedActivities()}. The instance can not be used afterwards.
+	 */
+
+	public void close() {
+		shutdown();
+		activityUtils.close();
+	}
+
+	/**
+	 * 配置了输出文件时追加写入等待耗时统计，每个solo只写入一次
+	 * Appends the wait telemetry to {@link Config#waitTelemetryPath} if it is set. Only the first call writes.
+	 */
+
+	private synchronized void dumpWaitTelemetry() {
+		if(config.waitTelemetryPath == null || waitTelemetryDumped){
+			return;
+		}
+		waitTelemetryDumped = true;
+		try {
+			waitTelemetry.dump(config.waitTelemetryPath);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * 把学习到的超时合并到Config.learnedTimeoutsPath文件
+	 * Merges the learned timeouts into {@link Config#learnedTimeoutsPath}.
+	 */
+
+	private void saveLearnedTimeouts() {
+		try {
+			timeoutLearner.save();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * solo生命周期结束，释放相关资源
 	 * Finalizes the Solo object and removes the ActivityMonitor.
@@ -2785,7 +3285,17 @@ public class Solo {
 	 */    	
 
 	public void finalize() throws Throwable {
+		// 未调用shutdown时写入等待耗时统计
+		dumpWaitTelemetry();
+		// 保存学习到的超时，shutdown后没有新的结果时不再写入
+		saveLearnedTimeouts();
+		eventInjector.stopRecording();
+		asyncWaiter.shutdown();
+		windowWatcher.uninstall();
+		animationWaiter.restoreDurationScale();
 		activityUtils.finalize();
+		// 释放共享调度器，最后一个solo释放时停止后台线程
+		scheduler.close();
 	}
 
 	/**
@@ -2910,6 +3420,12 @@ public class Solo {
 	private void initialize(){
 		Timeout.setLargeTimeout(initializeTimeout("solo_large_timeout", config.timeout_large));
 		Timeout.setSmallTimeout(initializeTimeout("solo_small_timeout", config.timeout_small));
+		// 开始监听窗口变化
+		windowWatcher.install();
+		// 关闭属性动画
+		if(config.disableAnimations){
+			animationWaiter.setDurationScale(0);
+		}
 	}
 
 	/**
@@ -1,9 +1,15 @@
 package com.robotium.solo;
 
+import java.util.Map;
+import java.util.WeakHashMap;
 import junit.framework.Assert;
 import android.app.Instrumentation;
 import android.text.InputType;
+import android.util.Log;
+import android.view.inputmethod.EditorInfo;
+import android.view.inputmethod.InputConnection;
 import android.widget.EditText;
+import com.robotium.solo.Solo.Config;
 
 
 /**
@@ -15,24 +21,32 @@ import android.widget.EditText;
  */
 
 class TextEnterer{
+	// 相关属性配置
+	private final Config config;
 	// Instrument 用于事件发送
 	private final Instrumentation inst;
 	// 点击操作工具类
 	private final Clicker clicker;
 	// 弹框操作工具类
 	private final DialogUtils dialogUtils;
+	// Robotium把输入类型设为TYPE_NULL的EditText，只在主线程访问
+	private final Map<EditText, Boolean> nulledInputTypes = new WeakHashMap<EditText, Boolean>();
+	// 日志打印标签
+	private static final String LOG_TAG = "Robotium";
 
 	/**
 	 * 构造函数
 	 * Constructs this object.
 	 * 
+	 * @param config the {@code Config} instance
 	 * @param inst the {@code Instrumentation} instance
 	 * @param clicker the {@code Clicker} instance
 	 * @param dialogUtils the {@code DialogUtils} instance
 	 * 
 	 */
 
-	public TextEnterer(Instrumentation inst, Clicker clicker, DialogUtils dialogUtils) {
+	public TextEnterer(Config config, Instrumentation inst, Clicker clicker, DialogUtils dialogUtils) {
+		this.config = config;
 		this.inst = inst;
 		this.clicker = clicker;
 		this.dialogUtils = dialogUtils;
@@ -60,6 +74,7 @@ class TextEnterer{
 				{
 					// 清空原有内容
 					editText.setInputType(InputType.TYPE_NULL); 
+					nulledInputTypes.put(editText, Boolean.TRUE);
 					// 把焦点切换到editText
 					editText.performClick();
 					// 隐藏软键盘
@@ -79,17 +94,23 @@ class TextEnterer{
 	}
 	
 	/**
-	 * 录入文本内容到EditText
+	 * 录入文本内容到EditText，默认通过InputConnection一次提交，Config.typeTextWithKeyEvents开启时逐个字符发送按键事件
 	 * editText  需要设置内容的editText
 	 * text      录入的文本内容
-	 * Types text in an {@code EditText} 
+	 * Types text in an {@code EditText}. By default the whole text is committed at once through the
+	 * view's {@code InputConnection}; if {@link Config#typeTextWithKeyEvents} is set, or the view has no
+	 * input connection, one key event per character is injected instead.
 	 * 
 	 * @param index the index of the {@code EditText} 
 	 * @param text the text that should be typed
 	 */
 
 	public void typeText(final EditText editText, final String text){
-		// 非空判断
+		// 默认一次提交整个字符串，无法提交时发送按键事件
+		if(editText != null && !config.typeTextWithKeyEvents && commitText(editText, text)){
+			return;
+		}
+		// 逐个字符发送按键事件
 		if(editText != null){
 			// 清空原有内容
 			inst.runOnMainSync(new Runnable()
@@ -97,6 +118,7 @@ class TextEnterer{
 				public void run()
 				{
 					editText.setInputType(InputType.TYPE_NULL);
+					nulledInputTypes.put(editText, Boolean.TRUE);
 				}
 			});
 			// editText成为当前焦点
@@ -126,4 +148,61 @@ class TextEnterer{
 			}
 		}
 	}
+
+	/**
+	 * 在主线程通过EditText的InputConnection一次提交整个字符串，追加在原有内容后，TextWatcher照常触发
+	 * Types text by committing it at once through the {@code InputConnection} of the view on the UI thread,
+	 * the way an input method does. The view is focused and the text is appended at the end, so text
+	 * watchers fire as for typed text, but no key events are sent and key listeners are not called.
+	 * <br><br>
+	 * A disabled view is left unchanged, as no key event would reach it either. A view without an input
+	 * connection gets the text appended to its {@code Editable} only if Robotium itself set its input type
+	 * to {@code TYPE_NULL}; otherwise nothing is done and the caller falls back to key events.
+	 *
+	 * @param editText the {@code EditText} to type in
+	 * @param text the text to type
+	 * @return {@code true} if the view was handled and {@code false} if key events should be sent instead
+	 */
+
+	private boolean commitText(final EditText editText, final String text) {
+		final RuntimeException[] failure = new RuntimeException[1];
+		final boolean[] handled = new boolean[1];
+		inst.runOnMainSync(new Runnable()
+		{
+			public void run()
+			{
+				try {
+					// 不可用的EditText不录入，与按键事件一致
+					if(!editText.isEnabled()){
+						Log.w(LOG_TAG, "Text is not typed into a disabled EditText");
+						handled[0] = true;
+						return;
+					}
+					editText.requestFocus();
+					// 光标移到末尾，追加文本
+					editText.setSelection(editText.getText().length());
+					final InputConnection inputConnection = editText.onCreateInputConnection(new EditorInfo());
+					if(inputConnection != null){
+						inputConnection.beginBatchEdit();
+						inputConnection.finishComposingText();
+						inputConnection.commitText(text, 1);
+						inputConnection.endBatchEdit();
+						handled[0] = true;
+					}
+					// 输入类型由Robotium设为TYPE_NULL时没有InputConnection，直接追加
+					else if(editText.getInputType() == InputType.TYPE_NULL && nulledInputTypes.containsKey(editText)){
+						editText.getText().append(text);
+						handled[0] = true;
+					}
+				} catch (RuntimeException e) {
+					failure[0] = e;
+				}
+			}
+		});
+		// 主线程的异常在调用线程抛出
+		if(failure[0] != null){
+			throw failure[0];
+		}
+		return handled[0];
+	}
 }
@@ -0,0 +1,296 @@
+package com.robotium.solo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import android.app.Activity;
+
+
+/**
+ * 超时学习工具类，把每个activity和定位条件的p99耗时保存到文件，下次运行时据此缩短超时
+ * Learns timeouts from earlier runs. The p99 latency of every successful wait is kept per activity and
+ * operation and persisted to a file. On the next run a wait that has been seen before gets the timeout
+ * p99 * safety factor, never more than the configured timeout and never less than one second.
+ * <br><br>
+ * A wait that times out with a learned timeout is forgotten, so it gets the configured timeout again on the next run.
+ * <br><br>
+ * Only waits that use one of the default timeouts, {@link Timeout#getSmallTimeout()} or
+ * {@link Timeout#getLargeTimeout()}, are shortened. Any other timeout was chosen by the caller and is kept;
+ * an explicit timeout that happens to equal a default one can not be told apart and is shortened too.
+ * <br><br>
+ * {@link #save()} merges with the file under a file lock, so several learners of one or more processes can
+ * save to the same file without losing each other's latencies.
+ *
+ */
+
+class TimeoutLearner {
+	// activity操作工具类
+	private final ActivityUtils activityUtils;
+	// 时钟
+	private final Clock clock;
+	// 保存文件路径，null表示未启用
+	private final String path;
+	// 安全系数
+	private final float safetyFactor;
+	// 学习到的超时下限1s
+	private static final long MINIMUM_TIMEOUT = 1000;
+	// 之前运行保存的p99耗时
+	private final Map<String, Long> learnedLatencies;
+	// 本次运行观察到的耗时
+	private final Map<String, WaitTelemetry.Histogram> observedLatencies;
+	// 本次运行在学习到的超时内未完成的等待
+	private final Set<String> failedKeys;
+	// 上次保存后是否有新的结果
+	private boolean changed = false;
+	// 同一进程内保存文件时的锁，文件锁不能在同一进程内重叠
+	private static final Object SAVE_LOCK = new Object();
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param activityUtils the {@code ActivityUtils} instance
+	 * @param clock the clock the deadlines are measured with
+	 * @param path the file the latencies are persisted to or {@code null} if learning is disabled
+	 * @param safetyFactor the factor the p99 latency is multiplied with
+	 */
+
+	public TimeoutLearner(ActivityUtils activityUtils, Clock clock, String path, float safetyFactor) {
+		this.activityUtils = activityUtils;
+		this.clock = clock;
+		this.path = path;
+		this.safetyFactor = safetyFactor;
+		learnedLatencies = new HashMap<String, Long>();
+		observedLatencies = new LinkedHashMap<String, WaitTelemetry.Histogram>();
+		failedKeys = new HashSet<String>();
+		load();
+	}
+
+	/**
+	 * 创建截止时间，之前学习过则使用学习到的超时
+	 * Creates the deadline of a wait. If the wait uses a default timeout and has been seen on the current
+	 * activity in an earlier run, the learned timeout is used instead of the given one.
+	 *
+	 * @param operation the name of the operation, e.g. {@code "waitForText 'OK'"}
+	 * @param timeout the timeout in milliseconds, also the ceiling of the learned timeout
+	 * @return the deadline
+	 */
+
+	public Deadline newDeadline(String operation, long timeout) {
+		if(path == null || !isDefaultTimeout(timeout)){
+			return new Deadline(clock, operation, timeout);
+		}
+		final String key = getActivityName() + '\t' + operation;
+		Long latency;
+		synchronized (learnedLatencies) {
+			latency = learnedLatencies.get(key);
+		}
+		if(latency != null){
+			timeout = Math.min(timeout, Math.max(MINIMUM_TIMEOUT, (long) (latency * safetyFactor)));
+		}
+		return new Deadline(clock, operation, timeout, key);
+	}
+
+	/**
+	 * 记录一次等待结果
+	 * Records the outcome of a wait created by {@link #newDeadline(String, long)}.
+	 *
+	 * @param deadline the deadline of the wait
+	 * @param found {@code true} if the wait succeeded
+	 */
+
+	public void record(Deadline deadline, boolean found) {
+		final String key = deadline.getKey();
+		if(key == null){
+			return;
+		}
+		synchronized (learnedLatencies) {
+			changed = true;
+			if(!found){
+				// 学习到的超时不够，忘掉，下次使用配置的超时
+				if(learnedLatencies.containsKey(key)){
+					failedKeys.add(key);
+				}
+				return;
+			}
+			WaitTelemetry.Histogram histogram = observedLatencies.get(key);
+			if(histogram == null){
+				histogram = new WaitTelemetry.Histogram();
+				// 之前的p99作为一个样本，样本少时保持保守
+				final Long latency = learnedLatencies.get(key);
+				if(latency != null){
+					histogram.record(latency);
+				}
+				observedLatencies.put(key, histogram);
+			}
+			histogram.record(deadline.elapsed());
+		}
+	}
+
+	/**
+	 * 把本次运行学习到的p99耗时合并到文件，加文件锁后重新读取，只覆盖本次观察到或失败的条目
+	 * Merges the latencies observed in this run into the file. The file is locked and read again, so entries
+	 * saved meanwhile by other learners are kept, and only the entries observed or forgotten by this learner
+	 * are replaced. Has no effect if no wait was recorded since the last save.
+	 *
+	 * @throws IOException if the file can not be locked, read or written
+	 */
+
+	public void save() throws IOException {
+		if(path == null){
+			return;
+		}
+		final Map<String, Long> observed = new LinkedHashMap<String, Long>();
+		final Set<String> failed = new HashSet<String>();
+		synchronized (learnedLatencies) {
+			if(!changed){
+				return;
+			}
+			changed = false;
+			for(Map.Entry<String, WaitTelemetry.Histogram> entry : observedLatencies.entrySet()){
+				observed.put(entry.getKey(), entry.getValue().getValueAtPercentile(99));
+			}
+			failed.addAll(failedKeys);
+		}
+		final File file = new File(path);
+		if(file.getParentFile() != null){
+			file.getParentFile().mkdirs();
+		}
+		final Map<String, Long> latencies = new LinkedHashMap<String, Long>();
+		try {
+			write(file, observed, failed, latencies);
+		} catch (IOException e) {
+			// 写入失败，下次保存时重试
+			synchronized (learnedLatencies) {
+				changed = true;
+			}
+			throw e;
+		}
+		// 之后的等待使用合并后的结果
+		synchronized (learnedLatencies) {
+			learnedLatencies.clear();
+			learnedLatencies.putAll(latencies);
+		}
+	}
+
+	/**
+	 * 加锁读取文件，合并后写回
+	 * Locks the file, reads it, merges the given entries into it and writes it back.
+	 *
+	 * @param file the file
+	 * @param observed the latencies that replace the saved ones
+	 * @param failed the keys that are removed
+	 * @param latencies the map that receives the merged latencies
+	 * @throws IOException if the file can not be locked, read or written
+	 */
+
+	private static void write(File file, Map<String, Long> observed, Set<String> failed, Map<String, Long> latencies) throws IOException {
+		synchronized (SAVE_LOCK) {
+			final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try {
+				final FileLock lock = randomAccessFile.getChannel().lock();
+				try {
+					final byte[] content = new byte[(int) randomAccessFile.length()];
+					randomAccessFile.readFully(content);
+					parse(new String(content, "UTF-8"), latencies);
+					latencies.putAll(observed);
+					for(String key : failed){
+						latencies.remove(key);
+					}
+					final StringBuilder output = new StringBuilder();
+					for(Map.Entry<String, Long> latency : latencies.entrySet()){
+						output.append(latency.getKey()).append('\t').append(latency.getValue()).append('\n');
+					}
+					randomAccessFile.setLength(0);
+					randomAccessFile.write(output.toString().getBytes("UTF-8"));
+				} finally {
+					lock.release();
+				}
+			} finally {
+				randomAccessFile.close();
+			}
+		}
+	}
+
+	/**
+	 * 读取之前运行保存的p99耗时，文件不存在或格式错误时忽略
+	 * Reads the latencies persisted by earlier runs. A missing file or malformed lines are ignored.
+	 */
+
+	private void load() {
+		if(path == null || !new File(path).exists()){
+			return;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(path));
+			final StringBuilder content = new StringBuilder();
+			String line;
+			while((line = reader.readLine()) != null){
+				content.append(line).append('\n');
+			}
+			parse(content.toString(), learnedLatencies);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			if(reader != null){
+				try {
+					reader.close();
+				} catch (IOException ignored) {}
+			}
+		}
+	}
+
+	/**
+	 * 解析文件内容，每行为键、制表符和耗时，格式错误的行忽略
+	 * Parses the content of the file, one key, tab and latency per line. Malformed lines are ignored.
+	 *
+	 * @param content the content of the file
+	 * @param latencies the map the latencies are put into
+	 */
+
+	private static void parse(String content, Map<String, Long> latencies) {
+		for(String line : content.split("\n")){
+			final int lastTab = line.lastIndexOf('\t');
+			if(lastTab <= 0){
+				continue;
+			}
+			try {
+				latencies.put(line.substring(0, lastTab), Long.parseLong(line.substring(lastTab + 1).trim()));
+			} catch (NumberFormatException ignored) {}
+		}
+	}
+
+	/**
+	 * 是否为默认超时，只有默认超时会被学习到的超时缩短
+	 * Returns whether the given timeout is one of the default timeouts, which are the only ones shortened.
+	 *
+	 * @param timeout the timeout in milliseconds
+	 * @return {@code true} if it equals {@link Timeout#getSmallTimeout()} or {@link Timeout#getLargeTimeout()}
+	 */
+
+	private static boolean isDefaultTimeout(long timeout) {
+		return timeout == Timeout.getSmallTimeout() || timeout == Timeout.getLargeTimeout();
+	}
+
+	/**
+	 * 获取当前activity的类名
+	 * Returns the class name of the current activity.
+	 *
+	 * @return the class name or {@code "unknown"}
+	 */
+
+	private String getActivityName() {
+		final Activity activity = activityUtils.getCurrentActivity(false, false);
+		return activity != null ? activity.getClass().getName() : "unknown";
+	}
+}
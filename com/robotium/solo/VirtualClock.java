@@ -0,0 +1,88 @@
+package com.robotium.solo;
+
+
+/**
+ * 虚拟时钟，sleep不真正等待而是直接推进时间，结果确定
+ * A deterministic clock. Sleeping does not block, it advances the time instead, so a wait that would
+ * take seconds in real time returns immediately with the same outcome.
+ * <br><br>
+ * Example usage:
+ * <pre>
+ *	VirtualClock clock = new VirtualClock();
+ *	Sleeper sleeper = new Sleeper(clock);
+ *	sleeper.sleep(500);
+ *	assertEquals(500, clock.uptimeMillis());
+ * </pre>
+ *
+ */
+
+class VirtualClock implements Clock {
+	// 当前虚拟时间
+	private long now;
+
+
+	/**
+	 * 构造函数，从0开始
+	 * Constructs a clock that starts at {@code 0}.
+	 */
+
+	public VirtualClock() {
+		this(0);
+	}
+
+	/**
+	 * 构造函数，从指定时间开始
+	 * Constructs a clock that starts at the given time.
+	 *
+	 * @param start the start time in milliseconds
+	 */
+
+	public VirtualClock(long start) {
+		this.now = start;
+	}
+
+	public synchronized long uptimeMillis() {
+		return now;
+	}
+
+	/**
+	 * 推进时间而不等待，线程被中断时抛出InterruptedException
+	 * Advances the time by the length of the sleep without blocking.
+	 *
+	 * @param time the length of the sleep in milliseconds
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+
+	public void sleep(long time) throws InterruptedException {
+		if(Thread.interrupted()){
+			throw new InterruptedException();
+		}
+		advance(time);
+	}
+
+	/**
+	 * 推进时间而不等待通知，与sleep相同
+	 * Advances the time by the given length without waiting for a notification, as {@link #sleep(long)}.
+	 *
+	 * @param monitor the monitor, not waited on
+	 * @param time the length of the wait in milliseconds
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+
+	public void await(Object monitor, long time) throws InterruptedException {
+		sleep(time);
+	}
+
+	/**
+	 * 推进时间
+	 * Advances the time, e.g. to simulate work that takes time.
+	 *
+	 * @param time the time to advance in milliseconds, negative values are ignored
+	 */
+
+	public synchronized void advance(long time) {
+		if(time > 0){
+			now += time;
+		}
+	}
+}
@@ -0,0 +1,490 @@
+package com.robotium.solo;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * 等待耗时统计类，按调用位置和定位条件记录耗时、轮询次数、界面遍历次数、滑动次数和结果
+ * Records how long waits take relative to their timeouts. Every wait is recorded per call site
+ * (the first stack frame outside Robotium) and per locator: the elapsed time, the number of polls,
+ * traversals of the view hierarchy and scroll steps go into log-bucketed histograms, and the outcome is counted.
+ * <br><br>
+ * Example usage:
+ * <pre>
+ *	for(WaitTelemetry.Entry entry : solo.getWaitTelemetry().getEntries()){
+ *		Log.d("Waits", entry.toString());
+ *	}
+ * </pre>
+ *
+ */
+
+public class WaitTelemetry {
+	// 统计项，按首次出现的顺序
+	private final Map<String, Entry> entries;
+	// 每次滑动后等待稳定的耗时
+	private Histogram scrollSettleTimes = new Histogram();
+	// 按时发送的输入事件与目标时间的偏差，单位微秒
+	private Histogram inputJitter = new Histogram();
+	// Robotium自身的包名，调用位置跳过此包中的类
+	private static final String ROBOTIUM_PACKAGE = "com.robotium.solo";
+	// 文件表头
+	private static final String HEADER = "callSite\tmethod\tlocator\tfound\ttimedOut\ttimeout\telapsed p50/p90/p99/max\tpolls p50/max\ttraversals p50/max\tscrolls p50/max";
+	// 同一进程内写入文件时的锁
+	private static final Object DUMP_LOCK = new Object();
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 */
+
+	WaitTelemetry() {
+		entries = new LinkedHashMap<String, Entry>();
+	}
+
+	/**
+	 * 记录一次等待，调用位置取调用栈中第一个不属于Robotium的位置
+	 * Records one finished wait.
+	 *
+	 * @param method the wait method, e.g. {@code "waitForText"}
+	 * @param locator what was waited for, e.g. the regex or the class name
+	 * @param deadline the deadline of the wait
+	 * @param found {@code true} if the wait succeeded
+	 */
+
+	void record(String method, String locator, Deadline deadline, boolean found) {
+		final String callSite = getCallSite();
+		final String key = callSite + '\t' + method + '\t' + locator;
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if(entry == null){
+				entry = new Entry(callSite, method, locator);
+				entries.put(key, entry);
+			}
+			entry.record(deadline, found);
+		}
+	}
+
+	/**
+	 * 获取所有统计项的副本，之后的记录不影响副本
+	 * Returns copies of all entries, in the order they were first recorded. The copies are taken
+	 * together and are not affected by later records.
+	 *
+	 * @return the entries
+	 */
+
+	public List<Entry> getEntries() {
+		synchronized (entries) {
+			final List<Entry> copies = new ArrayList<Entry>(entries.size());
+			for(Entry entry : entries.values()){
+				copies.add(entry.copy());
+			}
+			return copies;
+		}
+	}
+
+	/**
+	 * 记录一次滑动后等待稳定的耗时
+	 * Records how long a scroll step took to settle.
+	 *
+	 * @param settleTime the settle time in milliseconds
+	 */
+
+	void recordScrollSettle(long settleTime) {
+		synchronized (entries) {
+			scrollSettleTimes.record(settleTime);
+		}
+	}
+
+	/**
+	 * 获取每次滑动后等待稳定的耗时分布
+	 * Returns a copy of the distribution of the time scroll steps took to settle.
+	 *
+	 * @return the settle times in milliseconds
+	 */
+
+	public Histogram getScrollSettleTimes() {
+		synchronized (entries) {
+			return scrollSettleTimes.copy();
+		}
+	}
+
+	/**
+	 * 记录一个按时发送的输入事件与目标时间的偏差
+	 * Records how far from its target time a paced input event was released.
+	 *
+	 * @param jitter the difference in microseconds
+	 */
+
+	void recordInputJitter(long jitter) {
+		synchronized (entries) {
+			inputJitter.record(jitter);
+		}
+	}
+
+	/**
+	 * 获取按时发送的输入事件与目标时间偏差的分布，只在Config.paceInputInRealTime开启时记录
+	 * Returns a copy of the distribution of how far from their target times paced input events were released.
+	 * Recorded only if {@link Solo.Config#paceInputInRealTime} is set.
+	 *
+	 * @return the differences in microseconds
+	 */
+
+	public Histogram getInputJitter() {
+		synchronized (entries) {
+			return inputJitter.copy();
+		}
+	}
+
+	/**
+	 * 清空所有统计
+	 * Removes all entries, the scroll settle times and the input jitter.
+	 */
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			scrollSettleTimes = new Histogram();
+			inputJitter = new Histogram();
+		}
+	}
+
+	/**
+	 * 把所有统计项追加到指定文件，每项一行，以制表符分隔，文件为空时先写表头
+	 * Appends all entries to the given file, one tab separated line per entry. A header line is written
+	 * first if the file is new or empty, so several Solo instances can dump to the same file.
+	 *
+	 * @param path the path of the file, e.g. {@code "/sdcard/Robotium-Telemetry/waits.tsv"}
+	 * @throws IOException if the file can not be written
+	 */
+
+	public void dump(String path) throws IOException {
+		final File file = new File(path);
+		if(file.getParentFile() != null){
+			file.getParentFile().mkdirs();
+		}
+		synchronized (DUMP_LOCK) {
+			final boolean empty = file.length() == 0;
+			BufferedWriter writer = new BufferedWriter(new FileWriter(file, true));
+			try {
+				if(empty){
+					writer.write(HEADER);
+					writer.newLine();
+				}
+				for(Entry entry : getEntries()){
+					writer.write(entry.toString());
+					writer.newLine();
+				}
+			} finally {
+				writer.close();
+			}
+		}
+	}
+
+	/**
+	 * 获取调用栈中第一个不属于Robotium的位置
+	 * Returns the first stack frame outside of Robotium, e.g. {@code "com.example.LoginTest.testLogin:42"}.
+	 *
+	 * @return the call site or {@code "unknown"}
+	 */
+
+	private static String getCallSite() {
+		for(StackTraceElement element : new Throwable().getStackTrace()){
+			final String className = element.getClassName();
+			final int lastDot = className.lastIndexOf('.');
+			if(lastDot < 0 || !className.substring(0, lastDot).equals(ROBOTIUM_PACKAGE)){
+				return className + "." + element.getMethodName() + ":" + element.getLineNumber();
+			}
+		}
+		return "unknown";
+	}
+
+	/**
+	 * 单个调用位置和定位条件的统计项
+	 * The statistics of one call site and locator.
+	 */
+
+	public static class Entry {
+		// 调用位置
+		private final String callSite;
+		// 等待方法
+		private final String method;
+		// 定位条件
+		private final String locator;
+		// 成功次数
+		private int found = 0;
+		// 超时次数
+		private int timedOut = 0;
+		// 最近一次的超时时间
+		private long timeout = 0;
+		// 耗时分布
+		private final Histogram elapsed;
+		// 轮询次数分布
+		private final Histogram polls;
+		// 界面遍历次数分布
+		private final Histogram traversals;
+		// 滑动次数分布
+		private final Histogram scrolls;
+
+		Entry(String callSite, String method, String locator) {
+			this.callSite = callSite;
+			this.method = method;
+			this.locator = locator;
+			elapsed = new Histogram();
+			polls = new Histogram();
+			traversals = new Histogram();
+			scrolls = new Histogram();
+		}
+
+		/**
+		 * 复制构造函数，直方图也复制
+		 * Constructs a copy of the given entry, including copies of its histograms.
+		 *
+		 * @param source the entry to copy
+		 */
+
+		private Entry(Entry source) {
+			callSite = source.callSite;
+			method = source.method;
+			locator = source.locator;
+			found = source.found;
+			timedOut = source.timedOut;
+			timeout = source.timeout;
+			elapsed = source.elapsed.copy();
+			polls = source.polls.copy();
+			traversals = source.traversals.copy();
+			scrolls = source.scrolls.copy();
+		}
+
+		/**
+		 * 复制当前的统计，调用方需持有entries的锁
+		 * Returns a copy of this entry. The caller holds the lock the entry is recorded under.
+		 *
+		 * @return the copy
+		 */
+
+		Entry copy() {
+			return new Entry(this);
+		}
+
+		void record(Deadline deadline, boolean wasFound) {
+			if(wasFound){
+				found++;
+			}
+			else{
+				timedOut++;
+			}
+			timeout = deadline.getTimeout();
+			elapsed.record(deadline.elapsed());
+			polls.record(deadline.getPolls());
+			traversals.record(deadline.getCount("search"));
+			scrolls.record(deadline.getCount("scroll"));
+		}
+
+		public String getCallSite() {
+			return callSite;
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+		public String getLocator() {
+			return locator;
+		}
+
+		public int getFound() {
+			return found;
+		}
+
+		public int getTimedOut() {
+			return timedOut;
+		}
+
+		public long getTimeout() {
+			return timeout;
+		}
+
+		public Histogram getElapsed() {
+			return elapsed;
+		}
+
+		public Histogram getPolls() {
+			return polls;
+		}
+
+		public Histogram getTraversals() {
+			return traversals;
+		}
+
+		public Histogram getScrolls() {
+			return scrolls;
+		}
+
+		@Override
+		public String toString() {
+			return callSite + '\t' + method + '\t' + locator + '\t' + found + '\t' + timedOut + '\t'
+					+ (timeout == Long.MAX_VALUE ? "-" : String.valueOf(timeout)) + '\t'
+					+ elapsed.getValueAtPercentile(50) + '/' + elapsed.getValueAtPercentile(90) + '/'
+					+ elapsed.getValueAtPercentile(99) + '/' + elapsed.getMax() + '\t'
+					+ polls.getValueAtPercentile(50) + '/' + polls.getMax() + '\t'
+					+ traversals.getValueAtPercentile(50) + '/' + traversals.getMax() + '\t'
+					+ scrolls.getValueAtPercentile(50) + '/' + scrolls.getMax();
+		}
+	}
+
+	/**
+	 * 对数分桶的直方图，每个2的幂区间分为16个桶，相对误差不超过1/16
+	 * A histogram with logarithmic buckets in the style of HdrHistogram. Every power of two range is
+	 * split into 16 linear sub-buckets, so recorded values are kept with a relative error below 1/16
+	 * in constant memory.
+	 */
+
+	public static class Histogram {
+		// 每个2的幂区间的桶数位数
+		private static final int SUB_BUCKET_BITS = 4;
+		// 每个2的幂区间的桶数
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+		// 每个桶的计数
+		private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+		// 总计数
+		private long totalCount = 0;
+		// 总和
+		private long sum = 0;
+		// 最大值
+		private long max = 0;
+
+		/**
+		 * 记录一个值，负值记为0
+		 * Records a value. Negative values are recorded as {@code 0}.
+		 *
+		 * @param value the value to record
+		 */
+
+		public synchronized void record(long value) {
+			if(value < 0){
+				value = 0;
+			}
+			counts[getIndex(value)]++;
+			totalCount++;
+			sum += value;
+			if(value > max){
+				max = value;
+			}
+		}
+
+		/**
+		 * 复制当前的统计，之后的记录不影响副本
+		 * Returns a copy of this histogram that is not affected by later records.
+		 *
+		 * @return the copy
+		 */
+
+		public synchronized Histogram copy() {
+			final Histogram copy = new Histogram();
+			System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+			copy.totalCount = totalCount;
+			copy.sum = sum;
+			copy.max = max;
+			return copy;
+		}
+
+		/**
+		 * 获取记录的总次数
+		 * Returns the number of recorded values.
+		 *
+		 * @return the number of recorded values
+		 */
+
+		public synchronized long getCount() {
+			return totalCount;
+		}
+
+		/**
+		 * 获取最大值
+		 * Returns the largest recorded value.
+		 *
+		 * @return the largest recorded value or {@code 0} if nothing has been recorded
+		 */
+
+		public synchronized long getMax() {
+			return max;
+		}
+
+		/**
+		 * 获取平均值
+		 * Returns the mean of the recorded values.
+		 *
+		 * @return the mean or {@code 0} if nothing has been recorded
+		 */
+
+		public synchronized double getMean() {
+			return totalCount == 0 ? 0 : (double) sum / totalCount;
+		}
+
+		/**
+		 * 获取指定百分位的值，返回所在桶的上界，不超过最大值
+		 * Returns the value at the given percentile. The upper bound of the bucket is returned,
+		 * capped at the largest recorded value.
+		 *
+		 * @param percentile the percentile, e.g. {@code 99}
+		 * @return the value at the percentile or {@code 0} if nothing has been recorded
+		 */
+
+		public synchronized long getValueAtPercentile(double percentile) {
+			if(totalCount == 0){
+				return 0;
+			}
+			final long countAtPercentile = Math.max(1, (long) Math.ceil(totalCount * Math.min(percentile, 100) / 100));
+			long countSoFar = 0;
+			for(int i = 0; i < counts.length; i++){
+				countSoFar += counts[i];
+				if(countSoFar >= countAtPercentile){
+					return Math.min(getUpperBound(i), max);
+				}
+			}
+			return max;
+		}
+
+		/**
+		 * 获取值所在的桶
+		 * Returns the bucket of a value.
+		 *
+		 * @param value the value, not negative
+		 * @return the bucket index
+		 */
+
+		static int getIndex(long value) {
+			if(value < SUB_BUCKETS){
+				return (int) value;
+			}
+			final int exponent = 63 - Long.numberOfLeadingZeros(value);
+			final int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS));
+			return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa - SUB_BUCKETS;
+		}
+
+		/**
+		 * 获取桶的上界
+		 * Returns the largest value that falls into a bucket.
+		 *
+		 * @param index the bucket index
+		 * @return the largest value of the bucket
+		 */
+
+		static long getUpperBound(int index) {
+			if(index < SUB_BUCKETS){
+				return index;
+			}
+			final int shift = index / SUB_BUCKETS - 1;
+			final long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+			return ((mantissa + 1) << shift) - 1;
+		}
+	}
+}
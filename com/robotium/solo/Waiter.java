@@ -5,12 +5,14 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import junit.framework.Assert;
+import com.robotium.solo.Solo.Config;
 import android.app.Activity;
-import android.os.SystemClock;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentActivity;
+import android.util.Log;
 import android.view.View;
 import android.widget.TextView;
 
@@ -25,6 +27,8 @@ import android.widget.TextView;
  */
 
 class Waiter {
+	// 相关属性配置
+	private final Config config;
 	// activity操作工具类
 	private final ActivityUtils activityUtils;
 	// View查找工具类
@@ -35,27 +39,204 @@ class Waiter {
 	private final Scroller scroller;
 	// 延时等待工具类
 	private final Sleeper sleeper;
+	// 等待耗时统计
+	private final WaitTelemetry waitTelemetry;
+	// 超时学习
+	private final TimeoutLearner timeoutLearner;
+	// 按帧等待工具类
+	private final FrameWaiter frameWaiter;
+	// AsyncTask空闲资源
+	private final IdlingResource asyncTaskResource;
+	// 主线程消息队列空闲资源
+	private final IdlingResource mainLooperResource;
 	// 延时50ms
 	private final int MINISLEEP = 50;
+	// 等待前同步应用空闲最多占用剩余时间的1/2，保证之后至少查找一次
+	static final int IDLE_SYNC_SHARE = 2;
+	// 日志打印标签，标识这是 Robotium
+	private final String LOG_TAG = "Robotium";
 
 
 	/**
 	 * 构造函数
 	 * Constructs this object.
 	 *
+	 * @param config the {@code Config} instance
 	 * @param activityUtils the {@code ActivityUtils} instance
 	 * @param viewFetcher the {@code ViewFetcher} instance
 	 * @param searcher the {@code Searcher} instance
 	 * @param scroller the {@code Scroller} instance
 	 * @param sleeper the {@code Sleeper} instance
+	 * @param waitTelemetry the {@code WaitTelemetry} instance
+	 * @param timeoutLearner the {@code TimeoutLearner} instance
+	 * @param frameWaiter the {@code FrameWaiter} instance
 	 */
 
-	public Waiter(ActivityUtils activityUtils, ViewFetcher viewFetcher, Searcher searcher, Scroller scroller, Sleeper sleeper){
+	public Waiter(Config config, ActivityUtils activityUtils, ViewFetcher viewFetcher, Searcher searcher, Scroller scroller, Sleeper sleeper, WaitTelemetry waitTelemetry, TimeoutLearner timeoutLearner, FrameWaiter frameWaiter){
+		this.config = config;
 		this.activityUtils = activityUtils;
 		this.viewFetcher = viewFetcher;
 		this.searcher = searcher;
 		this.scroller = scroller;
 		this.sleeper = sleeper;
+		this.waitTelemetry = waitTelemetry;
+		this.timeoutLearner = timeoutLearner;
+		this.frameWaiter = frameWaiter;
+		asyncTaskResource = new AsyncTaskIdlingResource();
+		mainLooperResource = new LooperIdlingResource();
+	}
+
+	/**
+	 * 创建截止时间，启用超时学习且为默认超时时使用学习到的超时
+	 * Creates the deadline of a wait. A default timeout is shortened to the learned one if timeout learning is enabled.
+	 *
+	 * @param operation the name of the operation, e.g. {@code "clickOnText 'OK'"}
+	 * @param timeout the configured timeout in milliseconds
+	 * @return the deadline
+	 */
+
+	public Deadline newDeadline(String operation, long timeout) {
+		return timeoutLearner.newDeadline(operation, timeout);
+	}
+
+	/**
+	 * 记录一次等待的耗时统计和超时学习结果
+	 * Records a finished wait in the telemetry and the timeout learner.
+	 *
+	 * @param method the wait method
+	 * @param locator what was waited for
+	 * @param deadline the deadline of the wait
+	 * @param found {@code true} if the wait succeeded
+	 */
+
+	private void record(String method, String locator, Deadline deadline, boolean found) {
+		waitTelemetry.record(method, locator, deadline, found);
+		timeoutLearner.record(deadline, found);
+	}
+
+	/**
+	 * 等待AsyncTask、所有已注册的空闲资源和主线程消息队列空闲，超时时打印仍忙碌的资源
+	 * Waits until the {@code AsyncTask} executors, every resource registered with {@link IdlingRegistry}
+	 * and the main looper are idle. If the deadline passes first, the resources that are still busy are logged.
+	 *
+	 * @param deadline the deadline of the wait
+	 * @return {@code true} if all resources are idle and {@code false} if some are still busy at the deadline
+	 */
+
+	public boolean waitForIdle(Deadline deadline) {
+		return waitForIdle(deadline, deadline.remaining());
+	}
+
+	/**
+	 * 等待应用空闲，最多等待maxWait毫秒，不超过截止时间
+	 * Waits until the app is idle, for at most {@code maxWait} milliseconds of the given deadline.
+	 * If the app is still busy when either passes, the resources that are still busy are logged.
+	 *
+	 * @param deadline the deadline of the wait
+	 * @param maxWait the maximum time in milliseconds to spend waiting
+	 * @return {@code true} if all resources are idle and {@code false} if some are still busy
+	 */
+
+	private boolean waitForIdle(Deadline deadline, long maxWait) {
+		List<IdlingResource> busyResources = getBusyResources();
+		if(busyResources.isEmpty()){
+			return true;
+		}
+		// 空闲等待的结束时间点，相对于截止时间的开始时间
+		final long idleEnd = deadline.elapsed() + maxWait;
+		final String previousPhase = deadline.enter("idle");
+		try {
+			while(!deadline.isExpired() && deadline.elapsed() < idleEnd){
+				sleeper.sleep((int) Math.min(MINISLEEP, Math.min(deadline.remaining(), idleEnd - deadline.elapsed())));
+				deadline.poll();
+				busyResources = getBusyResources();
+				if(busyResources.isEmpty()){
+					return true;
+				}
+			}
+		} finally {
+			deadline.enter(previousPhase);
+		}
+		Log.w(LOG_TAG, deadline.getOperation() + ": app still busy after " + deadline.elapsed() + " ms, busy idling resources: " + describe(busyResources));
+		return false;
+	}
+
+	/**
+	 * 获取当前忙碌的资源，主线程消息队列最后检查，因为后台任务结束时会向主线程发消息
+	 * Returns the resources that are currently busy. The main looper is checked last, because background
+	 * work posts its result to the main looper before it finishes.
+	 *
+	 * @return the busy resources, empty if the app is idle
+	 */
+
+	private List<IdlingResource> getBusyResources() {
+		final List<IdlingResource> busyResources = new ArrayList<IdlingResource>();
+		if(!asyncTaskResource.isIdleNow()){
+			busyResources.add(asyncTaskResource);
+		}
+		busyResources.addAll(IdlingRegistry.getBusyResources());
+		if(!mainLooperResource.isIdleNow()){
+			busyResources.add(mainLooperResource);
+		}
+		return busyResources;
+	}
+
+	/**
+	 * 开启Config.waitForIdlingResources时等待应用空闲，使用默认的短超时
+	 * Waits until the app is idle if {@link Config#waitForIdlingResources} is set. Used before acting on the app.
+	 */
+
+	public void syncWithIdlingResources() {
+		if(config.waitForIdlingResources){
+			waitForIdle(new Deadline(sleeper.getClock(), "waitForIdle", Timeout.getSmallTimeout()));
+		}
+	}
+
+	/**
+	 * 开启Config.waitForIdlingResources时等待应用空闲，最多占用剩余时间的一部分，仍然忙碌时继续查找
+	 * Waits until the app is idle if {@link Config#waitForIdlingResources} is set. Time spent waiting counts
+	 * against the given deadline but is capped by {@link #getIdleSyncBudget(long)}, so a wait whose app
+	 * stays busy still has time left to search.
+	 *
+	 * @param deadline the deadline of the wait
+	 */
+
+	private void syncWithIdlingResources(Deadline deadline) {
+		if(config.waitForIdlingResources){
+			waitForIdle(deadline, getIdleSyncBudget(deadline.remaining()));
+		}
+	}
+
+	/**
+	 * 获取等待前同步应用空闲的最长时间，为剩余时间的1/IDLE_SYNC_SHARE
+	 * Returns how long a wait may spend waiting for the app to become idle before it searches.
+	 *
+	 * @param remaining the remaining time of the wait in milliseconds
+	 * @return the time in milliseconds, never more than {@code remaining / IDLE_SYNC_SHARE}
+	 */
+
+	static long getIdleSyncBudget(long remaining) {
+		return Math.max(0, remaining / IDLE_SYNC_SHARE);
+	}
+
+	/**
+	 * 生成忙碌资源的诊断描述
+	 * Describes busy resources for diagnostics.
+	 *
+	 * @param resources the busy resources
+	 * @return the names of the resources, with the counters of counting resources
+	 */
+
+	private String describe(List<IdlingResource> resources) {
+		final StringBuilder description = new StringBuilder();
+		for(IdlingResource resource : resources){
+			if(description.length() > 0){
+				description.append(", ");
+			}
+			final boolean detailed = resource instanceof CountingIdlingResource || resource instanceof ExecutorIdlingResource;
+			description.append(detailed ? resource.toString() : resource.getName());
+		}
+		return description.toString();
 	}
 
 	/**
@@ -87,19 +268,22 @@ class Waiter {
 		// 获取当前最新的activity
 		Activity currentActivity = activityUtils.getCurrentActivity(false, false);
 		// 设置超时时间点
-		final long endTime = SystemClock.uptimeMillis() + timeout;
+		final Deadline deadline = newDeadline("waitForActivity " + name, timeout);
 		// 如期望的 activity未出现，未到超时时间点，则继续刷新判断
-		while(SystemClock.uptimeMillis() < endTime){
+		while(!deadline.isExpired()){
+			deadline.poll();
 			// 判断当前 activity是否为指定名字的，找到则退出查找，返回true,未找到则继续刷新查找
 			if(currentActivity != null && currentActivity.getClass().getSimpleName().equals(name)) {
+				record("waitForActivity", name, deadline, true);
 				return true;
 			}
 			// 等待50ms
-			sleeper.sleep(MINISLEEP);
+			sleeper.sleep(MINISLEEP, deadline);
 			// 继续获取
 			currentActivity = activityUtils.getCurrentActivity(false, false);
 		}
 		// 超过超时点，返回false
+		record("waitForActivity", name, deadline, false);
 		return false;
 	}
 	
@@ -132,19 +316,22 @@ class Waiter {
 		// 获取当前最新activity
 		Activity currentActivity = activityUtils.getCurrentActivity(false, false);
 		// 设置超时时间点
-		final long endTime = SystemClock.uptimeMillis() + timeout;
+		final Deadline deadline = newDeadline("waitForActivity " + activityClass.getSimpleName(), timeout);
 		// 未找到，还未到达超时时间点，继续查找
-		while(SystemClock.uptimeMillis() < endTime){
+		while(!deadline.isExpired()){
+			deadline.poll();
 			// 检查是否为指定class类型的，找到则退出查找返回true
 			if(currentActivity != null && currentActivity.getClass().equals(activityClass)) {
+				record("waitForActivity", activityClass.getName(), deadline, true);
 				return true;
 			}
 			// 等待50ms
-			sleeper.sleep(MINISLEEP);
+			sleeper.sleep(MINISLEEP, deadline);
 			// 刷新当前最新的activity,继续查找
 			currentActivity = activityUtils.getCurrentActivity(false, false);
 		}
 		// 超时时间段内未找到，返回false
+		record("waitForActivity", activityClass.getName(), deadline, false);
 		return false;
 	}
 
@@ -164,26 +351,61 @@ class Waiter {
 	 */
 
 	public <T extends View> boolean waitForView(final Class<T> viewClass, final int index, boolean sleep, boolean scroll){
-		// 临时views缓存
-		Set<T> uniqueViews = new HashSet<T>();
+		return waitForView(viewClass, index, sleep, scroll, Deadline.unbounded(sleeper.getClock(), "waitForView " + viewClass.getSimpleName()));
+	}
+
+	/**
+	 * 等待指定类型的 view是否出现,等待、查找和滑动共用给定的截止时间，超时返回false
+	 * Waits for a view to be shown, consuming the budget of the given deadline.
+	 * 
+	 * @param viewClass the {@code View} class to wait for
+	 * @param index the index of the view that is expected to be shown
+	 * @param sleep true if should sleep
+	 * @param scroll {@code true} if scrolling should be performed
+	 * @param deadline the deadline shared with the caller
+	 * @return {@code true} if view is shown and {@code false} if it is not shown before the deadline
+	 */
+
+	public <T extends View> boolean waitForView(final Class<T> viewClass, final int index, boolean sleep, boolean scroll, Deadline deadline){
+		return waitForView(viewClass, index, sleep, scroll, deadline, new SearchContext());
+	}
+
+	/**
+	 * 等待指定类型的 view是否出现,找到的view记录在给定的查找状态中
+	 * Waits for a view to be shown, consuming the budget of the given deadline. The views found are kept
+	 * in the given search context.
+	 * 
+	 * @param viewClass the {@code View} class to wait for
+	 * @param index the index of the view that is expected to be shown
+	 * @param sleep true if should sleep
+	 * @param scroll {@code true} if scrolling should be performed
+	 * @param deadline the deadline shared with the caller
+	 * @param searchContext the context of the wait, owned by the caller
+	 * @return {@code true} if view is shown and {@code false} if it is not shown before the deadline
+	 */
+
+	public <T extends View> boolean waitForView(final Class<T> viewClass, final int index, boolean sleep, boolean scroll, Deadline deadline, SearchContext searchContext){
 		boolean foundMatchingView;
-		// 如果设置了 scroll 为true 直接调用改方法，无法找到则容易进入死循环
-		while(true){
-			// true,等待500ms.false 不等待
+		// 未超时则继续查找
+		while(!deadline.isExpired()){
+			// true,按轮询节奏等待.false 不等待
 			if(sleep)
-				sleeper.sleep();
+				sleeper.pace(deadline);
+			final String previousPhase = deadline.enter("search");
 			// 检查该查询条件是否可以检索到,未符合为 false，符合为true
-			foundMatchingView = searcher.searchFor(uniqueViews, viewClass, index);
+			foundMatchingView = searcher.searchFor(searchContext, viewClass, index);
+			deadline.enter(previousPhase);
 			// 符合条件,返回true
 			if(foundMatchingView)
 				return true;
 			// 设置了需要滑动，但配置不可滑动 返回false
-			if(scroll && !scroller.scrollDown())
+			if(scroll && !scroller.scrollDown(deadline))
 				return false;
 			// 如果不可滑动，返回false
 			if(!scroll)
 				return false;
 		}
+		return false;
 	}
 
 	/**
@@ -198,25 +420,41 @@ class Waiter {
 	 */
 
 	public <T extends View> boolean waitForView(final Class<T> viewClass, final int index, final int timeout, final boolean scroll){
-		// 临时views缓存
-		Set<T> uniqueViews = new HashSet<T>();
+		// 本次等待的查找状态
+		final SearchContext searchContext = new SearchContext();
 		// 设置超时时间点
-		final long endTime = SystemClock.uptimeMillis() + timeout;
+		final Deadline deadline = newDeadline("waitForView " + viewClass.getSimpleName(), timeout);
+		// 等待应用空闲
+		syncWithIdlingResources(deadline);
+		// 不需要拖动时按帧检查
+		if(!scroll && frameWaiter.isEnabled()){
+			final boolean found = frameWaiter.waitForCondition(new Condition() {
+				public boolean isSatisfied() {
+					return searcher.searchFor(searchContext, viewClass, index);
+				}
+			}, deadline);
+			record("waitForView", viewClass.getName() + "[" + index + "]", deadline, found);
+			return found;
+		}
 		boolean foundMatchingView;
 		// 未找到指定数量的views,还未超时继续查找
-		while (SystemClock.uptimeMillis() < endTime) {
-			// 等待500ms
-			sleeper.sleep();
+		while (!deadline.isExpired()) {
+			// 按轮询节奏等待
+			sleeper.pace(deadline);
+			deadline.count("search");
 			// 检查条件是否满足，满足为true,不满足为false
-			foundMatchingView =  searcher.searchFor(uniqueViews, viewClass, index);
+			foundMatchingView =  searcher.searchFor(searchContext, viewClass, index);
 			// 满足条件，退出检查，返回true
-			if(foundMatchingView)
+			if(foundMatchingView){
+				record("waitForView", viewClass.getName() + "[" + index + "]", deadline, true);
 				return true;
+			}
 			// 如果设置了可拖动，那么刷新可拖动控件
 			if(scroll) 
-				scroller.scrollDown();
+				scroller.scrollDown(deadline);
 		}
 		// 条件不满足，返回false
+		record("waitForView", viewClass.getName() + "[" + index + "]", deadline, false);
 		return false;
 	}
 
@@ -235,9 +473,9 @@ class Waiter {
 
 	public <T extends View> boolean  waitForViews(boolean scrollMethod, Class<? extends T>... classes) {
 		// 设置超时时间点
-		final long endTime = SystemClock.uptimeMillis() + Timeout.getSmallTimeout();
+		final long endTime = sleeper.uptimeMillis() + Timeout.getSmallTimeout();
 		// 条件未满足，未达到超时时间到，继续检查
-		while (SystemClock.uptimeMillis() < endTime) {
+		while (sleeper.uptimeMillis() < endTime) {
 			// 检查是否有其中包含的任一class类型出现,出现则退出检查，返回true
 			for (Class<? extends T> classToWaitFor : classes) {
 				if (waitForView(classToWaitFor, 0, false, false)) {
@@ -301,31 +539,42 @@ class Waiter {
 	 * @return {@code true} if view is shown and {@code false} if it is not shown before the timeout
 	 */
 
-	public boolean waitForView(View view, int timeout, boolean scroll, boolean checkIsShown){
+	public boolean waitForView(final View view, int timeout, boolean scroll, final boolean checkIsShown){
 		// 参数为null直接返回false
 		if(view == null)
 			return false;
 		// 设置超时时间点
-		long endTime = SystemClock.uptimeMillis() + timeout;
+		final Deadline deadline = newDeadline("waitForView " + view.getClass().getSimpleName(), timeout);
+		// 等待应用空闲
+		syncWithIdlingResources(deadline);
+		// 不需要拖动时按帧检查
+		if(!scroll && frameWaiter.isEnabled()){
+			final boolean found = frameWaiter.waitForCondition(new Condition() {
+				public boolean isSatisfied() {
+					return searcher.searchFor(view) || (checkIsShown && view.isShown());
+				}
+			}, deadline);
+			record("waitForView", view.getClass().getName(), deadline, found);
+			return found;
+		}
 		// 未到超时时间点，条件未满足，继续检查
-		while (SystemClock.uptimeMillis() < endTime) {
-			// 等待500ms
-			sleeper.sleep();
+		while (!deadline.isExpired()) {
+			// 按轮询节奏等待
+			sleeper.pace(deadline);
+			deadline.count("search");
 			// 检查view是否出现在当前屏幕
 			final boolean foundAnyMatchingView = searcher.searchFor(view);
-			// 出现返回true
-			if (foundAnyMatchingView){
-				return true;
-			}
-			// 还未出现检查现在是否正好被刷新了，通过isShown() 为true 说明检查点时没渲染出来，这个点正好刷新出来了
-			else if(checkIsShown && view != null && view.isShown()){
+			// 出现返回true,还未出现检查现在是否正好被刷新了，通过isShown() 为true 说明检查点时没渲染出来，这个点正好刷新出来了
+			if (foundAnyMatchingView || (checkIsShown && view.isShown())){
+				record("waitForView", view.getClass().getName(), deadline, true);
 				return true;
 			}
 			// 设置了拖动，则调用拖动方法刷新可拖动控件
 			if(scroll) 
-				scroller.scrollDown();
+				scroller.scrollDown(deadline);
 		}
 		// 条件未满足返回false
+		record("waitForView", view.getClass().getName(), deadline, false);
 		return false;
 	}
 	
@@ -361,11 +610,14 @@ class Waiter {
 		// 临时views缓存
 		Set<View> uniqueViewsMatchingId = new HashSet<View>();
 		// 设置超时时间点
-		long endTime = SystemClock.uptimeMillis() + timeout;
+		final Deadline deadline = newDeadline("waitForView id " + id, timeout);
+		// 等待应用空闲
+		syncWithIdlingResources(deadline);
 		// 条件未满足，未达到超时时间点，继续检查
-		while (SystemClock.uptimeMillis() <= endTime) {
-			// 等待500ms
-			sleeper.sleep();
+		while (!deadline.isExpired()) {
+			// 按轮询节奏等待
+			sleeper.pace(deadline);
+			deadline.count("search");
 			// 遍历当前所有的view
 			for (View view : viewFetcher.getAllViews(false)) {
 				// 检查id,符合条件加入views缓存
@@ -375,15 +627,17 @@ class Waiter {
 					uniqueViewsMatchingId.add(view);
 					// 已找到需求的index,返回当前的view
 					if(uniqueViewsMatchingId.size() > index) {
+						record("waitForView", "id " + id + "[" + index + "]", deadline, true);
 						return view;
 					}
 				}
 			}
 			// 如果设置了拖动，调用拖动方法刷新控件内容
 			if(scroll) 
-				scroller.scrollDown();
+				scroller.scrollDown(deadline);
 		}
 		// 未满足条件，返回false
+		record("waitForView", "id " + id + "[" + index + "]", deadline, false);
 		return null;
 	}
 
@@ -399,26 +653,30 @@ class Waiter {
 
 	public WebElement waitForWebElement(final By by, int minimumNumberOfMatches, int timeout, boolean scroll){
 		// 设置超时时间点
-		final long endTime = SystemClock.uptimeMillis() + timeout;
+		final Deadline deadline = new Deadline(sleeper.getClock(), "waitForWebElement " + by.getValue(), timeout);
+		// 本次等待的查找状态，滑动后已滑出屏幕的元素也计入
+		final SearchContext searchContext = new SearchContext();
 
 		while (true) {	
-			// 检查是否已超时
-			final boolean timedOut = SystemClock.uptimeMillis() > endTime;
 			// 已超时记录异常日志，返回null
-			if (timedOut){
-				searcher.logMatchesFound(by.getValue());
+			if (deadline.isExpired()){
+				searcher.logMatchesFound(searchContext, by.getValue());
+				record("waitForWebElement", by.getValue(), deadline, false);
 				return null;
 			}
-			// 等待500ms
-			sleeper.sleep();
-			// 获取满足条件的WebElement
-			WebElement webElementToReturn = searcher.searchForWebElement(by, minimumNumberOfMatches); 
+			// 按轮询节奏等待，不超过截止时间
+			sleeper.pace(deadline);
+			deadline.count("search");
+			// 获取满足条件的WebElement,开启js滚动时在同一次js执行中滚动到目标
+			WebElement webElementToReturn = searcher.searchForWebElement(searchContext, by, minimumNumberOfMatches, scroll && config.useJavaScriptToScrollWebViews); 
 			// 得到对应的WebElement则返回
-			if(webElementToReturn != null)
+			if(webElementToReturn != null){
+				record("waitForWebElement", by.getValue(), deadline, true);
 				return webElementToReturn;
-			// 设置了可拖动，则拖动刷新WebView可见内容
-			if(scroll) {
-				scroller.scrollDown();
+			}
+			// 设置了可拖动，则拖动刷新WebView可见内容，js滚动时已包含在查找中
+			if(scroll && !config.useJavaScriptToScrollWebViews) {
+				scroller.scrollDown(deadline);
 			}
 		}
 	}
@@ -434,19 +692,21 @@ class Waiter {
 	 */
 	public boolean waitForCondition(Condition condition, int timeout){
 		// 设置超时时间点
-		final long endTime = SystemClock.uptimeMillis() + timeout;
-
+		final Deadline deadline = new Deadline(sleeper.getClock(), "waitForCondition", timeout);
+		// 等待应用空闲
+		syncWithIdlingResources(deadline);
+		// 自定义条件总是轮询检查，不在UI线程执行，也不依赖是否有新的帧
 		while (true) {
-			// 检查是否已超时
-			final boolean timedOut = SystemClock.uptimeMillis() > endTime;
 			// 已超时，直接返回false
-			if (timedOut){
+			if (deadline.isExpired()){
+				record("waitForCondition", condition.getClass().getName(), deadline, false);
 				return false;
 			}
-			// 等待500ms
-			sleeper.sleep();
+			// 按轮询节奏等待，不超过截止时间
+			sleeper.pace(deadline);
 			// 条件满足返回true ,为满足则继续检测
 			if (condition.isSatisfied()){
+				record("waitForCondition", condition.getClass().getName(), deadline, true);
 				return true;
 			}
 		}
@@ -494,7 +754,7 @@ class Waiter {
 
 	public TextView waitForText(String text, int expectedMinimumNumberOfMatches, long timeout, boolean scroll) {
 		// 设置类型为TextView text index 超时时间，scroll 全部元素 
-		return waitForText(TextView.class, text, expectedMinimumNumberOfMatches, timeout, scroll, false, true);	
+		return waitForText(TextView.class, text, expectedMinimumNumberOfMatches, timeout, scroll, false);	
 	}
 	
 	/**
@@ -511,13 +771,13 @@ class Waiter {
 	 */
 
 	public <T extends TextView> T waitForText(Class<T> classToFilterBy, String text, int expectedMinimumNumberOfMatches, long timeout, boolean scroll) {
-		// 默认配置超时后执行完才退出
-		return waitForText(classToFilterBy, text, expectedMinimumNumberOfMatches, timeout, scroll, false, true);	
+		// 默认查找全部元素
+		return waitForText(classToFilterBy, text, expectedMinimumNumberOfMatches, timeout, scroll, false);	
 	}
 
 	/**
 	 * 获取指定text的第expectedMinimumNumberOfMatches个TextView,可指定超时时间，是否需要拖动
-	 * 是否过滤非可见view,是否需要超时后立马退出
+	 * 是否过滤非可见view
 	 * Waits for a text to be shown.
 	 *
 	 * @param text the text that needs to be shown, specified as a regular expression.
@@ -525,12 +785,11 @@ class Waiter {
 	 * @param timeout the amount of time in milliseconds to wait
 	 * @param scroll {@code true} if scrolling should be performed
 	 * @param onlyVisible {@code true} if only visible text views should be waited for
-	 * @param hardStoppage {@code true} if search is to be stopped when timeout expires
 	 * @return {@code true} if text is found and {@code false} if it is not found before the timeout
 	 */
 	
-	public TextView waitForText(String text, int expectedMinimumNumberOfMatches, long timeout, boolean scroll, boolean onlyVisible, boolean hardStoppage) {
-		return waitForText(TextView.class, text, expectedMinimumNumberOfMatches, timeout, scroll, onlyVisible, hardStoppage);
+	public TextView waitForText(String text, int expectedMinimumNumberOfMatches, long timeout, boolean scroll, boolean onlyVisible) {
+		return waitForText(TextView.class, text, expectedMinimumNumberOfMatches, timeout, scroll, onlyVisible);
 	}
 
 	/**
@@ -538,10 +797,9 @@ class Waiter {
 	 * classToFilterBy                  指定的class类型
 	 * text                             指定的text内容
 	 * expectedMinimumNumberOfMatches   view的index
-	 * timeout                          超时时间，单位 ms
+	 * timeout                          超时时间，单位 ms，内部的查找和滑动共用这一个超时
 	 * scroll                           true对于可拖动控件拖动刷新，false 不拖动刷新
 	 * onlyVisible                      true 过滤掉非可见的,false  不做过滤
-	 * hardStoppage                     true 等所有操作完成后返回,false 超时后强制停止相关操作，立即返回
 	 * Waits for a text to be shown.
 	 *
 	 * @param classToFilterBy the class to filter by
@@ -550,30 +808,44 @@ class Waiter {
 	 * @param timeout the amount of time in milliseconds to wait
 	 * @param scroll {@code true} if scrolling should be performed
 	 * @param onlyVisible {@code true} if only visible text views should be waited for
-	 * @param hardStoppage {@code true} if search is to be stopped when timeout expires
 	 * @return {@code true} if text is found and {@code false} if it is not found before the timeout
 	 */
 
-	public <T extends TextView> T waitForText(Class<T> classToFilterBy, String text, int expectedMinimumNumberOfMatches, long timeout, boolean scroll, boolean onlyVisible, boolean hardStoppage) {
-		// 设置超时时间点
-		final long endTime = SystemClock.uptimeMillis() + timeout;
+	public <T extends TextView> T waitForText(Class<T> classToFilterBy, String text, int expectedMinimumNumberOfMatches, long timeout, boolean scroll, boolean onlyVisible) {
+		return waitForText(classToFilterBy, text, expectedMinimumNumberOfMatches, newDeadline("waitForText '" + text + "'", timeout), scroll, onlyVisible);
+	}
+
+	/**
+	 * 获取指定clas类型和text的第expectedMinimumNumberOfMatches个view，等待、查找和滑动共用给定的截止时间
+	 * Waits for a text to be shown, consuming the budget of the given deadline.
+	 *
+	 * @param classToFilterBy the class to filter by
+	 * @param text the text that needs to be shown, specified as a regular expression.
+	 * @param expectedMinimumNumberOfMatches the minimum number of matches of text that must be shown. {@code 0} means any number of matches
+	 * @param deadline the deadline shared with the caller
+	 * @param scroll {@code true} if scrolling should be performed
+	 * @param onlyVisible {@code true} if only visible text views should be waited for
+	 * @return the text view if text is found and {@code null} if it is not found before the deadline
+	 */
+
+	public <T extends TextView> T waitForText(Class<T> classToFilterBy, String text, int expectedMinimumNumberOfMatches, Deadline deadline, boolean scroll, boolean onlyVisible) {
+		// 等待应用空闲
+		syncWithIdlingResources(deadline);
 
 		while (true) {
-			// 检查是否超时
-			final boolean timedOut = SystemClock.uptimeMillis() > endTime;
 			// 超时则返回null
-			if (timedOut){
+			if (deadline.isExpired()){
+				Log.d(LOG_TAG, deadline.report());
+				record("waitForText", text, deadline, false);
 				return null;
 			}
-			// 等待500ms
-			sleeper.sleep();
-			// true  searcher方法调用中循环，直到超时退出，false  searcher方法中不循环执行只做一次判断
-			if(!hardStoppage)
-				timeout = 0;
+			// 按轮询节奏等待，第一次只等一帧,查找过程中不再额外等待
+			sleeper.pace(deadline);
 
-			final T textViewToReturn = searcher.searchFor(classToFilterBy, text, expectedMinimumNumberOfMatches, timeout, scroll, onlyVisible);
+			final T textViewToReturn = searcher.searchFor(classToFilterBy, text, expectedMinimumNumberOfMatches, deadline, scroll, onlyVisible);
 
 			if (textViewToReturn != null ){
+				record("waitForText", text, deadline, true);
 				return textViewToReturn;
 			}
 		}
@@ -590,11 +862,30 @@ class Waiter {
 
 	public <T extends View> T waitForAndGetView(int index, Class<T> classToFilterBy){
 		// 设置超时时间点，当前时间+10s
-		long endTime = SystemClock.uptimeMillis() + Timeout.getSmallTimeout();
+		return waitForAndGetView(index, classToFilterBy, new Deadline(sleeper.getClock(), "waitForAndGetView " + classToFilterBy.getSimpleName(), Timeout.getSmallTimeout()));
+	}
+
+	/**
+	 * 获取指定class类型的第index个View,内部等待共用给定的截止时间，超时未找到则断言失败
+	 * Waits for and returns a View, consuming the budget of the given deadline.
+	 * 
+	 * @param index the index of the view
+	 * @param classToFilterby the class to filter
+	 * @param deadline the deadline shared with the caller
+	 * @return the specified View
+	 */
+
+	public <T extends View> T waitForAndGetView(int index, Class<T> classToFilterBy, Deadline deadline){
+		// 最后一次等待的查找状态
+		SearchContext searchContext;
+		// 等待应用空闲
+		syncWithIdlingResources(deadline);
 		// 未超时，且指定查找条件还未到达，则继续查找
-		while (SystemClock.uptimeMillis() <= endTime && !waitForView(classToFilterBy, index, true, true));
+		do {
+			searchContext = new SearchContext();
+		} while (!deadline.isExpired() && !waitForView(classToFilterBy, index, true, true, deadline, searchContext));
 		// 获取找到的view总数
-		int numberOfUniqueViews = searcher.getNumberOfUniqueViews();
+		int numberOfUniqueViews = searchContext.getNumberOfUniqueViews();
 		// 按照指定的 class类型获取所有的可见view
 		ArrayList<T> views = RobotiumUtils.removeInvisibleViews(viewFetcher.getCurrentViews(classToFilterBy));
 		// 当前获取的views 数量少于唯一的数量,index做调整
@@ -610,6 +901,7 @@ class Waiter {
 			view = views.get(index);
 		}catch (IndexOutOfBoundsException exception) {
 			// 获取异常记录异常日志
+			Log.d(LOG_TAG, deadline.report());
 			int match = index + 1;
 			if(match > 1) {
 				Assert.fail(match + " " + classToFilterBy.getSimpleName() +"s" + " are not found!");
@@ -638,8 +930,10 @@ class Waiter {
 
 	public boolean waitForFragment(String tag, int id, int timeout){
 		// 设置超时时间
-		long endTime = SystemClock.uptimeMillis() + timeout;
-		while (SystemClock.uptimeMillis() <= endTime) {
+		long endTime = sleeper.uptimeMillis() + timeout;
+		while (sleeper.uptimeMillis() <= endTime) {
+			// 该循环不等待，需要主动检查是否已取消
+			sleeper.checkCancelled();
 			// 查找 android.support.v4.app.Fragment ，找到返回 android.support.v4.app.Fragment ,未找到继续查找 android.app.Fragment
 			if(getSupportFragment(tag, id) != null)
 				return true;
@@ -694,8 +988,8 @@ class Waiter {
 	public boolean waitForLogMessage(String logMessage, int timeout){
 		StringBuilder stringBuilder = new StringBuilder();
 		// 设置超时时间点
-		long endTime = SystemClock.uptimeMillis() + timeout;
-		while (SystemClock.uptimeMillis() <= endTime) {
+		long endTime = sleeper.uptimeMillis() + timeout;
+		while (sleeper.uptimeMillis() <= endTime) {
 			// 读取logcat内容检查指定内容是否出现
 			if(getLog(stringBuilder).lastIndexOf(logMessage) != -1){
 				return true;
@@ -756,7 +1050,8 @@ class Waiter {
 		} catch (IOException e) {
 			e.printStackTrace();
 		} catch (InterruptedException e) {
-            e.printStackTrace();
+			// 恢复中断标记，下一次等待时抛出CancellationException
+			Thread.currentThread().interrupt();
         } catch (Exception e) {
             e.printStackTrace();
         }
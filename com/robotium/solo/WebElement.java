@@ -15,6 +15,9 @@ public class WebElement {
 	private int locationX = 0;
 	// 对应屏幕中的改控件中间位置y坐标
 	private int locationY = 0;
+	// 在整个页面中的位置，不随页面滚动变化
+	private int documentX = 0;
+	private int documentY = 0;
 	// Web元素 id
 	private String id;
 	// Web元素text
@@ -84,6 +87,31 @@ public class WebElement {
 		this.locationY = locationY;
 	}
 
+	/**
+	 * 设置在整个页面中的位置，单位与屏幕坐标相同
+	 * Sets the location within the whole page, in screen pixels. It does not change when the page is scrolled.
+	 *
+	 * @param documentX the X location within the page
+	 * @param documentY the Y location within the page
+	 */
+
+	void setDocumentLocation(int documentX, int documentY){
+		this.documentX = documentX;
+		this.documentY = documentY;
+	}
+
+	/**
+	 * 获取在整个页面中的位置
+	 * Returns the location within the whole page, in screen pixels.
+	 *
+	 * @param location an array of two integers in which to hold the coordinates
+	 */
+
+	void getDocumentLocation(int[] location){
+		location[0] = documentX;
+		location[1] = documentY;
+	}
+
 	/**
 	 * 获取屏幕相对X坐标
 	 * Returns the X location.
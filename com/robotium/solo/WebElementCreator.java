@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import android.os.SystemClock;
 import android.webkit.WebView;
 
 /**
@@ -22,7 +21,12 @@ class WebElementCreator {
 	// 延时工具类
 	private Sleeper sleeper;
 	// 标识符号,用于标识WebView内容解析是否已经完成
-	private boolean isFinished = false;
+	private volatile boolean isFinished = false;
+	// 页面滚动偏移消息的前缀
+	private static final String PAGE_OFFSET_PREFIX = "robotium-scroll;,";
+	// 最近一次执行js时页面的滚动偏移，单位为css像素
+	private volatile int pageOffsetX = 0;
+	private volatile int pageOffsetY = 0;
 
 	/**
 	 * 构造函数
@@ -100,6 +104,11 @@ class WebElementCreator {
 	 */
 
 	public void createWebElementAndAddInList(String webData, WebView webView){
+		// 页面滚动偏移，先于元素信息提交
+		if(webData.startsWith(PAGE_OFFSET_PREFIX)){
+			setPageOffset(webData.substring(PAGE_OFFSET_PREFIX.length()));
+			return;
+		}
 		// 获取WebElement
 		WebElement webElement = createWebElementAndSetLocation(webData, webView);
 		// 非空则加入WebElement列表
@@ -107,6 +116,33 @@ class WebElementCreator {
 			webElements.add(webElement);
 	}
 
+	/**
+	 * 解析并记录页面滚动偏移
+	 * Records the scroll offset of the page, prompted as {@code x;,y} before the elements of a JavaScript pass.
+	 *
+	 * @param offset the offset
+	 */
+
+	private void setPageOffset(String offset){
+		final String[] xy = offset.split(";,");
+		try{
+			pageOffsetX = Math.round(Float.valueOf(xy[0]));
+			pageOffsetY = Math.round(Float.valueOf(xy[1]));
+		}catch(Exception ignored){}
+	}
+
+	/**
+	 * 获取最近一次执行js时页面的滚动偏移
+	 * Returns the scroll offset of the page as of the last JavaScript pass, in CSS pixels.
+	 *
+	 * @param offset an array of two integers in which to hold the offset
+	 */
+
+	public void getPageOffset(int[] offset){
+		offset[0] = pageOffsetX;
+		offset[1] = pageOffsetY;
+	}
+
 	/**
 	 * 设置WebElement坐标属性
 	 * webElement 需要设置的WebElement
@@ -136,6 +172,8 @@ class WebElementCreator {
 
 		webElement.setLocationX(locationX);
 		webElement.setLocationY(locationY);
+		// 加上已记录的滚动偏移得到在整个页面中的位置，不需要再次执行js
+		webElement.setDocumentLocation((int) (locationX + pageOffsetX * scale), (int) (locationY + pageOffsetY * scale));
 	}
 
 	/**
@@ -204,9 +242,9 @@ class WebElementCreator {
 
 	private boolean waitForWebElementsToBeCreated(){
 		// 5s延时
-		final long endTime = SystemClock.uptimeMillis() + 5000;
+		final long endTime = sleeper.uptimeMillis() + 5000;
 		// 检查是否超时
-		while(SystemClock.uptimeMillis() < endTime){
+		while(sleeper.uptimeMillis() < endTime){
 			// 已解析完成，返回true
 			if(isFinished){
 				return true;
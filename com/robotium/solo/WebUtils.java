@@ -15,6 +15,10 @@ import android.widget.TextView;
 /**
  * Contains web related methods. Examples are:
  * enterTextIntoWebElement(), getWebTexts(), getWebElements().
+ * <br><br>
+ * The WebView reports the elements of a JavaScript pass through one {@link RobotiumWebClient} and one
+ * {@link WebElementCreator}, so a pass and the collection of its results are serialized per instance:
+ * concurrent calls wait for each other instead of mixing or clearing each other's elements.
  * 
  * @author Renas Reda, renas.reda@robotium.com
  * 
@@ -64,7 +68,7 @@ class WebUtils {
 	 * @return an {@code ArrayList} of {@code TextViews}s created from the present {@code WebView}s 
 	 */
 
-	public ArrayList<TextView> getTextViewsFromWebView(){
+	public synchronized ArrayList<TextView> getTextViewsFromWebView(){
 		// true标识执行完成，false标识未执行成功
 		boolean javaScriptWasExecuted = executeJavaScriptFunction("allTexts();");	
 		// WebElement转换成TextView
@@ -89,6 +93,7 @@ class WebUtils {
 				if(isWebElementSufficientlyShown(webElement)){
 					// 转换成TextView对象
 					RobotiumTextView textView = new RobotiumTextView(inst.getContext(), webElement.getText(), webElement.getLocationX(), webElement.getLocationY());
+					textView.setWebElement(webElement);
 					// 添加到返回列表
 					webElementsAsTextViews.add(textView);
 				}
@@ -104,7 +109,7 @@ class WebUtils {
 	 * @return an {@code ArrayList} of the {@link WebElement} objects currently shown in the active WebView
 	 */
 
-	public ArrayList<WebElement> getCurrentWebElements(){
+	public synchronized ArrayList<WebElement> getCurrentWebElements(){
 		// 执行获取所所有 WebElement的JavaScript脚本
 		boolean javaScriptWasExecuted = executeJavaScriptFunction("allWebElements();");
 		// 过滤掉非可见WebElement,返回所有剩余的
@@ -119,7 +124,7 @@ class WebUtils {
 	 * @return an {@code ArrayList} of the {@link WebElement} objects currently shown in the active WebView 
 	 */
 
-	public ArrayList<WebElement> getCurrentWebElements(final By by){
+	public synchronized ArrayList<WebElement> getCurrentWebElements(final By by){
 		// 获取By属性对应的所有WebElement
 		boolean javaScriptWasExecuted = executeJavaScript(by, false);
 		// 该判断目前还没使用,2条路径相同业务逻辑
@@ -133,6 +138,25 @@ class WebUtils {
 		return getSufficientlyShownWebElements(javaScriptWasExecuted);
 	}
 
+	/**
+	 * 获取By参数指定属性的所有WebElement,并在同一次js执行中把第scrollToMatch个滚动到可见区域，不可见的也返回
+	 * Returns all WebElements of the specified By object in the active WebView, shown or not. In the same
+	 * JavaScript pass the page is scrolled with {@code window.scrollTo} so that the given match is shown, and
+	 * the locations are reported after scrolling.
+	 *
+	 * @param by the By object. Examples are By.id("id") and By.name("name")
+	 * @param scrollToMatch the match to scroll into sight, starting with 1
+	 * @return an {@code ArrayList} of the {@link WebElement} objects in the active WebView
+	 */
+
+	public synchronized ArrayList<WebElement> getCurrentWebElements(final By by, int scrollToMatch){
+		final String function = getJavaScriptFunction(by, false);
+		if(function == null || !executeJavaScriptFunction("robotiumScrollToMatch = " + Math.max(1, scrollToMatch) + ";" + function)){
+			return new ArrayList<WebElement>();
+		}
+		return webElementCreator.getWebElementsFromWebViews();
+	}
+
 	/**
 	 * 过滤掉非可见WebElement,返回所有剩余的
 	 * Returns the sufficiently shown WebElements
@@ -255,35 +279,49 @@ class WebUtils {
 	 */
 
 	public boolean executeJavaScript(final By by, boolean shouldClick){
+		final String function = getJavaScriptFunction(by, shouldClick);
+		return function != null && executeJavaScriptFunction(function);
+	}
+
+	/**
+	 * 按照by类型拼接要执行的JavaScript函数调用
+	 * Returns the JavaScript function call determined by the given By object
+	 *
+	 * @param by the By object e.g. By.id("id");
+	 * @param shouldClick true if click should be performed
+	 * @return the function call or {@code null} if the By object is not supported
+	 */
+
+	private String getJavaScriptFunction(final By by, boolean shouldClick){
 		// 拼接按照Id执行的JavaScript脚本
 		if(by instanceof By.Id){
-			return executeJavaScriptFunction("id(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");");
+			return "id(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");";
 		}
 		// 拼接按照Xpath执行的JavaScript脚本
 		else if(by instanceof By.Xpath){
-			return executeJavaScriptFunction("xpath(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");");
+			return "xpath(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");";
 		}
 		// 拼接按照CssSelector执行的JavaScript脚本
 		else if(by instanceof By.CssSelector){
-			return executeJavaScriptFunction("cssSelector(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");");
+			return "cssSelector(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");";
 		}
 		// 拼接按照Name执行的JavaScript脚本
 		else if(by instanceof By.Name){
-			return executeJavaScriptFunction("name(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");");
+			return "name(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");";
 		}
 		// 拼接按照ClassName执行的JavaScript脚本
 		else if(by instanceof By.ClassName){
-			return executeJavaScriptFunction("className(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");");
+			return "className(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");";
 		}
 		// 拼接按照Text执行的JavaScript脚本
 		else if(by instanceof By.Text){
-			return executeJavaScriptFunction("textContent(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");");
+			return "textContent(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");";
 		}
 		// 拼接按照TagName执行的JavaScript脚本
 		else if(by instanceof By.TagName){
-			return executeJavaScriptFunction("tagName(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");");
+			return "tagName(\""+by.getValue()+"\", \"" + String.valueOf(shouldClick) + "\");";
 		}
-		return false;
+		return null;
 	}
 
 	/**
@@ -294,7 +332,7 @@ class WebUtils {
 	 * @return true if JavaScript function was executed
 	 */
 
-	private boolean executeJavaScriptFunction(final String function){
+	private synchronized boolean executeJavaScriptFunction(final String function){
 		// 获取当前时刻最新的WebView
 		final WebView webView = viewFetcher.getFreshestView(viewFetcher.getCurrentViews(WebView.class));
 		// 非null检查
@@ -307,7 +345,8 @@ class WebUtils {
 		activityUtils.getCurrentActivity(false).runOnUiThread(new Runnable() {
 			public void run() {
 				if(webView != null){
-					webView.loadUrl("javascript:" + javaScript + function);
+					// 先提交页面滚动偏移，元素的页面位置据此计算
+					webView.loadUrl("javascript:" + javaScript + "pageOffset();" + function);
 				}
 			}
 		});
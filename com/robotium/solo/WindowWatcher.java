@@ -0,0 +1,529 @@
+package com.robotium.solo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+
+
+/**
+ * 窗口监听工具类，跟踪窗口根View的添加和移除，每个窗口只分类一次
+ * Watches the window list of the application. Root views that are added or removed are tracked with
+ * a change stamp, and every window is classified once as an activity, dialog, popup, toast or IME window.
+ * <br><br>
+ * On API level 19 and above the list of root views in {@code WindowManagerGlobal} is replaced by an
+ * observing list, so changes are reported as they happen. On older versions the window list is
+ * compared on every query instead.
+ * <br><br>
+ * The list is replaced once per process and shared by all installed watchers. The watchers are reference
+ * counted: the first {@link #install()} replaces the list and the last {@link #uninstall()} puts a plain
+ * list back, so {@code Solo.shutdown()} leaves {@code WindowManagerGlobal} as it found it.
+ *
+ */
+
+class WindowWatcher {
+	// 窗口类型
+	public enum WindowType {ACTIVITY, DIALOG, POPUP, TOAST, IME, OTHER}
+	// 当前所有窗口及其类型
+	private final Map<View, WindowType> windows;
+	// 窗口变化时间戳，每次添加或移除窗口加一
+	private long changeStamp = 0;
+	// 最近一次弹框或弹出窗口被移除的时间点
+	private long lastDialogRemovedTime = 0;
+	// 是否已安装监听
+	private boolean installed = false;
+	// 用于旧版本对比窗口列表
+	private final ViewFetcher viewFetcher;
+	// 时钟
+	private final Clock clock;
+	// 用于同步
+	private final Object lock = new Object();
+	// 进程内共享的监听列表，未安装时为null
+	private static ObservingList observingList;
+	// 用于同步共享列表的安装和卸载
+	private static final Object INSTALL_LOCK = new Object();
+
+
+	/**
+	 * 构造函数
+	 * Constructs this object.
+	 *
+	 * @param viewFetcher the {@code ViewFetcher} instance
+	 * @param clock the clock the change times are taken from
+	 */
+
+	public WindowWatcher(ViewFetcher viewFetcher, Clock clock) {
+		this.viewFetcher = viewFetcher;
+		this.clock = clock;
+		this.windows = new IdentityHashMap<View, WindowType>();
+	}
+
+	/**
+	 * 安装窗口监听，第一个监听者替换列表，API 19以下无法监听，返回false
+	 * Starts watching. The first watcher of the process replaces the root view list of
+	 * {@code WindowManagerGlobal} with an observing list, later ones join it. Has no effect if this
+	 * watcher is already installed.
+	 *
+	 * @return {@code true} if window changes are reported as they happen
+	 */
+
+	public boolean install() {
+		if(android.os.Build.VERSION.SDK_INT < 19){
+			return false;
+		}
+		synchronized (INSTALL_LOCK) {
+			if(isInstalled()){
+				return true;
+			}
+			try {
+				final Object windowManagerGlobal = getWindowManagerGlobal();
+				synchronized (getWindowManagerLock(windowManagerGlobal)) {
+					if(observingList == null){
+						@SuppressWarnings("unchecked")
+						final ArrayList<View> views = new Reflect(windowManagerGlobal).field("mViews").out(ArrayList.class);
+						final ObservingList list = new ObservingList(views);
+						new Reflect(windowManagerGlobal).field("mViews").in(list);
+						observingList = list;
+					}
+					observingList.watchers.add(this);
+					synchronized (lock) {
+						for(View view : observingList){
+							onWindowAdded(view);
+						}
+						installed = true;
+					}
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+				return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * 卸载窗口监听，最后一个监听者卸载时恢复普通列表
+	 * Stops watching. When the last watcher of the process is uninstalled, a plain list with the current
+	 * root views is put back into {@code WindowManagerGlobal}. Has no effect if this watcher is not installed.
+	 */
+
+	public void uninstall() {
+		synchronized (INSTALL_LOCK) {
+			synchronized (lock) {
+				if(!installed){
+					return;
+				}
+				installed = false;
+				windows.clear();
+			}
+			if(observingList == null){
+				return;
+			}
+			observingList.watchers.remove(this);
+			if(!observingList.watchers.isEmpty()){
+				return;
+			}
+			try {
+				final Object windowManagerGlobal = getWindowManagerGlobal();
+				synchronized (getWindowManagerLock(windowManagerGlobal)) {
+					// 列表已被其他代码替换时不再恢复
+					if(new Reflect(windowManagerGlobal).field("mViews").out(Object.class) == observingList){
+						new Reflect(windowManagerGlobal).field("mViews").in(new ArrayList<View>(observingList));
+					}
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			observingList = null;
+		}
+	}
+
+	/**
+	 * 是否已安装监听
+	 * Returns whether window changes are reported as they happen.
+	 *
+	 * @return {@code true} if installed
+	 */
+
+	public boolean isInstalled() {
+		synchronized (lock) {
+			return installed;
+		}
+	}
+
+	/**
+	 * 获取窗口变化时间戳
+	 * Returns the change stamp. The stamp is incremented every time a window is added or removed.
+	 *
+	 * @return the change stamp
+	 */
+
+	public long getChangeStamp() {
+		synchronized (lock) {
+			refresh();
+			return changeStamp;
+		}
+	}
+
+	/**
+	 * 获取最近一次弹框或弹出窗口被移除的时间点
+	 * Returns the uptime at which a dialog or popup window was last removed.
+	 *
+	 * @return the uptime in milliseconds or {@code 0} if no dialog has been removed
+	 */
+
+	public long getLastDialogRemovedTime() {
+		synchronized (lock) {
+			refresh();
+			return lastDialogRemovedTime;
+		}
+	}
+
+	/**
+	 * 获取指定类型的所有窗口根View
+	 * Returns the root views of the windows of the given types.
+	 *
+	 * @param types the window types
+	 * @return the root views
+	 */
+
+	public ArrayList<View> getWindows(WindowType... types) {
+		ArrayList<View> views = new ArrayList<View>();
+		synchronized (lock) {
+			refresh();
+			for(Map.Entry<View, WindowType> window : windows.entrySet()){
+				for(WindowType type : types){
+					if(window.getValue() == type){
+						views.add(window.getKey());
+						break;
+					}
+				}
+			}
+		}
+		return views;
+	}
+
+	/**
+	 * 获取窗口类型
+	 * Returns the type of the given window.
+	 *
+	 * @param rootView the root view of the window
+	 * @return the window type or {@code null} if the window is unknown
+	 */
+
+	public WindowType getWindowType(View rootView) {
+		synchronized (lock) {
+			refresh();
+			return windows.get(rootView);
+		}
+	}
+
+	/**
+	 * 等待窗口发生变化，返回是否在超时前发生了变化
+	 * Waits until the change stamp differs from the given one. The time is measured and waited through
+	 * the clock, so a virtual clock advances instead of blocking.
+	 *
+	 * @param stamp the change stamp that was last seen
+	 * @param timeout the amount of time in milliseconds to wait
+	 * @return {@code true} if a window was added or removed before the timeout
+	 * @throws CancellationException if the thread is interrupted
+	 */
+
+	public boolean awaitChange(long stamp, long timeout) {
+		final long endTime = clock.uptimeMillis() + timeout;
+		synchronized (lock) {
+			refresh();
+			while(changeStamp == stamp){
+				final long remaining = endTime - clock.uptimeMillis();
+				if(remaining <= 0){
+					return false;
+				}
+				try {
+					// 未安装监听时只能定时对比
+					clock.await(lock, installed ? remaining : Math.min(remaining, 50));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new CancellationException("Interrupted while waiting for a window change");
+				}
+				refresh();
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * 未安装监听时对比当前窗口列表，只对新出现的窗口分类
+	 * Compares the current window list with the tracked one when changes are not reported as they happen.
+	 * Only new windows are classified.
+	 */
+
+	private void refresh() {
+		if(installed){
+			return;
+		}
+		final View[] views = viewFetcher.getWindowDecorViews();
+		if(views == null){
+			return;
+		}
+		final Map<View, Boolean> current = new IdentityHashMap<View, Boolean>();
+		for(View view : views){
+			if(view != null){
+				current.put(view, Boolean.TRUE);
+				if(!windows.containsKey(view)){
+					onWindowAdded(view);
+				}
+			}
+		}
+		for(View view : new ArrayList<View>(windows.keySet())){
+			if(!current.containsKey(view)){
+				onWindowRemoved(view);
+			}
+		}
+	}
+
+	/**
+	 * 窗口添加时分类并记录
+	 * Classifies and tracks an added window.
+	 *
+	 * @param view the root view of the window
+	 */
+
+	private void onWindowAdded(View view) {
+		if(view == null){
+			return;
+		}
+		windows.put(view, classify(view));
+		changeStamp++;
+		lock.notifyAll();
+	}
+
+	/**
+	 * 窗口移除时更新记录
+	 * Stops tracking a removed window.
+	 *
+	 * @param view the root view of the window
+	 */
+
+	private void onWindowRemoved(View view) {
+		final WindowType type = windows.remove(view);
+		if(type == null){
+			return;
+		}
+		if(type == WindowType.DIALOG || type == WindowType.POPUP){
+			lastDialogRemovedTime = clock.uptimeMillis();
+		}
+		changeStamp++;
+		lock.notifyAll();
+	}
+
+	/**
+	 * 按照窗口布局参数的类型对窗口分类
+	 * Classifies a window by the type in its layout parameters.
+	 *
+	 * @param view the root view of the window
+	 * @return the window type
+	 */
+
+	private WindowType classify(View view) {
+		final ViewGroup.LayoutParams params = view.getLayoutParams();
+		if(!(params instanceof WindowManager.LayoutParams)){
+			return WindowType.OTHER;
+		}
+		final int type = ((WindowManager.LayoutParams) params).type;
+
+		if(type == WindowManager.LayoutParams.TYPE_BASE_APPLICATION){
+			return WindowType.ACTIVITY;
+		}
+		if(type >= WindowManager.LayoutParams.FIRST_APPLICATION_WINDOW && type <= WindowManager.LayoutParams.LAST_APPLICATION_WINDOW){
+			return WindowType.DIALOG;
+		}
+		if(type >= WindowManager.LayoutParams.FIRST_SUB_WINDOW && type <= WindowManager.LayoutParams.LAST_SUB_WINDOW){
+			return WindowType.POPUP;
+		}
+		if(type == WindowManager.LayoutParams.TYPE_TOAST){
+			return WindowType.TOAST;
+		}
+		if(type == WindowManager.LayoutParams.TYPE_INPUT_METHOD || type == WindowManager.LayoutParams.TYPE_INPUT_METHOD_DIALOG){
+			return WindowType.IME;
+		}
+		return WindowType.OTHER;
+	}
+
+	/**
+	 * 反射获取WindowManagerGlobal单例
+	 * Returns the {@code WindowManagerGlobal} instance.
+	 *
+	 * @return the instance
+	 * @throws Exception if it can not be reflected
+	 */
+
+	private static Object getWindowManagerGlobal() throws Exception {
+		return Class.forName("android.view.WindowManagerGlobal").getMethod("getInstance").invoke(null);
+	}
+
+	/**
+	 * 获取WindowManagerGlobal修改mViews时使用的锁
+	 * Returns the lock {@code WindowManagerGlobal} holds while it changes its root view list.
+	 *
+	 * @param windowManagerGlobal the {@code WindowManagerGlobal} instance
+	 * @return its {@code mLock} or the instance itself if there is none
+	 */
+
+	private static Object getWindowManagerLock(Object windowManagerGlobal) {
+		final Object windowManagerLock = new Reflect(windowManagerGlobal).field("mLock").out(Object.class);
+		return windowManagerLock != null ? windowManagerLock : windowManagerGlobal;
+	}
+
+	/**
+	 * 替换WindowManagerGlobal.mViews的列表，添加和移除窗口时通知所有监听者
+	 * A list that notifies its watchers when root views are added to or removed from {@code WindowManagerGlobal}.
+	 * Every mutating method of {@code ArrayList} is overridden; iterators and sub lists change the list
+	 * through {@code add}, {@code remove} and {@code removeRange}, so they notify as well.
+	 */
+
+	private static class ObservingList extends ArrayList<View> {
+		private static final long serialVersionUID = 1L;
+		// 所有监听者
+		final CopyOnWriteArrayList<WindowWatcher> watchers = new CopyOnWriteArrayList<WindowWatcher>();
+
+		ObservingList(Collection<View> views) {
+			super(views);
+		}
+
+		@Override
+		public boolean add(View view) {
+			final boolean added = super.add(view);
+			notifyAdded(view);
+			return added;
+		}
+
+		@Override
+		public void add(int index, View view) {
+			super.add(index, view);
+			notifyAdded(view);
+		}
+
+		@Override
+		public View remove(int index) {
+			final View view = super.remove(index);
+			notifyRemoved(view);
+			return view;
+		}
+
+		@Override
+		public boolean remove(Object object) {
+			final boolean removed = super.remove(object);
+			if(removed && object instanceof View){
+				notifyRemoved((View) object);
+			}
+			return removed;
+		}
+
+		@Override
+		public View set(int index, View view) {
+			final View previous = super.set(index, view);
+			if(previous != view){
+				notifyRemoved(previous);
+				notifyAdded(view);
+			}
+			return previous;
+		}
+
+		@Override
+		public boolean addAll(Collection<? extends View> views) {
+			final List<View> added = new ArrayList<View>(views);
+			final boolean changed = super.addAll(added);
+			for(View view : added){
+				notifyAdded(view);
+			}
+			return changed;
+		}
+
+		@Override
+		public boolean addAll(int index, Collection<? extends View> views) {
+			final List<View> added = new ArrayList<View>(views);
+			final boolean changed = super.addAll(index, added);
+			for(View view : added){
+				notifyAdded(view);
+			}
+			return changed;
+		}
+
+		@Override
+		public void clear() {
+			final List<View> removed = new ArrayList<View>(this);
+			super.clear();
+			for(View view : removed){
+				notifyRemoved(view);
+			}
+		}
+
+		@Override
+		public boolean removeAll(Collection<?> views) {
+			final List<View> before = new ArrayList<View>(this);
+			final boolean changed = super.removeAll(views);
+			if(changed){
+				notifyRemovedSince(before);
+			}
+			return changed;
+		}
+
+		@Override
+		public boolean retainAll(Collection<?> views) {
+			final List<View> before = new ArrayList<View>(this);
+			final boolean changed = super.retainAll(views);
+			if(changed){
+				notifyRemovedSince(before);
+			}
+			return changed;
+		}
+
+		@Override
+		protected void removeRange(int fromIndex, int toIndex) {
+			final List<View> removed = new ArrayList<View>(subList(fromIndex, toIndex));
+			super.removeRange(fromIndex, toIndex);
+			for(View view : removed){
+				notifyRemoved(view);
+			}
+		}
+
+		/**
+		 * 通知不在列表中的原有View已被移除
+		 * Notifies the removal of the views of the given snapshot that are no longer in the list.
+		 */
+
+		private void notifyRemovedSince(List<View> before) {
+			final Map<View, Boolean> current = new IdentityHashMap<View, Boolean>();
+			for(View view : this){
+				current.put(view, Boolean.TRUE);
+			}
+			for(View view : before){
+				if(!current.containsKey(view)){
+					notifyRemoved(view);
+				}
+			}
+		}
+
+		private void notifyAdded(View view) {
+			for(WindowWatcher watcher : watchers){
+				synchronized (watcher.lock) {
+					watcher.onWindowAdded(view);
+				}
+			}
+		}
+
+		private void notifyRemoved(View view) {
+			for(WindowWatcher watcher : watchers){
+				synchronized (watcher.lock) {
+					watcher.onWindowRemoved(view);
+				}
+			}
+		}
+	}
+}